@@ -0,0 +1,95 @@
+package tests;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+
+/**
+ * Polygons and checks shared by the tests.
+ */
+final class PolygonFixtures {
+
+	private PolygonFixtures() {
+	}
+
+	// axis-parallel square in CCW order
+	static CCWPolygon square(double x, double y, double size) {
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(x, y));
+		vertices.add(new Point2D.Double(x + size, y));
+		vertices.add(new Point2D.Double(x + size, y + size));
+		vertices.add(new Point2D.Double(x, y + size));
+
+		return new CCWPolygon(vertices);
+	}
+
+	// two corridors of width 2 meeting at the origin, the reflex vertex is (2, 2)
+	static CCWPolygon lShape() {
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(0, 0));
+		vertices.add(new Point2D.Double(10, 0));
+		vertices.add(new Point2D.Double(10, 2));
+		vertices.add(new Point2D.Double(2, 2));
+		vertices.add(new Point2D.Double(2, 10));
+		vertices.add(new Point2D.Double(0, 10));
+
+		return new CCWPolygon(vertices);
+	}
+
+	// polygon of TestVisibilityPol.interiorNotConvex, the reflex vertex is (1, 4)
+	static CCWPolygon nonConvexPolygon() {
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(-2, 2));
+		vertices.add(new Point2D.Double(6, 2));
+		vertices.add(new Point2D.Double(4, 6));
+		vertices.add(new Point2D.Double(1, 4));
+		vertices.add(new Point2D.Double(-1, 6));
+		vertices.add(new Point2D.Double(-2, 4));
+
+		return new CCWPolygon(vertices);
+	}
+
+	// true iff. one of the vertices equals p up to CommonUtils.Eps
+	static boolean contains(List<Point2D> vertices, Point2D p) {
+		for (Point2D v : vertices) {
+			if (CommonUtils.epsEquals(v, p))
+				return true;
+		}
+
+		return false;
+	}
+
+	// shoelace formula
+	static double area(List<Point2D> vertices) {
+		double area = 0;
+		for (int i = 0; i < vertices.size(); i++) {
+			Point2D a = vertices.get(i), b = vertices.get((i + 1) % vertices.size());
+			area += (a.getX() * b.getY() - b.getX() * a.getY()) / 2;
+		}
+
+		return area;
+	}
+
+	// same vertices in the same cyclic order, the first vertex may differ
+	static boolean sameVertices(CCWPolygon a, CCWPolygon b) {
+		List<Point2D> va = a.getVertices(), vb = b.getVertices();
+
+		if (va.size() != vb.size())
+			return false;
+
+		for (int shift = 0; shift < vb.size(); shift++) {
+			boolean same = true;
+
+			for (int i = 0; i < va.size() && same; i++)
+				same = CommonUtils.epsEquals(va.get(i), vb.get((i + shift) % vb.size()), 1e-9);
+
+			if (same)
+				return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,75 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.nonConvexPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import visibilityPolygon.AsyncVisibilityPolygon;
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestAsyncVisibilityPol {
+
+	@Test
+	public void singleAndBatch() {
+		CCWPolygon pol = nonConvexPolygon();
+		AsyncVisibilityPolygon async = new AsyncVisibilityPolygon(4);
+
+		Point2D z = new Point2D.Double(4, 4);
+		CCWPolygon VP = async.computeVisPol(pol, z).join();
+
+		assertTrue(VP.getVertices().equals(VisibilityPolygon.computeVisPol(pol, z).getVertices()));
+
+		List<Point2D> viewPoints = new ArrayList<>();
+		for (int i = 0; i < 50; i++)
+			viewPoints.add(new Point2D.Double(-1.5 + (i % 10) * 0.5, 2.5 + (i / 10) * 0.25));
+
+		List<CCWPolygon> VPs = async.computeVisPol(pol, viewPoints).join();
+		List<CCWPolygon> expected = VisibilityPolygon.computeVisPol(pol, viewPoints);
+
+		assertTrue(VPs.size() == viewPoints.size());
+		for (int i = 0; i < viewPoints.size(); i++)
+			assertTrue(VPs.get(i).getVertices().equals(expected.get(i).getVertices()));
+	}
+
+	@Test
+	public void boundedInFlight() {
+		CCWPolygon pol = nonConvexPolygon();
+
+		// executor that only runs tasks when asked to
+		Deque<Runnable> tasks = new ArrayDeque<>();
+		Executor manual = tasks::add;
+
+		AsyncVisibilityPolygon async = new AsyncVisibilityPolygon(manual, 2);
+
+		List<CompletableFuture<CCWPolygon>> futures = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+			futures.add(async.computeVisPol(pol, new Point2D.Double(4, 4)));
+
+		// only two computations were handed to the executor
+		assertTrue(tasks.size() == 2);
+		assertTrue(async.inFlight() == 2);
+
+		// finishing one computation starts the next one
+		tasks.poll().run();
+		assertTrue(futures.get(0).isDone());
+		assertTrue(tasks.size() == 2);
+
+		while (!tasks.isEmpty())
+			tasks.poll().run();
+
+		for (CompletableFuture<CCWPolygon> f : futures)
+			assertTrue(f.isDone() && f.join().getVertices().size() == 5);
+
+		assertTrue(async.inFlight() == 0);
+	}
+}
@@ -0,0 +1,109 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.lShape;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.IsovistField;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityMetrics;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestIsovistField {
+
+	@Test
+	public void square() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+
+		// every sample point sees the whole square, there are no windows
+		IsovistField field = VisibilityPolygon.computeIsovistField(pol, 1);
+		assertTrue(field.size() == 100);
+
+		for (int i = 0; i < field.size(); i++) {
+			assertTrue(CommonUtils.epsEquals(field.getArea(i), 100));
+			assertTrue(CommonUtils.epsEquals(field.getPerimeter(i), 40));
+			assertTrue(CommonUtils.epsEquals(field.getCompactness(i), Math.PI / 4));
+			assertTrue(field.getOcclusivity(i) == 0);
+		}
+
+		// Z-order: the first four sample points are the cells in the lower left corner
+		assertTrue(field.getX(0) == 0.5 && field.getY(0) == 0.5);
+		assertTrue(field.getX(1) == 1.5 && field.getY(1) == 0.5);
+		assertTrue(field.getX(2) == 0.5 && field.getY(2) == 1.5);
+		assertTrue(field.getX(3) == 1.5 && field.getY(3) == 1.5);
+	}
+
+	@Test
+	public void reflexVertex() {
+		CCWPolygon pol = lShape();
+		IsovistField field = VisibilityPolygon.computeIsovistField(PreparedPolygon.of(pol), 0.5, ForkJoinPool.commonPool());
+
+		// only the centers inside of the polygon are sampled
+		assertTrue(field.size() == 144);
+
+		double[] xs = field.getXs(), ys = field.getYs(), areas = field.getAreas(), occlusivities = field.getOcclusivities();
+		assertTrue(xs.length == 144 && areas.length == 144);
+
+		for (int i = 0; i < field.size(); i++) {
+			Point2D z = new Point2D.Double(xs[i], ys[i]);
+			VisibilityMetrics metrics = VisibilityPolygon.computeMetrics(pol, z);
+
+			assertTrue(pol.containsPoint(z));
+			assertTrue(CommonUtils.epsEquals(areas[i], metrics.getArea()));
+			assertTrue(CommonUtils.epsEquals(field.getPerimeter(i), metrics.getPerimeter()));
+
+			// the corner sees everything, the arms see into each other up to a window from the reflex vertex (2, 2)
+			if (xs[i] < 2 && ys[i] < 2)
+				assertTrue(occlusivities[i] == 0 && CommonUtils.epsEquals(areas[i], 36));
+			else
+				assertTrue(occlusivities[i] > 0 && areas[i] < 36);
+		}
+	}
+
+	@Test
+	public void windowLength() {
+		CCWPolygon pol = lShape();
+
+		// from (9.25, 1.25) the window runs from (2, 2) along the line through the sample point to (0, 2.2)
+		IsovistField field = VisibilityPolygon.computeIsovistField(pol, 0.5);
+
+		for (int i = 0; i < field.size(); i++) {
+			if (field.getX(i) == 9.25 && field.getY(i) == 1.25) {
+				double slope = 0.75 / 7.25;
+				assertTrue(CommonUtils.epsEquals(field.getOcclusivity(i), 2 * Math.sqrt(1 + slope * slope)));
+			}
+		}
+	}
+
+	@Test
+	public void invalidInput() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+
+		// bow tie, its edges cross
+		List<Point2D> bowTie = new ArrayList<>();
+		bowTie.add(new Point2D.Double(0, 0));
+		bowTie.add(new Point2D.Double(2, 2));
+		bowTie.add(new Point2D.Double(2, 0));
+		bowTie.add(new Point2D.Double(0, 2));
+
+		assertTrue(VisibilityPolygon.computeIsovistField(new CCWPolygon(bowTie), 1) == null);
+
+		for (double spacing : new double[] { 0, -1, Double.NaN, Double.POSITIVE_INFINITY, 1e-10 }) {
+			boolean thrown = false;
+			try {
+				VisibilityPolygon.computeIsovistField(pol, spacing);
+			} catch (IllegalArgumentException e) {
+				thrown = true;
+			}
+			assertTrue(thrown);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.Test;
+
+import visibilityPolygon.Orientation;
+import visibilityPolygon.Predicates;
+
+public class TestPredicates {
+
+	@Test
+	public void simpleTurns() {
+		assertTrue(Predicates.orientation(0, 0, 1, 0, 1, 1) == Orientation.COUNTERCLOCKWISE);
+		assertTrue(Predicates.orientation(0, 0, 1, 1, 1, 0) == Orientation.CLOCKWISE);
+		assertTrue(Predicates.orientation(0, 0, 1, 1, 2, 2) == Orientation.COLLINEAR);
+	}
+
+	@Test
+	public void nearlyCollinear() {
+		// points on a grid of ulps around the line y = x, see Kettner et al. "Classroom examples of robustness problems"
+		double ulp = Math.ulp(0.5);
+
+		for (int i = 0; i < 64; i++) {
+			for (int j = 0; j < 64; j++) {
+				double ax = 0.5 + i * ulp;
+				double ay = 0.5 + j * ulp;
+
+				double det = Predicates.orient2d(ax, ay, 12, 12, 24, 24);
+
+				assertTrue(Math.signum(det) == exactSign(ax, ay, 12, 12, 24, 24));
+			}
+		}
+	}
+
+	@Test
+	public void randomNearlyDegenerate() {
+		Random r = new Random(42);
+
+		for (int i = 0; i < 10000; i++) {
+			double ax = r.nextDouble() * 100;
+			double ay = r.nextDouble() * 100;
+			double bx = r.nextDouble() * 100;
+			double by = r.nextDouble() * 100;
+
+			// c lies close to the line through a and b
+			double t = r.nextDouble() * 3 - 1;
+			double cx = ax + t * (bx - ax) + (r.nextInt(5) - 2) * Math.ulp(ax);
+			double cy = ay + t * (by - ay);
+
+			double det = Predicates.orient2d(ax, ay, bx, by, cx, cy);
+
+			assertTrue(Math.signum(det) == exactSign(ax, ay, bx, by, cx, cy));
+		}
+	}
+
+	// sign of (b - a) x (c - a) computed with BigDecimal
+	private static double exactSign(double ax, double ay, double bx, double by, double cx, double cy) {
+		BigDecimal abx = new BigDecimal(bx).subtract(new BigDecimal(ax));
+		BigDecimal aby = new BigDecimal(by).subtract(new BigDecimal(ay));
+		BigDecimal acx = new BigDecimal(cx).subtract(new BigDecimal(ax));
+		BigDecimal acy = new BigDecimal(cy).subtract(new BigDecimal(ay));
+
+		return abx.multiply(acy).subtract(aby.multiply(acx)).signum();
+	}
+}
@@ -0,0 +1,218 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.nonConvexPolygon;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestPreparedPolygon {
+
+	@Test
+	public void registryReusesEqualPolygons() {
+		PreparedPolygon p1 = PreparedPolygon.of(nonConvexPolygon());
+		PreparedPolygon p2 = PreparedPolygon.of(nonConvexPolygon());
+
+		assertTrue(p1 == p2);
+
+		// same vertices in a different order describe a different polygon
+		List<Point2D> vertices = new ArrayList<>(nonConvexPolygon().getVertices());
+		vertices.add(vertices.remove(0));
+
+		assertTrue(PreparedPolygon.of(new CCWPolygon(vertices)) != p1);
+	}
+
+	@Test
+	public void registryConcurrentLookups() throws InterruptedException {
+		PreparedPolygon[] found = new PreparedPolygon[8];
+		Thread[] threads = new Thread[found.length];
+
+		// all threads get the same instance, whichever of them registered it
+		for (int t = 0; t < threads.length; t++) {
+			int i = t;
+			threads[t] = new Thread(() -> {
+				List<Point2D> vertices = new ArrayList<>(nonConvexPolygon().getVertices());
+				vertices.set(0, new Point2D.Double(-2, 1.5));
+
+				for (int k = 0; k < 1000; k++)
+					found[i] = PreparedPolygon.of(new CCWPolygon(vertices));
+			});
+			threads[t].start();
+		}
+
+		for (Thread thread : threads)
+			thread.join();
+
+		for (PreparedPolygon prepared : found)
+			assertTrue(prepared == found[0] && prepared.getMinY() == 1.5);
+	}
+
+	@Test
+	public void boundingBox() {
+		PreparedPolygon prepared = new PreparedPolygon(nonConvexPolygon());
+
+		assertTrue(prepared.size() == 6);
+		assertTrue(prepared.getMinX() == -2 && prepared.getMaxX() == 6);
+		assertTrue(prepared.getMinY() == 2 && prepared.getMaxY() == 6);
+		assertTrue(prepared.toCCWPolygon().getVertices().equals(nonConvexPolygon().getVertices()));
+	}
+
+	@Test
+	public void preparedMatchesUnprepared() {
+		CCWPolygon pol = nonConvexPolygon();
+		PreparedPolygon prepared = PreparedPolygon.of(pol);
+
+		for (int i = 0; i < 50; i++) {
+			Point2D z = new Point2D.Double(-1.5 + (i % 10) * 0.7, 2.5 + (i / 10) * 0.3);
+
+			List<Point2D> expected = VisibilityPolygon.computeVisPol(pol, z).getVertices();
+
+			assertTrue(VisibilityPolygon.computeVisPol(prepared, z).getVertices().equals(expected));
+		}
+	}
+
+	@Test
+	public void containsPoint() {
+		CCWPolygon pol = nonConvexPolygon();
+		PreparedPolygon prepared = new PreparedPolygon(pol);
+		Path2D path = pol.getPolygon();
+		Random r = new Random(7);
+
+		for (int i = 0; i < 2000; i++) {
+			double x = -3 + 10 * r.nextDouble();
+			double y = 1 + 6 * r.nextDouble();
+
+			boolean expected = path.contains(x, y);
+
+			assertTrue(pol.containsPoint(new Point2D.Double(x, y)) == expected);
+			assertTrue(prepared.containsPoint(x, y) == expected);
+		}
+
+		// vertices, points on edges and points at the height of vertices
+		Point2D[] inside = { new Point2D.Double(1, 4), new Point2D.Double(-2, 3), new Point2D.Double(5, 4),
+							 new Point2D.Double(0, 5), new Point2D.Double(3, 4), new Point2D.Double(-2, 4) };
+		Point2D[] outside = { new Point2D.Double(1, 5), new Point2D.Double(-3, 4), new Point2D.Double(6, 4),
+							  new Point2D.Double(7, 2), new Point2D.Double(0, 1.9) };
+
+		for (Point2D p : inside)
+			assertTrue(pol.containsPoint(p) && prepared.containsPoint(p));
+
+		for (Point2D p : outside)
+			assertTrue(!pol.containsPoint(p) && !prepared.containsPoint(p));
+	}
+
+	@Test
+	public void containsPointOnGrid() {
+		// comb with teeth of different heights, most queries lie at the height of vertices or on horizontal edges
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(0, 0));
+		vertices.add(new Point2D.Double(8, 0));
+		vertices.add(new Point2D.Double(8, 3));
+		vertices.add(new Point2D.Double(7, 3));
+		vertices.add(new Point2D.Double(7, 1));
+		vertices.add(new Point2D.Double(6, 1));
+		vertices.add(new Point2D.Double(6, 4));
+		vertices.add(new Point2D.Double(5, 4));
+		vertices.add(new Point2D.Double(5, 1));
+		vertices.add(new Point2D.Double(3, 1));
+		vertices.add(new Point2D.Double(3, 3));
+		vertices.add(new Point2D.Double(1, 3));
+		vertices.add(new Point2D.Double(1, 1));
+		vertices.add(new Point2D.Double(0, 2));
+
+		CCWPolygon pol = new CCWPolygon(vertices);
+		PreparedPolygon prepared = new PreparedPolygon(pol);
+
+		for (double x = -1; x <= 9; x += 0.5) {
+			for (double y = -1; y <= 5; y += 0.5)
+				assertTrue(prepared.containsPoint(x, y) == pol.containsPoint(new Point2D.Double(x, y)));
+		}
+
+		assertTrue(prepared.containsPoint(2, 3) && prepared.containsPoint(4, 1) && prepared.containsPoint(5.5, 4));
+		assertTrue(!prepared.containsPoint(4, 3) && !prepared.containsPoint(6.5, 1.5) && !prepared.containsPoint(0, 3));
+	}
+
+	@Test
+	public void viewpointOutside() {
+		CCWPolygon pol = nonConvexPolygon();
+		Point2D z = new Point2D.Double(1, 5);
+
+		assertTrue(VisibilityPolygon.computeVisPol(pol, z) == null);
+		assertTrue(VisibilityPolygon.computeVisPol(PreparedPolygon.of(pol), z) == null);
+
+		List<CCWPolygon> VPs = VisibilityPolygon.computeVisPol(pol, Arrays.asList(new Point2D.Double(4, 4), z));
+
+		assertTrue(VPs.get(0) != null && VPs.get(1) == null);
+	}
+
+	@Test
+	public void validation() {
+		PreparedPolygon prepared = new PreparedPolygon(nonConvexPolygon());
+
+		assertTrue(prepared.isSimple() && prepared.isCounterClockwise() && prepared.isValid());
+		assertTrue(prepared.getSignedArea() == 22);
+
+		// bow tie, its edges cross
+		List<Point2D> bowTie = new ArrayList<>();
+		bowTie.add(new Point2D.Double(0, 0));
+		bowTie.add(new Point2D.Double(2, 2));
+		bowTie.add(new Point2D.Double(2, 0));
+		bowTie.add(new Point2D.Double(0, 2));
+
+		assertTrue(!new PreparedPolygon(new CCWPolygon(bowTie)).isSimple());
+		assertTrue(VisibilityPolygon.computeVisPol(new CCWPolygon(bowTie), new Point2D.Double(1, 0.5)) == null);
+
+		// vertex (2, 0) touches edge [(4, 0), (0, 0)]
+		List<Point2D> touching = new ArrayList<>();
+		touching.add(new Point2D.Double(0, 0));
+		touching.add(new Point2D.Double(4, 0));
+		touching.add(new Point2D.Double(4, 4));
+		touching.add(new Point2D.Double(2, 0));
+		touching.add(new Point2D.Double(0, 4));
+
+		assertTrue(!new PreparedPolygon(new CCWPolygon(touching)).isSimple());
+
+		// spike folding back onto the previous edge
+		List<Point2D> spike = new ArrayList<>();
+		spike.add(new Point2D.Double(0, 0));
+		spike.add(new Point2D.Double(4, 0));
+		spike.add(new Point2D.Double(2, 0));
+		spike.add(new Point2D.Double(2, 4));
+
+		assertTrue(!new PreparedPolygon(new CCWPolygon(spike)).isSimple());
+	}
+
+	@Test
+	public void reverseClockwise() {
+		List<Point2D> vertices = new ArrayList<>(nonConvexPolygon().getVertices());
+		Collections.reverse(vertices);
+		CCWPolygon cw = new CCWPolygon(vertices);
+
+		PreparedPolygon kept = new PreparedPolygon(cw);
+		PreparedPolygon reversed = PreparedPolygon.of(cw, true);
+
+		assertTrue(kept.isSimple() && !kept.isCounterClockwise() && !kept.isValid());
+		assertTrue(reversed.isValid() && reversed.getSignedArea() == 22);
+
+		// the registry finds reversed polygons by the reversed vertices
+		assertTrue(PreparedPolygon.of(cw, true) == reversed && PreparedPolygon.of(nonConvexPolygon()) == reversed);
+		assertTrue(PreparedPolygon.of(cw) != reversed && !PreparedPolygon.of(cw).isValid());
+
+		// clockwise input is rejected unless it was reversed
+		Point2D z = new Point2D.Double(4, 4);
+
+		assertTrue(VisibilityPolygon.computeVisPol(kept, z) == null);
+		assertTrue(VisibilityPolygon.computeVisPol(reversed, z).getVertices().equals(VisibilityPolygon.computeVisPol(nonConvexPolygon(), z).getVertices()));
+	}
+}
@@ -0,0 +1,153 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.area;
+import static tests.PolygonFixtures.lShape;
+import static tests.PolygonFixtures.square;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityCache;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityCache {
+
+	@Test
+	public void hitsAndMisses() {
+		CCWPolygon pol = lShape();
+		VisibilityCache cache = new VisibilityCache(1000, 1e-6);
+
+		CCWPolygon VP = cache.computeVisPol(pol, new Point2D.Double(9, 1));
+		assertTrue(cache.getHitCount() == 0 && cache.getMissCount() == 1);
+		assertTrue(CommonUtils.epsEquals(area(VP.getVertices()), area(VisibilityPolygon.computeVisPol(pol, new Point2D.Double(9, 1)).getVertices())));
+
+		// rounding noise below the quantum snaps to the same cell, an equal copy of the polygon finds the same entry
+		CCWPolygon hit = cache.computeVisPol(lShape(), new Point2D.Double(9 + 1e-9, 1 - 1e-9));
+		assertTrue(cache.getHitCount() == 1 && cache.getMissCount() == 1);
+		assertTrue(hit.getVertices().size() == VP.getVertices().size());
+
+		for (int i = 0; i < VP.getVertices().size(); i++)
+			assertTrue(hit.getVertices().get(i).equals(VP.getVertices().get(i)));
+
+		// another cell and a prepared polygon
+		cache.computeVisPol(PreparedPolygon.of(pol), new Point2D.Double(1, 9));
+		assertTrue(cache.getHitCount() == 1 && cache.getMissCount() == 2);
+		assertTrue(cache.size() == 2 && cache.getWeight() > 0);
+
+		// viewpoints outside are rejected before the lookup
+		assertTrue(cache.computeVisPol(pol, new Point2D.Double(5, 5)) == null);
+		assertTrue(cache.getHitCount() == 1 && cache.getMissCount() == 2);
+
+		cache.clear();
+		assertTrue(cache.size() == 0 && cache.getWeight() == 0);
+	}
+
+	@Test
+	public void resultsAreCopies() {
+		CCWPolygon pol = square(0, 0, 10);
+		VisibilityCache cache = new VisibilityCache(1000, 1e-6);
+		Point2D z = new Point2D.Double(5, 5);
+
+		// modifying a returned polygon doesn't reach the cached entry
+		CCWPolygon VP = cache.computeVisPol(pol, z);
+		VP.addVertex(new Point2D.Double(20, 20));
+		VP.getVertices().get(0).setLocation(-1, -1);
+
+		CCWPolygon hit = cache.computeVisPol(pol, z);
+		assertTrue(hit != VP && hit.getVertices().size() == 4);
+		assertTrue(CommonUtils.epsEquals(area(hit.getVertices()), 100));
+
+		hit.getVertices().clear();
+		assertTrue(cache.computeVisPol(pol, z).getVertices().size() == 4);
+		assertTrue(cache.getHitCount() == 2 && cache.getMissCount() == 1);
+	}
+
+	@Test
+	public void eviction() {
+		CCWPolygon pol = square(0, 0, 10);
+
+		// 17 vertices hold 4 visibility polygons of the square
+		VisibilityCache cache = new VisibilityCache(17, 1);
+
+		for (int i = 1; i < 10; i++)
+			for (int j = 1; j < 10; j++)
+				cache.computeVisPol(pol, new Point2D.Double(i, j));
+
+		assertTrue(cache.getMissCount() == 81);
+		assertTrue(cache.size() == 4 && cache.getWeight() == 16);
+		assertTrue(cache.getEvictionCount() == 81 - 4);
+
+		// the most recently added entry survives
+		cache.computeVisPol(pol, new Point2D.Double(9, 9));
+		assertTrue(cache.getHitCount() == 1);
+	}
+
+	@Test
+	public void heavyEntries() {
+		CCWPolygon pol = regularPolygon(100);
+
+		// a visibility polygon takes most of the capacity, far more than a segment's share of it
+		VisibilityCache cache = new VisibilityCache(150, 1e-6);
+
+		for (int k = 0; k < 5; k++)
+			cache.computeVisPol(pol, new Point2D.Double(0, 0));
+
+		assertTrue(cache.getHitCount() == 4 && cache.getMissCount() == 1);
+		assertTrue(cache.size() == 1 && cache.getWeight() == 100);
+
+		// another viewpoint replaces it
+		cache.computeVisPol(pol, new Point2D.Double(0.5, 0));
+		cache.computeVisPol(pol, new Point2D.Double(0.5, 0));
+		assertTrue(cache.getHitCount() == 5 && cache.getMissCount() == 2);
+		assertTrue(cache.size() == 1 && cache.getEvictionCount() == 1);
+
+		// heavier than the whole capacity, computed but not cached
+		VisibilityCache small = new VisibilityCache(99, 1e-6);
+		CCWPolygon VP = small.computeVisPol(pol, new Point2D.Double(0, 0));
+		assertTrue(VP.getVertices().size() == 100 && small.size() == 0 && small.getWeight() == 0);
+	}
+
+	@Test
+	public void invalidInput() {
+
+		// bow tie, its edges cross
+		List<Point2D> bowTie = new ArrayList<>();
+		bowTie.add(new Point2D.Double(0, 0));
+		bowTie.add(new Point2D.Double(2, 2));
+		bowTie.add(new Point2D.Double(2, 0));
+		bowTie.add(new Point2D.Double(0, 2));
+
+		VisibilityCache cache = new VisibilityCache(1000, 1e-6);
+		assertTrue(cache.computeVisPol(new CCWPolygon(bowTie), new Point2D.Double(1, 0.5)) == null);
+		assertTrue(cache.getMissCount() == 0 && cache.size() == 0);
+
+		long[] capacities = { 0, -1, 1, 1, 1, 1 };
+		double[] quanta = { 1, 1, 0, -1, Double.NaN, Double.POSITIVE_INFINITY };
+
+		for (int i = 0; i < capacities.length; i++) {
+			boolean thrown = false;
+			try {
+				new VisibilityCache(capacities[i], quanta[i]);
+			} catch (IllegalArgumentException e) {
+				thrown = true;
+			}
+			assertTrue(thrown);
+		}
+	}
+
+	// convex polygon with n vertices on the unit circle
+	private static CCWPolygon regularPolygon(int n) {
+		List<Point2D> vertices = new ArrayList<>();
+		for (int i = 0; i < n; i++)
+			vertices.add(new Point2D.Double(Math.cos(2 * Math.PI * i / n), Math.sin(2 * Math.PI * i / n)));
+
+		return new CCWPolygon(vertices);
+	}
+}
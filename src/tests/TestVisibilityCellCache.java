@@ -0,0 +1,121 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.lShape;
+import static tests.PolygonFixtures.sameVertices;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityCellCache;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityCellCache {
+
+	@Test
+	public void clusteredViewPoints() {
+		PreparedPolygon pol = PreparedPolygon.of(lShape());
+		VisibilityCellCache cache = new VisibilityCellCache(10000, 1);
+		Random random = new Random(1);
+
+		// clusters at the ends of both arms, each lies in a single cell of the visibility decomposition
+		List<Point2D> viewPoints = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			viewPoints.add(new Point2D.Double(9.5 + 0.4 * random.nextDouble(), 0.5 + random.nextDouble()));
+			viewPoints.add(new Point2D.Double(0.5 + random.nextDouble(), 9.5 + 0.4 * random.nextDouble()));
+		}
+
+		for (Point2D z : viewPoints)
+			assertTrue(sameVertices(cache.computeVisPol(pol, z), VisibilityPolygon.computeVisPol(pol, z)));
+
+		assertTrue(cache.getHitCount() + cache.getMissCount() == viewPoints.size());
+		assertTrue(cache.getMissCount() <= 4 && cache.size() == cache.getMissCount());
+		assertTrue(cache.getWeight() > 0 && cache.getEvictionCount() == 0);
+
+		// returned polygons are copies
+		Point2D z = viewPoints.get(0);
+		cache.computeVisPol(pol, z).getVertices().clear();
+		assertTrue(sameVertices(cache.computeVisPol(lShape(), z), VisibilityPolygon.computeVisPol(pol, z)));
+
+		cache.clear();
+		assertTrue(cache.size() == 0 && cache.getWeight() == 0);
+	}
+
+	@Test
+	public void criticalLine() {
+		CCWPolygon pol = lShape();
+		VisibilityCellCache cache = new VisibilityCellCache(10000, 10);
+
+		// the window at the reflex vertex (2, 2) ends on the left edge, left of x = 2.25 it ends on the top edge
+		Point2D[] viewPoints = { new Point2D.Double(2.6, 1), new Point2D.Double(2.2, 1), new Point2D.Double(2.5, 1.1), new Point2D.Double(2.1, 1.1) };
+
+		for (Point2D z : viewPoints)
+			assertTrue(sameVertices(cache.computeVisPol(pol, z), VisibilityPolygon.computeVisPol(pol, z)));
+
+		assertTrue(cache.getMissCount() == 2 && cache.getHitCount() == 2);
+		assertTrue(cache.size() == 2);
+	}
+
+	@Test
+	public void eviction() {
+		PreparedPolygon pol = PreparedPolygon.of(lShape());
+		Point2D a = new Point2D.Double(9.5, 1), b = new Point2D.Double(1, 9.5);
+
+		VisibilityCellCache sizing = new VisibilityCellCache(10000, 1);
+		sizing.computeVisPol(pol, a);
+		long weight = sizing.getWeight();
+
+		// a single template fills the cache, far more than a segment's share of the capacity
+		VisibilityCellCache cache = new VisibilityCellCache(weight, 1);
+
+		for (int k = 0; k < 3; k++)
+			assertTrue(sameVertices(cache.computeVisPol(pol, a), VisibilityPolygon.computeVisPol(pol, a)));
+
+		assertTrue(cache.getMissCount() == 1 && cache.getHitCount() == 2);
+		assertTrue(cache.size() == 1 && cache.getWeight() == weight);
+
+		// the template of the other arm replaces it
+		cache.computeVisPol(pol, b);
+		assertTrue(cache.getWeight() <= weight && cache.getEvictionCount() == 1);
+		assertTrue(cache.computeVisPol(pol, a) != null && cache.getMissCount() == 3);
+	}
+
+	@Test
+	public void invalidInput() {
+		VisibilityCellCache cache = new VisibilityCellCache(10000, 1);
+
+		// bow tie, its edges cross
+		List<Point2D> bowTie = new ArrayList<>();
+		bowTie.add(new Point2D.Double(0, 0));
+		bowTie.add(new Point2D.Double(2, 2));
+		bowTie.add(new Point2D.Double(2, 0));
+		bowTie.add(new Point2D.Double(0, 2));
+
+		assertTrue(cache.computeVisPol(new CCWPolygon(bowTie), new Point2D.Double(1, 0.5)) == null);
+		assertTrue(cache.computeVisPol(lShape(), new Point2D.Double(5, 5)) == null);
+		assertTrue(cache.getMissCount() == 0);
+
+		// viewpoints on the boundary are computed but get no template
+		assertTrue(cache.computeVisPol(lShape(), new Point2D.Double(0, 0)) != null);
+		assertTrue(cache.getMissCount() == 1 && cache.size() == 0);
+
+		long[] capacities = { 0, -1, 1, 1, 1, 1 };
+		double[] bucketSizes = { 1, 1, 0, -1, Double.NaN, Double.POSITIVE_INFINITY };
+
+		for (int i = 0; i < capacities.length; i++) {
+			boolean thrown = false;
+			try {
+				new VisibilityCellCache(capacities[i], bucketSizes[i]);
+			} catch (IllegalArgumentException e) {
+				thrown = true;
+			}
+			assertTrue(thrown);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.area;
+import static tests.PolygonFixtures.contains;
+import static tests.PolygonFixtures.lShape;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.Coverage;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityCoverage {
+
+	@Test
+	public void square() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+
+		// a guard in a convex polygon sees everything
+		Coverage coverage = VisibilityPolygon.computeCoverage(pol, Arrays.<Point2D> asList(new Point2D.Double(3, 4)));
+
+		assertTrue(CommonUtils.epsEquals(coverage.getArea(), 100));
+		assertTrue(CommonUtils.epsEquals(coverage.getCoveredArea(), 100));
+		assertTrue(CommonUtils.epsEquals(coverage.getUncoveredArea(), 0));
+		assertTrue(coverage.getMaxMultiplicity() == 1);
+		assertTrue(coverage.getUncoveredPockets().isEmpty());
+
+		// no guards
+		coverage = VisibilityPolygon.computeCoverage(pol, new ArrayList<Point2D>());
+		assertTrue(CommonUtils.epsEquals(coverage.getUncoveredArea(), 100));
+		assertTrue(coverage.getUncoveredPockets().size() == 1);
+		assertTrue(CommonUtils.epsEquals(area(coverage.getUncoveredPockets().get(0).getVertices()), 100));
+	}
+
+	@Test
+	public void pocket() {
+		CCWPolygon pol = lShape();
+
+		// the guard sees the horizontal arm and the triangle up to the line through (9, 1) and the reflex vertex (2, 2)
+		Coverage coverage = VisibilityPolygon.computeCoverage(pol, Arrays.<Point2D> asList(new Point2D.Double(9, 1)));
+
+		assertTrue(CommonUtils.epsEquals(coverage.getCoveredArea(), 20 + 2.0 / 7));
+		assertTrue(coverage.getUncoveredPockets().size() == 1);
+
+		List<Point2D> pocket = coverage.getUncoveredPockets().get(0).getVertices();
+		assertTrue(pocket.size() == 4);
+		assertTrue(contains(pocket, new Point2D.Double(0, 16.0 / 7)));
+		assertTrue(contains(pocket, new Point2D.Double(2, 2)));
+		assertTrue(contains(pocket, new Point2D.Double(0, 10)));
+		assertTrue(CommonUtils.epsEquals(area(pocket), 16 - 2.0 / 7));
+
+		// returned polygons are copies
+		pocket.get(0).setLocation(100, 100);
+		coverage.getVisibilityPolygons().get(0).getVertices().clear();
+		assertTrue(CommonUtils.epsEquals(area(coverage.getUncoveredPockets().get(0).getVertices()), 16 - 2.0 / 7));
+		assertTrue(CommonUtils.epsEquals(area(coverage.getVisibilityPolygons().get(0).getVertices()), 20 + 2.0 / 7));
+	}
+
+	@Test
+	public void multiplicity() {
+		CCWPolygon pol = lShape();
+
+		// one guard in each arm, both see the corner and the two triangles next to it
+		List<Point2D> guards = Arrays.<Point2D> asList(new Point2D.Double(9, 1), new Point2D.Double(1, 9));
+		Coverage coverage = VisibilityPolygon.computeCoverage(PreparedPolygon.of(pol), guards, ForkJoinPool.commonPool());
+
+		assertTrue(coverage.getGuardCount() == 2);
+		assertTrue(CommonUtils.epsEquals(coverage.getArea(0), 0));
+		assertTrue(CommonUtils.epsEquals(coverage.getArea(1), 36 - 4 - 4.0 / 7));
+		assertTrue(CommonUtils.epsEquals(coverage.getArea(2), 4 + 4.0 / 7));
+		assertTrue(coverage.getArea(3) == 0);
+		assertTrue(coverage.getMaxMultiplicity() == 2);
+		assertTrue(coverage.getUncoveredPockets().isEmpty());
+
+		assertTrue(coverage.getMultiplicity(new Point2D.Double(1, 1)) == 2);
+		assertTrue(coverage.getMultiplicity(new Point2D.Double(5, 1)) == 1);
+		assertTrue(coverage.getMultiplicity(new Point2D.Double(1, 5)) == 1);
+		assertTrue(coverage.getMultiplicity(new Point2D.Double(5, 5)) == 0);
+	}
+
+	@Test
+	public void invalidInput() {
+		CCWPolygon pol = lShape();
+
+		// a guard outside of the polygon sees nothing
+		List<Point2D> guards = Arrays.<Point2D> asList(new Point2D.Double(9, 1), new Point2D.Double(5, 5));
+		Coverage coverage = VisibilityPolygon.computeCoverage(pol, guards);
+
+		assertTrue(coverage.getGuardCount() == 2);
+		assertTrue(coverage.getVisibilityPolygons().get(1) == null);
+		assertTrue(CommonUtils.epsEquals(coverage.getCoveredArea(), 20 + 2.0 / 7));
+
+		// bow tie, its edges cross
+		List<Point2D> bowTie = new ArrayList<>();
+		bowTie.add(new Point2D.Double(0, 0));
+		bowTie.add(new Point2D.Double(2, 2));
+		bowTie.add(new Point2D.Double(2, 0));
+		bowTie.add(new Point2D.Double(0, 2));
+
+		assertTrue(VisibilityPolygon.computeCoverage(new CCWPolygon(bowTie), guards) == null);
+	}
+}
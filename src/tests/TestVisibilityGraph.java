@@ -0,0 +1,84 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityGraph;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityGraph {
+
+	@Test
+	public void nonConvexPolygon() {
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(-2, 2));
+		vertices.add(new Point2D.Double(6, 2));
+		vertices.add(new Point2D.Double(4, 6));
+		vertices.add(new Point2D.Double(1, 4));
+		vertices.add(new Point2D.Double(-1, 6));
+		vertices.add(new Point2D.Double(-2, 4));
+
+		VisibilityGraph graph = VisibilityPolygon.computeVisibilityGraph(new CCWPolygon(vertices));
+
+		// the edges of the polygon and the diagonals, (0, 2) grazes the reflex vertex 3
+		int[][] edges = { { 0, 1 }, { 1, 2 }, { 2, 3 }, { 3, 4 }, { 4, 5 }, { 0, 5 },
+						  { 0, 2 }, { 0, 3 }, { 0, 4 }, { 1, 3 }, { 1, 5 }, { 3, 5 } };
+
+		assertTrue(graph.size() == 6);
+		assertTrue(graph.edgeCount() == edges.length);
+
+		for (int[] e : edges)
+			assertTrue(graph.isVisible(e[0], e[1]) && graph.isVisible(e[1], e[0]));
+
+		// the notch above the reflex vertex blocks these
+		assertTrue(!graph.isVisible(1, 4));
+		assertTrue(!graph.isVisible(2, 4));
+		assertTrue(!graph.isVisible(2, 5));
+	}
+
+	@Test
+	public void compressedRows() {
+		PreparedPolygon pol = PreparedPolygon.of(starPolygon(60));
+
+		VisibilityGraph parallel = VisibilityPolygon.computeVisibilityGraph(pol, ForkJoinPool.commonPool());
+		VisibilityGraph sequential = VisibilityPolygon.computeVisibilityGraph(pol, new ForkJoinPool(1));
+
+		assertTrue(Arrays.equals(parallel.getOffsets(), sequential.getOffsets()));
+		assertTrue(Arrays.equals(parallel.getNeighbors(), sequential.getNeighbors()));
+
+		int[] offsets = parallel.getOffsets();
+		int[] neighbors = parallel.getNeighbors();
+
+		assertTrue(offsets.length == pol.size() + 1 && offsets[pol.size()] == neighbors.length);
+
+		// rows are sorted and symmetric
+		for (int i = 0; i < pol.size(); i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				assertTrue(k == offsets[i] || neighbors[k - 1] < neighbors[k]);
+				assertTrue(parallel.isVisible(neighbors[k], i));
+			}
+		}
+	}
+
+	// alternating inner and outer vertices, each inner vertex is reflex
+	private static CCWPolygon starPolygon(int n) {
+		List<Point2D> vertices = new ArrayList<>();
+
+		for (int i = 0; i < n; i++) {
+			double r = (i % 2 == 0) ? 10 : 6;
+			double angle = 2 * Math.PI * i / n;
+			vertices.add(new Point2D.Double(r * Math.cos(angle), r * Math.sin(angle)));
+		}
+
+		return new CCWPolygon(vertices);
+	}
+}
@@ -0,0 +1,102 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.lShape;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityHeatmap;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityHeatmap {
+
+	@Test
+	public void square() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+
+		// every viewpoint sees every cell of a convex polygon
+		List<Point2D> viewPoints = Arrays.<Point2D> asList(new Point2D.Double(5, 5), new Point2D.Double(0, 0), new Point2D.Double(10, 3));
+		VisibilityHeatmap heatmap = VisibilityPolygon.computeHeatmap(pol, viewPoints, 1);
+
+		assertTrue(heatmap.getWidth() == 10 && heatmap.getHeight() == 10);
+		assertTrue(heatmap.getMinX() == 0 && heatmap.getMinY() == 0);
+		assertTrue(heatmap.getViewPointCount() == 3);
+		assertTrue(CommonUtils.epsEquals(heatmap.getCellCenter(2, 7), new Point2D.Double(2.5, 7.5)));
+
+		int[] counts = heatmap.getCounts();
+		float[] fractions = heatmap.getFractions();
+		assertTrue(counts.length == 100 && fractions.length == 100);
+
+		for (int i = 0; i < counts.length; i++) {
+			assertTrue(counts[i] == 3);
+			assertTrue(fractions[i] == 1);
+		}
+
+		// the grid covers the bounding box, cells partly outside of the polygon are kept
+		heatmap = VisibilityPolygon.computeHeatmap(pol, viewPoints, 3);
+		assertTrue(heatmap.getWidth() == 4 && heatmap.getHeight() == 4);
+		assertTrue(heatmap.getCount(3, 3) == 0 && heatmap.getCount(2, 2) == 3);
+	}
+
+	@Test
+	public void reflexVertex() {
+		CCWPolygon pol = lShape();
+
+		// the guard sees the horizontal arm, the cell centers above it lie above the line through (9, 1) and the reflex vertex (2, 2)
+		VisibilityHeatmap heatmap = VisibilityPolygon.computeHeatmap(pol, Arrays.<Point2D> asList(new Point2D.Double(9, 1)), 1);
+
+		int sum = 0;
+		for (int count : heatmap.getCounts())
+			sum += count;
+
+		assertTrue(sum == 20);
+		assertTrue(heatmap.getCount(9, 0) == 1 && heatmap.getCount(0, 1) == 1);
+		assertTrue(heatmap.getCount(0, 2) == 0 && heatmap.getCount(1, 9) == 0);
+
+		// one guard in each arm, both see the corner
+		List<Point2D> viewPoints = Arrays.<Point2D> asList(new Point2D.Double(9, 1), new Point2D.Double(1, 9), new Point2D.Double(5, 5));
+		heatmap = VisibilityPolygon.computeHeatmap(PreparedPolygon.of(pol), viewPoints, 1, ForkJoinPool.commonPool());
+
+		assertTrue(heatmap.getViewPointCount() == 2);
+		assertTrue(heatmap.getCount(0, 0) == 2 && heatmap.getCount(1, 1) == 2);
+		assertTrue(heatmap.getCount(5, 1) == 1 && heatmap.getCount(1, 5) == 1);
+		assertTrue(heatmap.getCount(5, 5) == 0);
+
+		float[] fractions = heatmap.getFractions();
+		assertTrue(fractions[0] == 1 && fractions[5 * heatmap.getWidth() + 1] == 0.5f);
+	}
+
+	@Test
+	public void invalidInput() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+		List<Point2D> viewPoints = Arrays.<Point2D> asList(new Point2D.Double(5, 5));
+
+		// bow tie, its edges cross
+		List<Point2D> bowTie = new ArrayList<>();
+		bowTie.add(new Point2D.Double(0, 0));
+		bowTie.add(new Point2D.Double(2, 2));
+		bowTie.add(new Point2D.Double(2, 0));
+		bowTie.add(new Point2D.Double(0, 2));
+
+		assertTrue(VisibilityPolygon.computeHeatmap(new CCWPolygon(bowTie), viewPoints, 1) == null);
+
+		for (double cellSize : new double[] { 0, -1, Double.NaN, Double.POSITIVE_INFINITY, 1e-10 }) {
+			boolean thrown = false;
+			try {
+				VisibilityPolygon.computeHeatmap(pol, viewPoints, cellSize);
+			} catch (IllegalArgumentException e) {
+				thrown = true;
+			}
+			assertTrue(thrown);
+		}
+	}
+}
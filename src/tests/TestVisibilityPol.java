@@ -1,15 +1,22 @@
 package tests;
 
 import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.lShape;
 
+import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
+import visibilityPolygon.AngleMode;
 import visibilityPolygon.CCWPolygon;
 import visibilityPolygon.CommonUtils;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityMetrics;
 import visibilityPolygon.VisibilityPolygon;
 
  public class TestVisibilityPol {
@@ -178,5 +185,233 @@ import visibilityPolygon.VisibilityPolygon;
 		assertTrue(VP.getVertices().size() == 6);
 	}
 	
+	@Test
+	public void onEdgeNotConvexPseudoAngles() {
+
+		// z is on edge of boundary, polygon is not convex, angles measured without trigonometric functions
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(-2, 2));
+		vertices.add(new Point2D.Double(6, 2));
+		vertices.add(new Point2D.Double(4, 6));
+		vertices.add(new Point2D.Double(1, 4));
+		vertices.add(new Point2D.Double(-1, 6));
+		vertices.add(new Point2D.Double(-2, 4));
+
+		CCWPolygon pol = new CCWPolygon(vertices);
+		Point2D z = new Point2D.Double(-2, 3);
+
+		CCWPolygon VP = VisibilityPolygon.computeVisPol(pol, z, AngleMode.PSEUDO);
+		
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(0), new Point2D.Double(-2, 2), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(1), new Point2D.Double(6, 2), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(2), new Point2D.Double(4.428571428571428, 5.142857142857142), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(3), new Point2D.Double(1, 4), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(4), new Point2D.Double(-1, 6), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(5), new Point2D.Double(-2, 4), CommonUtils.Eps));
+		
+		assertTrue(VP.getVertices().size() == 6);
+	}
+	
+	@Test
+	public void onVertexNotConvexPseudoAngles() {
+
+		// z is on boundary (polygon vertex), polygon is not convex, angles measured without trigonometric functions
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(-2, 2));
+		vertices.add(new Point2D.Double(6, 2));
+		vertices.add(new Point2D.Double(4, 6));
+		vertices.add(new Point2D.Double(1, 4));
+		vertices.add(new Point2D.Double(-1, 6));
+		vertices.add(new Point2D.Double(-2, 4));
+
+		CCWPolygon pol = new CCWPolygon(vertices);
+		Point2D z = new Point2D.Double(1, 4);
+
+		CCWPolygon VP = VisibilityPolygon.computeVisPol(pol, z, AngleMode.PSEUDO);
+		
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(0), new Point2D.Double(-1, 6), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(1), new Point2D.Double(-2, 4), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(2), new Point2D.Double(-2, 2), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(3), new Point2D.Double(6, 2), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(4), new Point2D.Double(4, 6), CommonUtils.Eps));
+		assertTrue(CommonUtils.epsEquals(VP.getVertices().get(5), new Point2D.Double(1, 4), CommonUtils.Eps));
+		
+		assertTrue(VP.getVertices().size() == 6);
+	}
+	
+	@Test
+	public void parallelMatchesSequential() {
+		// many viewpoints in a non convex polygon, computed sequentially and in parallel
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(-2, 2));
+		vertices.add(new Point2D.Double(6, 2));
+		vertices.add(new Point2D.Double(4, 6));
+		vertices.add(new Point2D.Double(1, 4));
+		vertices.add(new Point2D.Double(-1, 6));
+		vertices.add(new Point2D.Double(-2, 4));
+
+		CCWPolygon pol = new CCWPolygon(vertices);
+		
+		List<Point2D> viewPoints = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+			viewPoints.add(new Point2D.Double(-1.5 + (i % 20) * 0.3, 2.5 + (i / 20) * 0.15));
+
+		List<CCWPolygon> sequential = VisibilityPolygon.computeVisPol(pol, viewPoints);
+		List<CCWPolygon> forkJoin = VisibilityPolygon.computeVisPolParallel(pol, viewPoints);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		List<CCWPolygon> executed = VisibilityPolygon.computeVisPolParallel(pol, viewPoints, AngleMode.RADIANS, executor, 3);
+		executor.shutdown();
+		
+		assertTrue(forkJoin.size() == viewPoints.size());
+		assertTrue(executed.size() == viewPoints.size());
+		
+		for (int i = 0; i < viewPoints.size(); i++) {
+			List<Point2D> expected = sequential.get(i).getVertices();
+			
+			assertTrue(forkJoin.get(i).getVertices().equals(expected));
+			assertTrue(executed.get(i).getVertices().equals(expected));
+		}
+	}
+
+	@Test
+	public void alignedVerticesRemoved() {
+		// square with additional vertices on its bottom and right edge, only the corners remain
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(0, 0));
+		vertices.add(new Point2D.Double(1, 0));
+		vertices.add(new Point2D.Double(2, 0));
+		vertices.add(new Point2D.Double(3, 0));
+		vertices.add(new Point2D.Double(4, 0));
+		vertices.add(new Point2D.Double(4, 2));
+		vertices.add(new Point2D.Double(4, 4));
+		vertices.add(new Point2D.Double(0, 4));
+
+		CCWPolygon pol = new CCWPolygon(vertices);
+		Point2D z = new Point2D.Double(2, 1);
+
+		CCWPolygon VP = VisibilityPolygon.computeVisPol(pol, z);
+		
+		assertTrue(VP.getVertices().size() == 4);
+
+		for (Point2D corner : new Point2D[] { new Point2D.Double(0, 0), new Point2D.Double(4, 0), new Point2D.Double(4, 4), new Point2D.Double(0, 4) }) {
+			boolean found = false;
+			for (Point2D curr : VP.getVertices())
+				found |= CommonUtils.epsEquals(curr, corner);
+			assertTrue(found);
+		}
+	}
+
+	@Test
+	public void metricsMatchPolygon() {
+		List<Point2D> vertices = new ArrayList<>();
+		vertices.add(new Point2D.Double(-2, 2));
+		vertices.add(new Point2D.Double(6, 2));
+		vertices.add(new Point2D.Double(4, 6));
+		vertices.add(new Point2D.Double(1, 4));
+		vertices.add(new Point2D.Double(-1, 6));
+		vertices.add(new Point2D.Double(-2, 4));
+
+		CCWPolygon pol = new CCWPolygon(vertices);
+		PreparedPolygon prepared = PreparedPolygon.of(pol);
+
+		// interior points, a point on an edge and a vertex
+		List<Point2D> viewPoints = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			viewPoints.add(new Point2D.Double(-1.5 + (i % 10) * 0.7, 2.5 + (i / 10) * 0.5));
+		viewPoints.add(new Point2D.Double(2, 2));
+		viewPoints.add(new Point2D.Double(1, 4));
+
+		for (Point2D z : viewPoints) {
+			List<Point2D> VP = VisibilityPolygon.computeVisPol(pol, z).getVertices();
+
+			double area = 0, perimeter = 0, maxDist = 0, minDist = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < VP.size(); i++) {
+				Point2D a = VP.get(i), b = VP.get((i + 1) % VP.size());
+				area += (a.getX() * b.getY() - b.getX() * a.getY()) / 2;
+				perimeter += a.distance(b);
+				maxDist = Math.max(maxDist, a.distance(z));
+				minDist = Math.min(minDist, Line2D.ptSegDist(a.getX(), a.getY(), b.getX(), b.getY(), z.getX(), z.getY()));
+			}
+
+			for (VisibilityMetrics metrics : new VisibilityMetrics[] { VisibilityPolygon.computeMetrics(pol, z),
+					VisibilityPolygon.computeMetrics(prepared, z, AngleMode.RADIANS) }) {
+				assertTrue(CommonUtils.epsEquals(metrics.getArea(), area, 1e-9));
+				assertTrue(CommonUtils.epsEquals(metrics.getPerimeter(), perimeter, 1e-9));
+				assertTrue(CommonUtils.epsEquals(metrics.getMaxRadialDistance(), maxDist, 1e-9));
+				assertTrue(CommonUtils.epsEquals(metrics.getMinRadialDistance(), minDist, 1e-9));
+				assertTrue(metrics.getOutputVertexCount() == VP.size());
+			}
+		}
+
+		assertTrue(VisibilityPolygon.computeMetrics(pol, new Point2D.Double(1, 5)) == null);
+	}
+
+	@Test
+	public void largeCombOnDefaultStack() throws InterruptedException {
+		// comb of k teeth of width 1 / k and height 9 / k with gaps of width 1 / k on a base of height 2, 10^6 vertices
+		int k = 250000;
+		List<Point2D> vertices = new ArrayList<>(4 * k);
+		vertices.add(new Point2D.Double(0, -2));
+		vertices.add(new Point2D.Double((2.0 * k - 1) / k, -2));
+
+		for (int i = k - 1; i >= 0; i--) {
+			vertices.add(new Point2D.Double((2.0 * i + 1) / k, 10.0 / k));
+			vertices.add(new Point2D.Double(2.0 * i / k, 10.0 / k));
+
+			if (i > 0) {
+				vertices.add(new Point2D.Double(2.0 * i / k, 1.0 / k));
+				vertices.add(new Point2D.Double((2.0 * i - 1) / k, 1.0 / k));
+			}
+		}
+
+		CCWPolygon pol = new CCWPolygon(vertices);
+
+		// far below the teeth, so their sides aren't seen at grazing angles
+		Point2D z = new Point2D.Double(1, -1);
+
+		// a thread with the default stack size, the scan must not recurse per vertex
+		List<CCWPolygon> result = new ArrayList<>();
+		List<Throwable> thrown = new ArrayList<>();
+		Thread thread = new Thread(() -> {
+			try {
+				result.add(VisibilityPolygon.computeVisPol(pol, z));
+			} catch (Throwable t) {
+				thrown.add(t);
+			}
+		});
+		thread.start();
+		thread.join();
+
+		assertTrue(thrown.isEmpty() && result.get(0) != null);
+
+		// the base is seen completely, the teeth only partially
+		double base = (2.0 * k - 1) / k * (2.0 * k + 1) / k;
+		double area = 0;
+		List<Point2D> VP = result.get(0).getVertices();
+		for (int i = 0; i < VP.size(); i++) {
+			Point2D a = VP.get(i), b = VP.get((i + 1) % VP.size());
+			area += (a.getX() * b.getY() - b.getX() * a.getY()) / 2;
+		}
+
+		assertTrue(area > base && area < base + 9.0 / k);
+	}
+
+	@Test
+	public void metricsCountVisibleVertices() {
+		CCWPolygon pol = lShape();
+
+		// the window at the reflex vertex (2, 2) ends on the left edge at (0, 16/7), a vertex of the visibility polygon only
+		VisibilityMetrics metrics = VisibilityPolygon.computeMetrics(pol, new Point2D.Double(9, 1));
+		assertTrue(metrics.getVertexCount() == 4 && metrics.getOutputVertexCount() == 5);
+
+		// the corner sees all vertices
+		metrics = VisibilityPolygon.computeMetrics(pol, new Point2D.Double(1, 1));
+		assertTrue(metrics.getVertexCount() == 6 && metrics.getOutputVertexCount() == 6);
+
+		// z is the vertex (10, 0)
+		metrics = VisibilityPolygon.computeMetrics(pol, new Point2D.Double(10, 0));
+		assertTrue(metrics.getVertexCount() == metrics.getOutputVertexCount() - 1);
+	}
 
 }
@@ -0,0 +1,102 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.area;
+import static tests.PolygonFixtures.contains;
+import static tests.PolygonFixtures.nonConvexPolygon;
+import static tests.PolygonFixtures.square;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityPolInRange {
+
+	@Test
+	public void outOfRange() {
+		CCWPolygon pol = square(0, 0, 100);
+		Point2D z = new Point2D.Double(50, 50);
+		double radius = 5, tolerance = 1e-3;
+
+		// no edge in range, the visibility polygon approximates the circle
+		List<Point2D> vertices = VisibilityPolygon.computeVisPolInRange(pol, z, radius, tolerance).getVertices();
+
+		for (int i = 0; i < vertices.size(); i++) {
+			Point2D p = vertices.get(i), q = vertices.get((i + 1) % vertices.size());
+
+			assertTrue(CommonUtils.epsEquals(p.distance(z), radius));
+			// distance of the midpoint of the chord from the circle
+			double mx = (p.getX() + q.getX()) / 2, my = (p.getY() + q.getY()) / 2;
+			assertTrue(radius - z.distance(mx, my) <= tolerance + 1e-9);
+		}
+
+		assertTrue(area(vertices) <= Math.PI * radius * radius);
+		assertTrue(area(vertices) >= Math.PI * radius * radius - 2 * Math.PI * radius * tolerance);
+	}
+
+	@Test
+	public void partlyInRange() {
+		CCWPolygon pol = square(0, 0, 10);
+		Point2D z = new Point2D.Double(2, 5);
+		double radius = 4, tolerance = 1e-4;
+
+		// the left edge cuts off the circular segment left of x = 0
+		List<Point2D> vertices = VisibilityPolygon.computeVisPolInRange(pol, z, radius, tolerance).getVertices();
+		double segment = radius * radius * Math.acos(0.5) - 2 * Math.sqrt(radius * radius - 4);
+
+		assertTrue(contains(vertices, new Point2D.Double(0, 5 - Math.sqrt(12))));
+		assertTrue(contains(vertices, new Point2D.Double(0, 5 + Math.sqrt(12))));
+		assertTrue(Math.abs(area(vertices) - (Math.PI * radius * radius - segment)) < 2 * Math.PI * radius * tolerance);
+
+		for (Point2D p : vertices)
+			assertTrue(p.distance(z) <= radius + 1e-9);
+	}
+
+	@Test
+	public void reflexVertex() {
+		CCWPolygon pol = nonConvexPolygon();
+
+		// the range covers the whole polygon, hence nothing is clipped
+		for (Point2D z : new Point2D[] { new Point2D.Double(4, 4), new Point2D.Double(1, 4), new Point2D.Double(2, 2) }) {
+			double full = area(VisibilityPolygon.computeVisPol(pol, z).getVertices());
+
+			assertTrue(CommonUtils.epsEquals(area(VisibilityPolygon.computeVisPolInRange(pol, z, 100, 1e-3).getVertices()), full));
+		}
+
+		// the reflex vertex (1, 4) hides the pocket on the left, the range cuts the visible part
+		Point2D z = new Point2D.Double(4, 4);
+		List<Point2D> vertices = VisibilityPolygon.computeVisPolInRange(pol, z, 2.5, 1e-3).getVertices();
+
+		assertTrue(area(vertices) < area(VisibilityPolygon.computeVisPol(pol, z).getVertices()));
+		for (Point2D p : vertices)
+			assertTrue(p.distance(z) <= 2.5 + 1e-9);
+
+		// z on the boundary, the visibility polygon is clipped
+		z = new Point2D.Double(2, 2);
+		vertices = VisibilityPolygon.computeVisPolInRange(PreparedPolygon.of(pol), z, 1, 1e-4).getVertices();
+		assertTrue(Math.abs(area(vertices) - Math.PI / 2) < 2 * Math.PI * 1e-4);
+	}
+
+	@Test
+	public void invalidInput() {
+		CCWPolygon pol = square(0, 0, 10);
+
+		assertTrue(VisibilityPolygon.computeVisPolInRange(pol, new Point2D.Double(11, 5), 1, 1e-3) == null);
+
+		for (double[] params : new double[][] { { 0, 1e-3 }, { -1, 1e-3 }, { 1, 0 }, { Double.NaN, 1e-3 } }) {
+			boolean thrown = false;
+			try {
+				VisibilityPolygon.computeVisPolInRange(pol, new Point2D.Double(5, 5), params[0], params[1]);
+			} catch (IllegalArgumentException e) {
+				thrown = true;
+			}
+			assertTrue(thrown);
+		}
+	}
+}
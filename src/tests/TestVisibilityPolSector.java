@@ -0,0 +1,94 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.area;
+import static tests.PolygonFixtures.contains;
+import static tests.PolygonFixtures.nonConvexPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityPolSector {
+
+	@Test
+	public void square() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+		Point2D z = new Point2D.Double(5, 5);
+
+		// quarter turn towards the right edge
+		List<Point2D> vertices = VisibilityPolygon.computeVisPol(pol, z, 0, Math.PI / 2).getVertices();
+
+		assertTrue(vertices.size() == 3);
+		assertTrue(contains(vertices, z));
+		assertTrue(contains(vertices, new Point2D.Double(10, 0)));
+		assertTrue(contains(vertices, new Point2D.Double(10, 10)));
+		assertTrue(CommonUtils.epsEquals(area(vertices), 25));
+
+		// three quarter turn, z becomes a reflex vertex
+		vertices = VisibilityPolygon.computeVisPol(pol, z, Math.PI, 3 * Math.PI / 2).getVertices();
+		assertTrue(CommonUtils.epsEquals(area(vertices), 75));
+
+		// full turn
+		vertices = VisibilityPolygon.computeVisPol(pol, z, 1, 2 * Math.PI).getVertices();
+		assertTrue(CommonUtils.epsEquals(area(vertices), 100));
+	}
+
+	@Test
+	public void reflexVertex() {
+		CCWPolygon pol = nonConvexPolygon();
+		Point2D z = new Point2D.Double(4, 4);
+
+		// the sector from straight up to straight down includes the reflex vertex (1, 4) and its shadow
+		List<Point2D> vertices = VisibilityPolygon.computeVisPol(pol, z, Math.PI, Math.PI).getVertices();
+		List<Point2D> full = VisibilityPolygon.computeVisPol(pol, z).getVertices();
+
+		assertTrue(contains(vertices, new Point2D.Double(1, 4)));
+		assertTrue(contains(vertices, new Point2D.Double(4, 2)));
+		assertTrue(!contains(vertices, new Point2D.Double(6, 2)));
+
+		// both halves add up to the full visibility polygon
+		double right = area(VisibilityPolygon.computeVisPol(pol, z, 0, Math.PI).getVertices());
+		assertTrue(CommonUtils.epsEquals(area(vertices) + right, area(full)));
+	}
+
+	@Test
+	public void onBoundary() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+
+		// z on the bottom edge, half of the sector points out of the polygon
+		Point2D z = new Point2D.Double(5, 0);
+		List<Point2D> vertices = VisibilityPolygon.computeVisPol(pol, z, 0, Math.PI / 2).getVertices();
+
+		assertTrue(contains(vertices, new Point2D.Double(10, 0)));
+		assertTrue(contains(vertices, new Point2D.Double(10, 5)));
+		assertTrue(CommonUtils.epsEquals(area(vertices), 12.5));
+
+		// z on a vertex
+		z = new Point2D.Double(0, 0);
+		vertices = VisibilityPolygon.computeVisPol(pol, z, Math.PI / 4, Math.PI / 2).getVertices();
+		assertTrue(CommonUtils.epsEquals(area(vertices), 100));
+	}
+
+	@Test
+	public void invalidInput() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+
+		assertTrue(VisibilityPolygon.computeVisPol(pol, new Point2D.Double(11, 5), 0, 1) == null);
+
+		for (double[] params : new double[][] { { 0, 0 }, { 0, -1 }, { Double.NaN, 1 }, { Double.POSITIVE_INFINITY, 1 } }) {
+			boolean thrown = false;
+			try {
+				VisibilityPolygon.computeVisPol(pol, new Point2D.Double(5, 5), params[0], params[1]);
+			} catch (IllegalArgumentException e) {
+				thrown = true;
+			}
+			assertTrue(thrown);
+		}
+	}
+}
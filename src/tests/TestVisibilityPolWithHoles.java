@@ -0,0 +1,75 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.area;
+import static tests.PolygonFixtures.contains;
+import static tests.PolygonFixtures.square;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityPolWithHoles {
+
+	@Test
+	public void squareHole() {
+		CCWPolygon outer = square(0, 0, 10);
+		List<CCWPolygon> holes = Arrays.asList(square(4, 4, 2));
+
+		CCWPolygon VP = VisibilityPolygon.computeVisPolWithHoles(outer, holes, new Point2D.Double(2, 5));
+		List<Point2D> vertices = VP.getVertices();
+
+		// the hole casts a shadow from its left edge to the right edge of the square
+		assertTrue(vertices.size() == 8);
+		assertTrue(contains(vertices, new Point2D.Double(4, 4)));
+		assertTrue(contains(vertices, new Point2D.Double(4, 6)));
+		assertTrue(contains(vertices, new Point2D.Double(10, 1)));
+		assertTrue(contains(vertices, new Point2D.Double(10, 9)));
+		assertTrue(CommonUtils.epsEquals(area(vertices), 70));
+	}
+
+	@Test
+	public void collinearVertices() {
+		CCWPolygon outer = square(0, 0, 10);
+		List<CCWPolygon> holes = Arrays.asList(square(3, 4, 1), square(6, 4, 1));
+
+		// both holes are in line with z, the first one hides the second one completely
+		CCWPolygon VP = VisibilityPolygon.computeVisPolWithHoles(outer, holes, new Point2D.Double(1, 4.5));
+		List<Point2D> vertices = VP.getVertices();
+
+		assertTrue(!contains(vertices, new Point2D.Double(6, 4)));
+		assertTrue(!contains(vertices, new Point2D.Double(6, 5)));
+		assertTrue(contains(vertices, new Point2D.Double(3, 4)));
+		assertTrue(contains(vertices, new Point2D.Double(3, 5)));
+		// shadow from x = 3 (width 1) to x = 10 (width 4.5)
+		assertTrue(CommonUtils.epsEquals(area(vertices), 100 - (1 + 4.5) / 2 * 7));
+	}
+
+	@Test
+	public void withoutHoles() {
+		CCWPolygon outer = square(0, 0, 10);
+		Point2D z = new Point2D.Double(3, 3);
+
+		assertTrue(VisibilityPolygon.computeVisPolWithHoles(outer, Collections.emptyList(), z).getVertices()
+				.equals(VisibilityPolygon.computeVisPol(outer, z).getVertices()));
+	}
+
+	@Test
+	public void invalidViewpoint() {
+		CCWPolygon outer = square(0, 0, 10);
+		List<CCWPolygon> holes = Arrays.asList(square(4, 4, 2));
+
+		// inside of the hole, on its boundary, outside of the outer polygon and on its boundary
+		assertTrue(VisibilityPolygon.computeVisPolWithHoles(outer, holes, new Point2D.Double(5, 5)) == null);
+		assertTrue(VisibilityPolygon.computeVisPolWithHoles(outer, holes, new Point2D.Double(4, 5)) == null);
+		assertTrue(VisibilityPolygon.computeVisPolWithHoles(outer, holes, new Point2D.Double(11, 5)) == null);
+		assertTrue(VisibilityPolygon.computeVisPolWithHoles(outer, holes, new Point2D.Double(0, 5)) == null);
+	}
+}
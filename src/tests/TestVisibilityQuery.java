@@ -0,0 +1,75 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.nonConvexPolygon;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.VisibilityPolygon;
+import visibilityPolygon.VisibilityQuery;
+
+public class TestVisibilityQuery {
+
+	@Test
+	public void interior() {
+		CCWPolygon pol = nonConvexPolygon();
+		Point2D z = new Point2D.Double(4, 4);
+
+		VisibilityQuery query = VisibilityPolygon.computeQuery(pol, z);
+
+		assertTrue(query.isVisible(new Point2D.Double(-1.5, 2.5)));
+		assertTrue(query.isVisible(new Point2D.Double(1, 4)));	// reflex vertex
+		assertTrue(!query.isVisible(new Point2D.Double(-1, 5)));	// behind the reflex vertex
+		assertTrue(!query.isVisible(new Point2D.Double(10, 10)));	// outside of the polygon
+
+		// ray to the right hits edge [(6, 2), (4, 6)] at (5, 4)
+		assertTrue(CommonUtils.epsEquals(query.castRay(1, 0), new Point2D.Double(5, 4)));
+		assertTrue(CommonUtils.epsEquals(query.rayDistance(1, 0), 1));
+		// ray downwards hits the bottom edge
+		assertTrue(CommonUtils.epsEquals(query.rayDistance(0, -3), 2));
+
+		matchesPolygon(pol, z, query);
+	}
+
+	@Test
+	public void onVertexAndEdge() {
+		CCWPolygon pol = nonConvexPolygon();
+
+		// reflex vertex, the ray downwards hits the bottom edge
+		Point2D reflex = new Point2D.Double(1, 4);
+		VisibilityQuery query = VisibilityPolygon.computeQuery(pol, reflex);
+
+		assertTrue(CommonUtils.epsEquals(query.rayDistance(0, -1), 2));
+		assertTrue(!query.isVisible(new Point2D.Double(1, 5)));
+		matchesPolygon(pol, reflex, query);
+
+		// convex vertex and point on the bottom edge
+		for (Point2D z : new Point2D[] { new Point2D.Double(-2, 2), new Point2D.Double(2, 2) }) {
+			query = VisibilityPolygon.computeQuery(pol, z);
+
+			// rays leaving the polygon right away
+			assertTrue(CommonUtils.epsEquals(query.rayDistance(0, -1), 0));
+			assertTrue(CommonUtils.epsEquals(query.castRay(0, -1), z));
+
+			matchesPolygon(pol, z, query);
+		}
+	}
+
+	// compares isVisible with the visibility polygon on a grid of points
+	private static void matchesPolygon(CCWPolygon pol, Point2D z, VisibilityQuery query) {
+		Path2D VP = VisibilityPolygon.computeVisPol(pol, z).getPolygon();
+
+		assertTrue(query.size() == VisibilityPolygon.computeVisPol(pol, z).getVertices().size());
+
+		// grid points avoid the boundary of the visibility polygon
+		for (double x = -2.9713; x < 7; x += 0.1) {
+			for (double y = 1.0137; y < 7; y += 0.1)
+				assertTrue(query.isVisible(x, y) == VP.contains(x, y));
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.nonConvexPolygon;
+import static tests.PolygonFixtures.sameVertices;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityPolygon;
+import visibilityPolygon.VisibilityTracker;
+
+public class TestVisibilityTracker {
+
+	@Test
+	public void trajectory() {
+		PreparedPolygon pol = PreparedPolygon.of(nonConvexPolygon());
+		VisibilityTracker tracker = new VisibilityTracker(pol);
+
+		// from the right part of the polygon below the reflex vertex (1, 4) to its left part and back
+		List<Point2D> trajectory = new ArrayList<>();
+		for (int i = 0; i <= 100; i++)
+			trajectory.add(new Point2D.Double(4.5 - 0.06 * i, 3 + 0.005 * i));
+		for (int i = 100; i >= 0; i--)
+			trajectory.add(new Point2D.Double(4.5 - 0.06 * i, 3 + 0.005 * i));
+
+		List<CCWPolygon> VPs = tracker.updateAll(trajectory);
+
+		for (int i = 0; i < trajectory.size(); i++)
+			assertTrue(sameVertices(VPs.get(i), VisibilityPolygon.computeVisPol(pol, trajectory.get(i))));
+
+		assertTrue(tracker.getUpdates() == trajectory.size());
+		// the structure only changes when the window at (1, 4) appears or disappears
+		assertTrue(tracker.getRecomputations() < trajectory.size() / 4);
+	}
+
+	@Test
+	public void outside() {
+		VisibilityTracker tracker = new VisibilityTracker(PreparedPolygon.of(nonConvexPolygon()));
+
+		assertTrue(tracker.update(new Point2D.Double(4, 3)) != null);
+		assertTrue(tracker.update(new Point2D.Double(4, 1.5)) == null);
+		assertTrue(tracker.update(new Point2D.Double(4, 3.1)) != null);
+	}
+}
@@ -0,0 +1,88 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+import static tests.PolygonFixtures.area;
+import static tests.PolygonFixtures.contains;
+import static tests.PolygonFixtures.lShape;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+import org.junit.Test;
+
+import visibilityPolygon.CCWPolygon;
+import visibilityPolygon.CommonUtils;
+import visibilityPolygon.PreparedPolygon;
+import visibilityPolygon.VisibilityPolygon;
+
+public class TestVisibilityWeakVis {
+
+	@Test
+	public void square() {
+		CCWPolygon pol = PolygonFixtures.square(0, 0, 10);
+
+		// an edge and a diagonal see the whole square
+		List<Point2D> vertices = VisibilityPolygon.computeWeakVisPol(pol, new Point2D.Double(0, 0), new Point2D.Double(10, 0)).getVertices();
+		assertTrue(CommonUtils.epsEquals(area(vertices), 100));
+
+		vertices = VisibilityPolygon.computeWeakVisPol(pol, new Point2D.Double(2, 2), new Point2D.Double(8, 8)).getVertices();
+		assertTrue(vertices.size() == 4);
+		assertTrue(CommonUtils.epsEquals(area(vertices), 100));
+	}
+
+	@Test
+	public void door() {
+		CCWPolygon pol = lShape();
+
+		// a door at the end of the horizontal arm sees into the vertical arm up to the line through (10, 0) and the corner (2, 2)
+		List<Point2D> vertices = VisibilityPolygon.computeWeakVisPol(pol, new Point2D.Double(10, 0), new Point2D.Double(10, 2)).getVertices();
+
+		assertTrue(contains(vertices, new Point2D.Double(0, 2.5)));
+		assertTrue(contains(vertices, new Point2D.Double(2, 2)));
+		assertTrue(!contains(vertices, new Point2D.Double(0, 10)));
+		assertTrue(CommonUtils.epsEquals(area(vertices), 20.5));
+
+		// the door as part of the edge, the endpoint (10, 0) is the same
+		vertices = VisibilityPolygon.computeWeakVisPol(PreparedPolygon.of(pol), new Point2D.Double(10, 1), new Point2D.Double(10, 0)).getVertices();
+		assertTrue(contains(vertices, new Point2D.Double(0, 2.5)));
+		assertTrue(CommonUtils.epsEquals(area(vertices), 20.5));
+	}
+
+	@Test
+	public void interiorSegment() {
+		CCWPolygon pol = lShape();
+
+		// the endpoint (1, 5) sees furthest into the horizontal arm
+		List<Point2D> vertices = VisibilityPolygon.computeWeakVisPol(pol, new Point2D.Double(1, 5), new Point2D.Double(1, 6)).getVertices();
+
+		assertTrue(contains(vertices, new Point2D.Double(8.0 / 3, 0)));
+		assertTrue(contains(vertices, new Point2D.Double(0, 10)));
+		assertTrue(!contains(vertices, new Point2D.Double(10, 0)));
+		assertTrue(CommonUtils.epsEquals(area(vertices), 20 + 2.0 / 3));
+
+		// a segment of length 0 is a viewpoint
+		Point2D z = new Point2D.Double(1, 5);
+		assertTrue(CommonUtils.epsEquals(area(VisibilityPolygon.computeWeakVisPol(pol, z, z).getVertices()),
+				area(VisibilityPolygon.computeVisPol(pol, z).getVertices())));
+	}
+
+	@Test
+	public void reflexEndpoint() {
+		CCWPolygon pol = lShape();
+
+		// the edge ends at the reflex vertex (2, 2), the vertical arm is seen from the vertex only, hence the whole polygon is visible
+		List<Point2D> vertices = VisibilityPolygon.computeWeakVisPol(pol, new Point2D.Double(10, 2), new Point2D.Double(2, 2)).getVertices();
+		assertTrue(CommonUtils.epsEquals(area(vertices), 36));
+	}
+
+	@Test
+	public void invalidInput() {
+		CCWPolygon pol = lShape();
+
+		// endpoint outside
+		assertTrue(VisibilityPolygon.computeWeakVisPol(pol, new Point2D.Double(1, 1), new Point2D.Double(5, 5)) == null);
+
+		// both endpoints inside, the segment leaves the polygon
+		assertTrue(VisibilityPolygon.computeWeakVisPol(pol, new Point2D.Double(1, 5), new Point2D.Double(5, 1)) == null);
+	}
+}
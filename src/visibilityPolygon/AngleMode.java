@@ -0,0 +1,24 @@
+package visibilityPolygon;
+
+/**
+ * Determines how angles around the viewpoint are measured while computing a visibility polygon.
+ */
+public enum AngleMode {
+	/*
+	 * Polar angles in radians (atan2), the polygon is rotated such that v0 lies on the x axis.
+	 */
+	RADIANS(2 * Math.PI),
+	
+	/*
+	 * Diamond angles in [0, 4) measured relative to the direction of v0, computed from
+	 * Cartesian coordinates without trigonometric functions or square roots.
+	 */
+	PSEUDO(4);
+	
+	// angle of a full turn
+	final double period;
+	
+	private AngleMode(double period) {
+		this.period = period;
+	}
+}
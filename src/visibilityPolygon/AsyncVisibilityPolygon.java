@@ -0,0 +1,208 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous front end of VisibilityPolygon.computeVisPol.
+ *
+ * Queries return immediately with a CompletableFuture, the computations run on an executor.
+ * At most maxInFlight computations are handed to the executor at the same time, further queries
+ * wait in a queue (without occupying a thread) until a running computation finished.
+ *
+ * Usage example:
+
+ 		AsyncVisibilityPolygon async = new AsyncVisibilityPolygon(Runtime.getRuntime().availableProcessors());
+
+ 		async.computeVisPol(pol, z).thenAccept(VP -> ...);
+ */
+public class AsyncVisibilityPolygon {
+
+	private final Executor executor;
+	private final int maxInFlight;
+
+	// computations that were handed to the executor and did not finish yet
+	private final AtomicInteger inFlight = new AtomicInteger();
+	// computations waiting for one of the maxInFlight slots
+	private final Queue<Pending<?>> pending = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Runs the computations on virtual threads if the JVM supports them (Java 21+), otherwise on the common fork/join pool.
+	 * @param maxInFlight Maximum number of computations running at the same time.
+	 */
+	public AsyncVisibilityPolygon(int maxInFlight) {
+		this(DefaultExecutor.instance, maxInFlight);
+	}
+
+	/**
+	 * @param executor Executor running the computations.
+	 * @param maxInFlight Maximum number of computations handed to the executor at the same time.
+	 */
+	public AsyncVisibilityPolygon(Executor executor, int maxInFlight) {
+		if (maxInFlight < 1)
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Computes visibility polygon from one viewpoint asynchronously.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Future of the visibility polygon in CCW order.
+	 */
+	public CompletableFuture<CCWPolygon> computeVisPol(CCWPolygon pol, Point2D z) {
+		return computeVisPol(pol, z, AngleMode.RADIANS);
+	}
+
+	/**
+	 * Computes visibility polygon from one viewpoint asynchronously.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param mode How angles around z are measured.
+	 * @return Future of the visibility polygon in CCW order.
+	 */
+	public CompletableFuture<CCWPolygon> computeVisPol(CCWPolygon pol, Point2D z, AngleMode mode) {
+		return submit(() -> VisibilityPolygon.computeVisPol(pol, z, mode));
+	}
+
+	/**
+	 * Computes the visibility polygons from each of the viewpoints asynchronously.
+	 * The viewpoints are split into at most maxInFlight chunks which are computed concurrently.
+	 * @param inputPol The polygon in which the viewPoints are contained.
+	 * @param viewPoints The viewpoints from which we are computing the visibility polygon.
+	 * @return Future of the visibility polygons for the individual viewPoints (same order as viewPoints).
+	 */
+	public CompletableFuture<List<CCWPolygon>> computeVisPol(CCWPolygon inputPol, List<Point2D> viewPoints) {
+		return computeVisPol(inputPol, viewPoints, AngleMode.RADIANS);
+	}
+
+	/**
+	 * Computes the visibility polygons from each of the viewpoints asynchronously.
+	 * The viewpoints are split into at most maxInFlight chunks which are computed concurrently.
+	 * @param inputPol The polygon in which the viewPoints are contained.
+	 * @param viewPoints The viewpoints from which we are computing the visibility polygon.
+	 * @param mode How angles around the viewpoints are measured.
+	 * @return Future of the visibility polygons for the individual viewPoints (same order as viewPoints).
+	 */
+	public CompletableFuture<List<CCWPolygon>> computeVisPol(CCWPolygon inputPol, List<Point2D> viewPoints, AngleMode mode) {
+		List<Point2D> zs = new ArrayList<>(viewPoints);
+		int chunks = Math.max(1, Math.min(zs.size(), maxInFlight));
+
+		List<CompletableFuture<List<CCWPolygon>>> futures = new ArrayList<>(chunks);
+
+		for (int c = 0; c < chunks; c++) {
+			List<Point2D> chunk = zs.subList(zs.size() * c / chunks, zs.size() * (c + 1) / chunks);
+			futures.add(submit(() -> VisibilityPolygon.computeVisPol(inputPol, chunk, mode)));
+		}
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+			// computeVisPol returns null for polygons with less than 3 vertices
+			if (futures.get(0).join() == null)
+				return null;
+
+			List<CCWPolygon> ret = new ArrayList<>(zs.size());
+			for (CompletableFuture<List<CCWPolygon>> f : futures)
+				ret.addAll(f.join());
+
+			return ret;
+		});
+	}
+
+	/**
+	 * @return Number of computations handed to the executor that did not finish yet.
+	 */
+	public int inFlight() {
+		return inFlight.get();
+	}
+
+	// queues a computation and starts it as soon as one of the maxInFlight slots is free
+	private <T> CompletableFuture<T> submit(Supplier<T> computation) {
+		Pending<T> task = new Pending<>(computation);
+
+		pending.add(task);
+		startPending();
+
+		return task.future;
+	}
+
+	// hands queued computations to the executor while slots are free
+	private void startPending() {
+		while (!pending.isEmpty()) {
+			int curr = inFlight.get();
+
+			if (curr >= maxInFlight)
+				return;	// a running computation starts the next one when it finishes
+
+			if (!inFlight.compareAndSet(curr, curr + 1))
+				continue;
+
+			Pending<?> task = pending.poll();
+
+			if (task == null) {
+				// another thread took the last computation, gives the slot back and checks again
+				inFlight.decrementAndGet();
+				continue;
+			}
+
+			try {
+				executor.execute(() -> {
+					try {
+						task.run();
+					} finally {
+						inFlight.decrementAndGet();
+						startPending();
+					}
+				});
+			} catch (RuntimeException e) {
+				// executor rejected the computation
+				inFlight.decrementAndGet();
+				task.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	// queued computation and the future receiving its result
+	private static class Pending<T> {
+		final Supplier<T> computation;
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Pending(Supplier<T> computation) {
+			this.computation = computation;
+		}
+
+		void run() {
+			try {
+				future.complete(computation.get());
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		}
+	}
+
+	// executor used if none is given, created on first use
+	private static class DefaultExecutor {
+		static final Executor instance = create();
+
+		private static Executor create() {
+			try {
+				// looked up reflectively, virtual threads are only available since Java 21
+				Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (Executor) m.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				return ForkJoinPool.commonPool();
+			}
+		}
+	}
+}
@@ -75,6 +75,26 @@ public class CCWPolygon {
 		return true;
 	}
 	
+	/**
+	 * Checks if p lies in the polygon by counting the edges crossed by a horizontal ray from p, in O(n) time.
+	 * Points on the boundary are considered inside.
+	 * For many points in the same polygon PreparedPolygon.containsPoint answers in O(log n) time.
+	 * @param p Point to locate.
+	 * @return true iff. p lies in the interior or on the boundary of the polygon.
+	 */
+	public boolean containsPoint(Point2D p) {
+		int n = vertices.size();
+		double[] x = new double[n];
+		double[] y = new double[n];
+		
+		for (int i = 0; i < n; i++) {
+			x[i] = vertices.get(i).getX();
+			y[i] = vertices.get(i).getY();
+		}
+		
+		return PointInPolygon.crossingTest(x, y, p.getX(), p.getY());
+	}
+	
 	/**
 	 * Translates polygon such that p becomes the origin.
 	 * @param p New origin upon which we shift.
@@ -5,10 +5,11 @@ import java.awt.geom.Point2D;
 public class CommonUtils {
 
 	// constants
-	static double PI = Math.PI;
-	static double PI2 = 2 * PI;
+	static final double PI = Math.PI;
+	static final double PI2 = 2 * PI;
 	public static double Eps = 0.0000000001;
-	static Point2D origin2D = new Point2D.Double(0, 0);
+	// shared by all threads, must never be modified
+	static final Point2D origin2D = new Point2D.Double(0, 0);
 
 	/** Checks if a and b are approximately equal to account for floating point precision limitations. 
 	 * 
@@ -35,6 +36,11 @@ public class CommonUtils {
 		return epsEquals(a.getX(), b.getX(), Eps) && epsEquals(a.getY(), b.getY(), Eps);
 	}
 	
+	// same as epsEquals(Point2D, Point2D) for points given by their coordinates
+	public static boolean epsEquals(double ax, double ay, double bx, double by) {
+		return epsEquals(ax, bx, Eps) && epsEquals(ay, by, Eps);
+	}
+	
 	public static boolean epsNEquals(double a, double b) {
 		return !epsEquals(a, b);
 	}
@@ -77,32 +83,53 @@ public class CommonUtils {
 //    */
 	// Determines the turn orientation between three given points.
 	public static Orientation pointTurn(Point2D x, Point2D y, Point2D z) {
-		int sign = (int) Math.signum(crossProduct(x, y, z));
-		
-		switch (sign) {
-		case 1:
-			return Orientation.COUNTERCLOCKWISE;
-		case -1:
-			return Orientation.CLOCKWISE;
-		case 0:
-			return Orientation.COLLINEAR;
-		default:
-			assert(false); // unreachable
-			return null;
-		}
+		return pointTurn(x.getX(), x.getY(), y.getX(), y.getY(), z.getX(), z.getY());
+	}
+	
+	// Determines the turn orientation between three points given by their coordinates.
+	// The orientation is exact (see Predicates.orient2d), no tolerance is applied.
+	public static Orientation pointTurn(double ax, double ay, double bx, double by, double cx, double cy) {
+		return Predicates.orientation(ax, ay, bx, by, cx, cy);
 	}
 	 
 	// returns magnitude of the resulting vector
 	public static double crossProduct(Point2D a, Point2D b, Point2D c) {
-		return (b.getX() - a.getX()) * (c.getY() - a.getY()) - (b.getY() - a.getY()) * (c.getX() - a.getX());
+		return crossProduct(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+	}
+	
+	public static double crossProduct(double ax, double ay, double bx, double by, double cx, double cy) {
+		return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+	}
+	
+	/**
+	 * Diamond angle of the direction (x, y), a pseudo-angle that increases monotonically with the polar angle.
+	 * Directions at angle 0, PI/2, PI and 3*PI/2 are mapped to 0, 1, 2 and 3, opposite directions differ by 2.
+	 * @return Pseudo-angle in [0, 4), 0 for the zero vector.
+	 */
+	public static double pseudoAngle(double x, double y) {
+		if (x == 0 && y == 0)
+			return 0;
+		
+		if (y >= 0)
+			return x >= 0 ? y / (x + y) : 1 - x / (-x + y);
+		else
+			return x < 0 ? 2 - y / (-x - y) : 3 + x / (x - y);
 	}
 	
 	public static double squaredLengthBA(Point2D a, Point2D b) {
-		return (b.getX() - a.getX()) * (b.getX() - a.getX()) + (b.getY() - a.getY()) * (b.getY() - a.getY());
+		return squaredLengthBA(a.getX(), a.getY(), b.getX(), b.getY());
+	}
+	
+	public static double squaredLengthBA(double ax, double ay, double bx, double by) {
+		return (bx - ax) * (bx - ax) + (by - ay) * (by - ay);
 	}
 	
 	public static double dotProduct(Point2D a, Point2D b, Point2D c) {
-		return (c.getX() - a.getX()) * (b.getX() - a.getX()) + (c.getY() - a.getY()) * (b.getY() - a.getY());
+		return dotProduct(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+	}
+	
+	public static double dotProduct(double ax, double ay, double bx, double by, double cx, double cy) {
+		return (cx - ax) * (bx - ax) + (cy - ay) * (by - ay);
 	}
 	 
 	public static class Pair<F, S> {
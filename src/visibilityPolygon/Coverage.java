@@ -0,0 +1,851 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Coverage of a simple polygon by a set of guards: the area seen by exactly k guards, the pockets seen by no guard
+ * and the number of guards seeing a point.
+ *
+ * The visibility polygons of the guards are overlaid with the polygon in a vertical decomposition instead of boolean operations
+ * on polygons: the x coordinates of all vertices split the plane into slabs, slabs are split further at crossings of edges,
+ * hence the edges within a slab are ordered by their y coordinates. The trapezoids between consecutive edges get their
+ * multiplicity by counting the edges below them (bottom edges of a CCW polygon run from left to right, top edges back).
+ * Edges coinciding up to rounding errors (edges of visibility polygons along the boundary) are counted as one.
+ * The visibility polygons are computed in parallel, the slabs are swept in parallel and the results of neighboring
+ * ranges of slabs are merged pairwise (tree reduction).
+ * All results are computed before build returns and the getters hand out new CCWPolygon instances on every call,
+ * so callers may modify them and threads may read one Coverage concurrently.
+ *
+ * Usage example:
+
+		Coverage coverage = VisibilityPolygon.computeCoverage(pol, guards);
+
+		double uncovered = coverage.getUncoveredArea();
+		for (CCWPolygon pocket : coverage.getUncoveredPockets())
+			...
+ */
+public final class Coverage {
+
+	// visibility polygon of each guard, null for guards outside of the polygon
+	private final List<CCWPolygon> visPolygons;
+	private final VisibilityQuery[] queries;
+
+	// area seen by exactly k guards
+	private final double[] areas;
+
+	private final List<CCWPolygon> pockets;
+
+	private Coverage(List<CCWPolygon> visPolygons, VisibilityQuery[] queries, double[] areas, List<CCWPolygon> pockets) {
+		this.visPolygons = visPolygons;
+		this.queries = queries;
+		this.areas = areas;
+		this.pockets = pockets;
+	}
+
+	// number of guards, including the ones outside of the polygon
+	public int getGuardCount() {
+		return visPolygons.size();
+	}
+
+	// copies of the visibility polygons in the order of the guards, null for guards outside of the polygon
+	public List<CCWPolygon> getVisibilityPolygons() {
+		return copy(visPolygons);
+	}
+
+	// area of the polygon
+	public double getArea() {
+		double ret = 0;
+		for (double area : areas)
+			ret += area;
+
+		return ret;
+	}
+
+	// area seen by at least one guard
+	public double getCoveredArea() {
+		return getArea() - areas[0];
+	}
+
+	// area seen by no guard
+	public double getUncoveredArea() {
+		return areas[0];
+	}
+
+	// area seen by exactly k guards
+	public double getArea(int k) {
+		return (k >= 0 && k < areas.length) ? areas[k] : 0;
+	}
+
+	// largest number of guards seeing a region of positive area
+	public int getMaxMultiplicity() {
+		int ret = 0;
+		for (int k = 1; k < areas.length; k++) {
+			if (areas[k] > CommonUtils.Eps)
+				ret = k;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @return Number of guards seeing p, in O(g log n) time for g guards.
+	 */
+	public int getMultiplicity(Point2D p) {
+		int ret = 0;
+		for (VisibilityQuery query : queries) {
+			if (query != null && query.isVisible(p.getX(), p.getY()))
+				ret++;
+		}
+
+		return ret;
+	}
+
+	// copies of the connected regions seen by no guard in CCW order, slivers along the boundary (rounding errors) are left out
+	public List<CCWPolygon> getUncoveredPockets() {
+		return copy(pockets);
+	}
+
+	// new polygons with new vertices, nulls are kept
+	private static List<CCWPolygon> copy(List<CCWPolygon> polygons) {
+		List<CCWPolygon> ret = new ArrayList<>(polygons.size());
+
+		for (CCWPolygon pol : polygons) {
+			if (pol == null) {
+				ret.add(null);
+				continue;
+			}
+
+			List<Point2D> vertices = new ArrayList<>(pol.getVertices().size());
+			for (Point2D v : pol.getVertices())
+				vertices.add(new Point2D.Double(v.getX(), v.getY()));
+
+			ret.add(new CCWPolygon(vertices));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @param pol Valid polygon.
+	 * @param guards Guards, the ones outside of the polygon see nothing.
+	 * @param pool Pool executing the computations.
+	 */
+	static Coverage build(PreparedPolygon pol, List<Point2D> guards, ForkJoinPool pool) {
+		List<CCWPolygon> visPolygons = VisibilityPolygon.computeVisPolParallel(pol, guards, AngleMode.RADIANS, pool);
+		int g = visPolygons.size();
+
+		int count = pol.size();
+		for (CCWPolygon VP : visPolygons) {
+			if (VP != null)
+				count += VP.getVertices().size();
+		}
+
+		Sweep sweep = new Sweep(count, g);
+		sweep.addPolygon(pol.x, pol.y, pol.size(), false);
+
+		VisibilityQuery[] queries = new VisibilityQuery[g];
+
+		for (int i = 0; i < g; i++) {
+			CCWPolygon VP = visPolygons.get(i);
+			if (VP == null)
+				continue;
+
+			List<Point2D> vertices = VP.getVertices();
+			int m = vertices.size();
+			double zx = guards.get(i).getX(), zy = guards.get(i).getY();
+			double[] x = new double[m], y = new double[m];
+
+			for (int k = 0; k < m; k++) {
+				x[k] = vertices.get(k).getX();
+				y[k] = vertices.get(k).getY();
+			}
+
+			sweep.addPolygon(x, y, m, true);
+
+			// the query expects the vertices relative to the guard
+			for (int k = 0; k < m; k++) {
+				x[k] -= zx;
+				y[k] -= zy;
+			}
+
+			queries[i] = new VisibilityQuery(zx, zy, x, y, m);
+		}
+
+		sweep.prepare();
+
+		// ranges of at most minRange slabs are swept sequentially
+		int minRange = Math.max(1, sweep.slabs / (8 * pool.getParallelism()));
+
+		Cells cells = (sweep.slabs == 0) ? new Cells(g) : pool.invoke(new SlabTask(sweep, 0, sweep.slabs, minRange));
+
+		return new Coverage(Collections.unmodifiableList(visPolygons), queries, cells.areas, Collections.unmodifiableList(cells.pockets()));
+	}
+
+	/**
+	 * Non-vertical edges of the polygon and of the visibility polygons from left to right, and the slabs between their x coordinates.
+	 */
+	private static final class Sweep {
+		final double[] x0, y0, x1, y1;
+
+		// +1 for bottom edges, -1 for top edges, of the polygon and of the visibility polygons respectively
+		final int[] polWeight, visWeight;
+		int size;
+
+		final int guards;
+
+		// boundaries of the slabs, the edge e spans the slabs first[e] to last[e] - 1
+		double[] xs;
+		int[] first, last;
+		int slabs;
+
+		// edges sorted by their first slab
+		int[] byFirst;
+
+		Sweep(int capacity, int guards) {
+			x0 = new double[capacity];
+			y0 = new double[capacity];
+			x1 = new double[capacity];
+			y1 = new double[capacity];
+			polWeight = new int[capacity];
+			visWeight = new int[capacity];
+			this.guards = guards;
+		}
+
+		void addPolygon(double[] x, double[] y, int m, boolean visPol) {
+			for (int i = 0; i < m; i++) {
+				int j = (i + 1) % m;
+
+				// vertical edges don't bound any trapezoid
+				if (x[i] == x[j])
+					continue;
+
+				int left = (x[i] < x[j]) ? i : j, right = i + j - left;
+				int weight = (left == i) ? 1 : -1;
+
+				x0[size] = x[left];
+				y0[size] = y[left];
+				x1[size] = x[right];
+				y1[size] = y[right];
+				polWeight[size] = visPol ? 0 : weight;
+				visWeight[size] = visPol ? weight : 0;
+				size++;
+			}
+		}
+
+		void prepare() {
+			double[] all = new double[2 * size];
+			System.arraycopy(x0, 0, all, 0, size);
+			System.arraycopy(x1, 0, all, size, size);
+			Arrays.sort(all);
+
+			int k = 0;
+			for (int i = 0; i < all.length; i++) {
+				if (k == 0 || all[i] != all[k - 1])
+					all[k++] = all[i];
+			}
+
+			xs = Arrays.copyOf(all, k);
+			slabs = Math.max(0, k - 1);
+
+			first = new int[size];
+			last = new int[size];
+			for (int e = 0; e < size; e++) {
+				first[e] = Arrays.binarySearch(xs, x0[e]);
+				last[e] = Arrays.binarySearch(xs, x1[e]);
+			}
+
+			// counting sort by the first slab
+			int[] offsets = new int[k + 1];
+			for (int e = 0; e < size; e++)
+				offsets[first[e] + 1]++;
+			for (int i = 0; i < k; i++)
+				offsets[i + 1] += offsets[i];
+
+			byFirst = new int[size];
+			for (int e = 0; e < size; e++)
+				byFirst[offsets[first[e]]++] = e;
+		}
+
+		// y coordinate of edge e at px, exact at its endpoints so that trapezoids of neighboring slabs share their corners
+		double y(int e, double px) {
+			if (px == x0[e])
+				return y0[e];
+			if (px == x1[e])
+				return y1[e];
+
+			return y0[e] + (px - x0[e]) * (y1[e] - y0[e]) / (x1[e] - x0[e]);
+		}
+
+		/**
+		 * Sweeps the slabs from to to - 1, the edges crossing a slab are kept in a list updated from slab to slab.
+		 */
+		Cells sweep(int from, int to) {
+			Cells cells = new Cells(guards);
+			Slab slab = new Slab(this, cells);
+
+			int[] active = new int[16];
+			int k = 0;
+
+			// edges crossing the first slab, but starting before it
+			for (int e = 0; e < size; e++) {
+				if (first[e] < from && last[e] > from) {
+					active = ensure(active, k + 1);
+					active[k++] = e;
+				}
+			}
+
+			int next = 0;
+			while (next < size && first[byFirst[next]] < from)
+				next++;
+
+			for (int s = from; s < to; s++) {
+				int m = 0;
+				for (int i = 0; i < k; i++) {
+					if (last[active[i]] > s)
+						active[m++] = active[i];
+				}
+				k = m;
+
+				while (next < size && first[byFirst[next]] == s) {
+					active = ensure(active, k + 1);
+					active[k++] = byFirst[next++];
+				}
+
+				slab.sweep(xs[s], xs[s + 1], active, k);
+			}
+
+			return cells;
+		}
+	}
+
+	/**
+	 * Trapezoids of one slab. The edges are grouped into bundles of coinciding edges, which are ordered by their y coordinates
+	 * at the left side of the slab. Pairs of bundles in a different order at the right side cross within the slab, the order is
+	 * updated at these crossings from left to right. A trapezoid lasts from the crossing (or side of the slab) where its
+	 * bundles became neighbors to the crossing where they stop being neighbors, hence a crossing takes O(1) time.
+	 * Scratch arrays are reused from slab to slab.
+	 */
+	private static final class Slab {
+		final Sweep sweep;
+		final Cells cells;
+
+		double left, right;
+
+		// y coordinates of the active edges at both sides of the slab
+		double[] yl = new double[16], yr = new double[16];
+
+		// bundles: summed weights, y coordinates at both sides of the slab
+		int[] polWeight = new int[16], visWeight = new int[16];
+		double[] bl = new double[16], br = new double[16];
+
+		// bundle at each position (bottom to top), position of each bundle
+		int[] order = new int[16], position = new int[16];
+
+		// weights summed up to each position, hence of the trapezoid above it, and the t where that trapezoid started
+		int[] pol = new int[16], vis = new int[16];
+		double[] start = new double[16];
+
+		// crossings: fraction t of the width of the slab, lower and upper bundle at the left side
+		double[] crossT = new double[16];
+		int[] crossP = new int[16], crossQ = new int[16], byT = new int[16];
+
+		int[] tmp = new int[16];
+
+		Slab(Sweep sweep, Cells cells) {
+			this.sweep = sweep;
+			this.cells = cells;
+		}
+
+		void sweep(double left, double right, int[] active, int k) {
+			this.left = left;
+			this.right = right;
+			ensure(k);
+
+			for (int i = 0; i < k; i++) {
+				yl[i] = sweep.y(active[i], left);
+				yr[i] = sweep.y(active[i], right);
+				order[i] = i;
+			}
+
+			sort(order, 0, k, yl, yr, tmp);
+
+			// coinciding edges (up to rounding errors) form bundles, edges of other bundles meeting them at one side may come in between
+			int n = 0;
+			for (int j = 0; j < k; j++) {
+				int i = order[j], e = active[i], b = n - 1;
+
+				while (b >= 0 && yl[i] - bl[b] <= CommonUtils.Eps && Math.abs(yr[i] - br[b]) > CommonUtils.Eps)
+					b--;
+
+				if (b >= 0 && yl[i] - bl[b] <= CommonUtils.Eps) {
+					polWeight[b] += sweep.polWeight[e];
+					visWeight[b] += sweep.visWeight[e];
+				} else {
+					polWeight[n] = sweep.polWeight[e];
+					visWeight[n] = sweep.visWeight[e];
+					bl[n] = yl[i];
+					br[n] = yr[i];
+					n++;
+				}
+			}
+
+			// bundles without weight are left out
+			int m = 0;
+			for (int b = 0; b < n; b++) {
+				if (polWeight[b] == 0 && visWeight[b] == 0)
+					continue;
+
+				polWeight[m] = polWeight[b];
+				visWeight[m] = visWeight[b];
+				bl[m] = bl[b];
+				br[m] = br[b];
+				m++;
+			}
+			n = m;
+
+			// each pair swapped by insertion sort on the right side crosses within the slab, crossings are kept as the fraction t
+			// of the width of the slab, which stays exact near the left side where bundles starting at the same vertex cross
+			int c = 0;
+			for (int i = 0; i < n; i++)
+				order[i] = i;
+
+			for (int i = 1; i < n; i++) {
+				for (int j = i; j > 0 && br[order[j]] < br[order[j - 1]]; j--) {
+					int p = order[j - 1], q = order[j];
+					double dl = bl[q] - bl[p], dr = br[q] - br[p];
+					double t = dl / (dl - dr);
+
+					// a crossing rounded to the left side still swaps the bundles, one rounded to the right side is left out
+					if (t < 1) {
+						if (c == crossT.length)
+							growCrossings(2 * c);
+
+						crossT[c] = Math.max(t, 0);
+						crossP[c] = p;
+						crossQ[c] = q;
+						byT[c] = c;
+						c++;
+					}
+
+					order[j - 1] = q;
+					order[j] = p;
+				}
+			}
+
+			sort(byT, 0, c, crossT, crossT, tmp);
+
+			// bundles in the order at the left side
+			for (int i = 0; i < n; i++) {
+				order[i] = i;
+				position[i] = i;
+				pol[i] = ((i > 0) ? pol[i - 1] : 0) + polWeight[i];
+				vis[i] = ((i > 0) ? vis[i - 1] : 0) + visWeight[i];
+				start[i] = 0;
+			}
+
+			// crossings at the same t are handled together: the trapezoids around the bundles involved end,
+			// the bundles are sorted by their y coordinates right of the crossings and new trapezoids start
+			for (int f = 0; f < c; ) {
+				double t = crossT[byT[f]];
+				int lo = n, hi = -1, g = f;
+
+				for (; g < c && crossT[byT[g]] == t; g++) {
+					lo = Math.min(lo, Math.min(position[crossP[byT[g]]], position[crossQ[byT[g]]]));
+					hi = Math.max(hi, Math.max(position[crossP[byT[g]]], position[crossQ[byT[g]]]));
+				}
+
+				int from = Math.max(lo - 1, 0), to = Math.min(hi, n - 2);
+				for (int i = from; i <= to; i++)
+					close(i, t);
+
+				double mid = (t + ((g < c) ? crossT[byT[g]] : 1)) / 2;
+				for (int i = lo + 1; i <= hi; i++) {
+					for (int j = i; j > lo && below(order[j], order[j - 1], mid); j--) {
+						int b = order[j];
+						order[j] = order[j - 1];
+						order[j - 1] = b;
+					}
+				}
+
+				for (int i = lo; i <= hi; i++) {
+					position[order[i]] = i;
+					pol[i] = ((i > 0) ? pol[i - 1] : 0) + polWeight[order[i]];
+					vis[i] = ((i > 0) ? vis[i - 1] : 0) + visWeight[order[i]];
+				}
+
+				for (int i = from; i <= to; i++)
+					start[i] = t;
+
+				f = g;
+			}
+
+			for (int i = 0; i + 1 < n; i++)
+				close(i, 1);
+		}
+
+		/**
+		 * Ends the trapezoid above position i at t: its area is added to the areas by multiplicity, uncovered ones are kept.
+		 */
+		private void close(int i, double t) {
+			double t0 = start[i];
+			if (pol[i] <= 0 || t == t0)
+				return;
+
+			int lower = order[i], upper = order[i + 1];
+			double x0 = x(t0), x1 = x(t);
+			double yb0 = y(lower, t0), yb1 = y(lower, t), yt0 = y(upper, t0), yt1 = y(upper, t);
+			double h0 = yt0 - yb0, h1 = yt1 - yb1;
+
+			cells.areas[Math.max(0, Math.min(vis[i], cells.areas.length - 1))] += (x1 - x0) * (h0 + h1) / 2;
+
+			if (vis[i] <= 0 && (h0 > CommonUtils.Eps || h1 > CommonUtils.Eps))
+				cells.add(x0, x1, yb0, yb1, yt0, yt1);
+		}
+
+		// whether bundle a is below bundle b at t, the difference is taken first as bundles close to each other cross close to t
+		private boolean below(int a, int b, double t) {
+			double dl = bl[a] - bl[b], dr = br[a] - br[b];
+			return dl + (dr - dl) * t < 0;
+		}
+
+		private double x(double t) {
+			return (t == 1) ? right : left + t * (right - left);
+		}
+
+		// y coordinate of bundle b at t
+		private double y(int b, double t) {
+			return (t == 1) ? br[b] : bl[b] + t * (br[b] - bl[b]);
+		}
+
+		private void ensure(int k) {
+			if (yl.length >= k)
+				return;
+
+			int capacity = Math.max(k, 2 * yl.length);
+			yl = new double[capacity];
+			yr = new double[capacity];
+			polWeight = new int[capacity];
+			visWeight = new int[capacity];
+			bl = new double[capacity];
+			br = new double[capacity];
+			order = new int[capacity];
+			position = new int[capacity];
+			pol = new int[capacity];
+			vis = new int[capacity];
+			start = new double[capacity];
+			tmp = new int[Math.max(capacity, tmp.length)];
+		}
+
+		private void growCrossings(int capacity) {
+			crossT = Arrays.copyOf(crossT, capacity);
+			crossP = Arrays.copyOf(crossP, capacity);
+			crossQ = Arrays.copyOf(crossQ, capacity);
+			byT = Arrays.copyOf(byT, capacity);
+			tmp = new int[Math.max(capacity, tmp.length)];
+		}
+	}
+
+	/**
+	 * Result of sweeping a range of slabs: the area seen by exactly k guards and the uncovered trapezoids.
+	 * Trapezoid i spans x0[i] to x1[i], its bottom edge runs from yb0[i] to yb1[i], its top edge from yt0[i] to yt1[i].
+	 */
+	private static final class Cells {
+		final double[] areas;
+
+		double[] x0 = new double[16], x1 = new double[16], yb0 = new double[16], yb1 = new double[16], yt0 = new double[16], yt1 = new double[16];
+		int size;
+
+		Cells(int guards) {
+			areas = new double[guards + 1];
+		}
+
+		void add(double ax0, double ax1, double ayb0, double ayb1, double ayt0, double ayt1) {
+			if (size == x0.length)
+				grow(2 * size);
+
+			x0[size] = ax0;
+			x1[size] = ax1;
+			yb0[size] = ayb0;
+			yb1[size] = ayb1;
+			yt0[size] = ayt0;
+			yt1[size] = ayt1;
+			size++;
+		}
+
+		// appends the trapezoids of the slabs right of these
+		Cells merge(Cells other) {
+			for (int k = 0; k < areas.length; k++)
+				areas[k] += other.areas[k];
+
+			if (size + other.size > x0.length)
+				grow(size + other.size);
+
+			System.arraycopy(other.x0, 0, x0, size, other.size);
+			System.arraycopy(other.x1, 0, x1, size, other.size);
+			System.arraycopy(other.yb0, 0, yb0, size, other.size);
+			System.arraycopy(other.yb1, 0, yb1, size, other.size);
+			System.arraycopy(other.yt0, 0, yt0, size, other.size);
+			System.arraycopy(other.yt1, 0, yt1, size, other.size);
+			size += other.size;
+
+			return this;
+		}
+
+		private void grow(int capacity) {
+			x0 = Arrays.copyOf(x0, capacity);
+			x1 = Arrays.copyOf(x1, capacity);
+			yb0 = Arrays.copyOf(yb0, capacity);
+			yb1 = Arrays.copyOf(yb1, capacity);
+			yt0 = Arrays.copyOf(yt0, capacity);
+			yt1 = Arrays.copyOf(yt1, capacity);
+		}
+
+		/**
+		 * Traces the boundaries of the unions of the uncovered trapezoids. Trapezoids ending and starting at the same x coordinate
+		 * meet along a vertical line, the parts of their sides not shared with the other side belong to the boundary.
+		 * The boundary segments are linked into cycles by their endpoints, which are exactly equal in x and equal up to rounding
+		 * errors in y (the trapezoids of neighboring slabs may be bounded by different edges of the same bundle).
+		 */
+		List<CCWPolygon> pockets() {
+			Segments segments = new Segments();
+
+			for (int i = 0; i < size; i++) {
+				segments.add(x0[i], yb0[i], x1[i], yb1[i]);
+				segments.add(x1[i], yt1[i], x0[i], yt0[i]);
+			}
+
+			// trapezoids sorted by their right and by their left sides
+			int[] byRight = new int[size], byLeft = new int[size], tmp = new int[size];
+			for (int i = 0; i < size; i++) {
+				byRight[i] = i;
+				byLeft[i] = i;
+			}
+
+			sort(byRight, 0, size, x1, yb1, tmp);
+			sort(byLeft, 0, size, x0, yb0, tmp);
+
+			for (int i = 0, j = 0; i < size || j < size; ) {
+				double x = Math.min((i < size) ? x1[byRight[i]] : Double.POSITIVE_INFINITY, (j < size) ? x0[byLeft[j]] : Double.POSITIVE_INFINITY);
+
+				int i2 = i, j2 = j;
+				while (i2 < size && x1[byRight[i2]] == x)
+					i2++;
+				while (j2 < size && x0[byLeft[j2]] == x)
+					j2++;
+
+				// right sides upwards, left sides downwards, except where trapezoids of the other side continue
+				subtract(x, byRight, i, i2, yb1, yt1, byLeft, j, j2, yb0, yt0, true, segments);
+				subtract(x, byLeft, j, j2, yb0, yt0, byRight, i, i2, yb1, yt1, false, segments);
+
+				i = i2;
+				j = j2;
+			}
+
+			return segments.cycles();
+		}
+
+		/**
+		 * Adds the parts of the intervals [lo[c], hi[c]] (c = cells[from] to cells[to - 1], sorted) not covered by the intervals
+		 * [otherLo[c], otherHi[c]] (c = other[otherFrom] to other[otherTo - 1], sorted) as vertical segments at x, upwards or downwards.
+		 */
+		private static void subtract(double x, int[] cells, int from, int to, double[] lo, double[] hi,
+				int[] other, int otherFrom, int otherTo, double[] otherLo, double[] otherHi, boolean up, Segments segments) {
+			int j = otherFrom;
+
+			for (int i = from; i < to; i++) {
+				int c = cells[i];
+				double curr = lo[c];
+
+				while (j < otherTo && otherHi[other[j]] <= curr + CommonUtils.Eps)
+					j++;
+
+				for (int k = j; k < otherTo && otherLo[other[k]] < hi[c] - CommonUtils.Eps; k++) {
+					if (otherLo[other[k]] > curr + CommonUtils.Eps)
+						segments.addVertical(x, curr, otherLo[other[k]], up);
+
+					curr = Math.max(curr, otherHi[other[k]]);
+				}
+
+				if (hi[c] > curr + CommonUtils.Eps)
+					segments.addVertical(x, curr, hi[c], up);
+			}
+		}
+	}
+
+	/**
+	 * Directed boundary segments of the uncovered regions, linked into cycles.
+	 */
+	private static final class Segments {
+		double[] sx = new double[16], sy = new double[16], ex = new double[16], ey = new double[16];
+		int size;
+
+		void add(double ax, double ay, double bx, double by) {
+			if (size == sx.length) {
+				sx = Arrays.copyOf(sx, 2 * size);
+				sy = Arrays.copyOf(sy, 2 * size);
+				ex = Arrays.copyOf(ex, 2 * size);
+				ey = Arrays.copyOf(ey, 2 * size);
+			}
+
+			sx[size] = ax;
+			sy[size] = ay;
+			ex[size] = bx;
+			ey[size] = by;
+			size++;
+		}
+
+		void addVertical(double x, double lo, double hi, boolean up) {
+			if (up)
+				add(x, lo, x, hi);
+			else
+				add(x, hi, x, lo);
+		}
+
+		List<CCWPolygon> cycles() {
+			// segments sorted by their start points
+			int[] sorted = new int[size];
+			for (int i = 0; i < size; i++)
+				sorted[i] = i;
+
+			sort(sorted, 0, size, sx, sy, new int[size]);
+
+			double[] keyX = new double[size];
+			for (int i = 0; i < size; i++)
+				keyX[i] = sx[sorted[i]];
+
+			boolean[] used = new boolean[size];
+			List<CCWPolygon> ret = new ArrayList<>();
+			double[] x = new double[size + 1], y = new double[size + 1];
+
+			for (int start = 0; start < size; start++) {
+				if (used[start])
+					continue;
+
+				int m = 0, curr = start;
+				boolean closed = false;
+
+				while (true) {
+					m = VisibilityPolygon.appendVertex(x, y, m, sx[curr], sy[curr]);
+
+					// the start segment is a candidate as well, it closes the cycle
+					used[curr] = true;
+					used[start] = false;
+					int next = successor(curr, sorted, keyX, used);
+					used[start] = true;
+
+					if (next < 0 || next == start) {
+						closed = next == start;
+						break;
+					}
+
+					curr = next;
+				}
+
+				m = VisibilityPolygon.closeVertices(x, y, m);
+				if (!closed || m < 3 || signedArea(x, y, m) <= CommonUtils.Eps)
+					continue;
+
+				List<Point2D> vertices = new ArrayList<>(m);
+				for (int i = 0; i < m; i++)
+					vertices.add(new Point2D.Double(x[i], y[i]));
+
+				ret.add(new CCWPolygon(vertices));
+			}
+
+			return ret;
+		}
+
+		// unused segment starting closest to the end of segment s (at the same x coordinate), -1 if there is none
+		private int successor(int s, int[] sorted, double[] keyX, boolean[] used) {
+			int lo = Arrays.binarySearch(keyX, ex[s]);
+			if (lo < 0)
+				return -1;
+
+			while (lo > 0 && keyX[lo - 1] == ex[s])
+				lo--;
+
+			int ret = -1;
+			for (int k = lo; k < size && keyX[k] == ex[s]; k++) {
+				int t = sorted[k];
+
+				if (!used[t] && (ret < 0 || Math.abs(sy[t] - ey[s]) < Math.abs(sy[ret] - ey[s])))
+					ret = t;
+			}
+
+			return ret;
+		}
+
+		private static double signedArea(double[] x, double[] y, int m) {
+			double ret = 0;
+			for (int i = 0; i < m; i++) {
+				int j = (i + 1) % m;
+				ret += x[i] * y[j] - x[j] * y[i];
+			}
+
+			return ret / 2;
+		}
+	}
+
+	private static class SlabTask extends RecursiveTask<Cells> {
+		private static final long serialVersionUID = 1L;
+
+		final Sweep sweep;
+		final int from, to, minRange;
+
+		SlabTask(Sweep sweep, int from, int to, int minRange) {
+			this.sweep = sweep;
+			this.from = from;
+			this.to = to;
+			this.minRange = minRange;
+		}
+
+		@Override
+		protected Cells compute() {
+			if (to - from <= minRange)
+				return sweep.sweep(from, to);
+
+			int mid = (from + to) >>> 1;
+			SlabTask left = new SlabTask(sweep, from, mid, minRange), right = new SlabTask(sweep, mid, to, minRange);
+			invokeAll(left, right);
+
+			// neighboring ranges are merged pairwise up the recursion (tree reduction), keeping the order of the slabs
+			return left.join().merge(right.join());
+		}
+	}
+
+	/**
+	 * Sorts a[from] to a[to - 1] by key (ties by tie), merge sort on primitive arrays.
+	 * @param tmp Scratch array of at least to entries.
+	 */
+	private static void sort(int[] a, int from, int to, double[] key, double[] tie, int[] tmp) {
+		for (int width = 1; width < to - from; width *= 2) {
+			for (int lo = from; lo < to - width; lo += 2 * width) {
+				int mid = lo + width, hi = Math.min(lo + 2 * width, to);
+				int i = lo, j = mid, k = lo;
+
+				while (i < mid && j < hi) {
+					int p = a[i], q = a[j];
+					boolean takeRight = key[q] < key[p] || (key[q] == key[p] && tie[q] < tie[p]);
+					tmp[k++] = takeRight ? a[j++] : a[i++];
+				}
+
+				while (i < mid)
+					tmp[k++] = a[i++];
+				while (j < hi)
+					tmp[k++] = a[j++];
+
+				System.arraycopy(tmp, lo, a, lo, hi - lo);
+			}
+		}
+	}
+
+	private static int[] ensure(int[] a, int capacity) {
+		return (a.length >= capacity) ? a : Arrays.copyOf(a, Math.max(capacity, 2 * a.length));
+	}
+}
@@ -0,0 +1,33 @@
+package visibilityPolygon;
+
+/**
+ * Polygon (by content, as PreparedPolygon.equals) and cell of a grid, key of the entries of VisibilityCache and VisibilityCellCache.
+ */
+final class GridKey {
+	final PreparedPolygon pol;
+	final long x, y;
+	private final int hash;
+
+	GridKey(PreparedPolygon pol, long x, long y) {
+		this.pol = pol;
+		this.x = x;
+		this.y = y;
+		hash = 31 * (31 * pol.hashCode() + Long.hashCode(x)) + Long.hashCode(y);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof GridKey))
+			return false;
+
+		GridKey k = (GridKey) o;
+		return hash == k.hash && x == k.x && y == k.y && pol.equals(k.pol);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+}
@@ -0,0 +1,357 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Isovist field of a simple polygon: measures of the visibility polygon (isovist) from each sample point of a grid.
+ * The sample points are the centers of the square cells of a grid over the bounding box of the polygon (as in VisibilityHeatmap)
+ * lying inside of the polygon. The measures are
+ * - area and perimeter of the isovist,
+ * - compactness 4 * pi * area / perimeter^2 (1 for a disk, smaller for elongated or jagged isovists),
+ * - occlusivity, the total length of the windows (edges of the isovist through the interior of the polygon, hiding what is behind them).
+ *
+ * The sample points are stored in Z-order (Morton order of their grid cells), hence consecutive points are close to each other
+ * and a range of points handled by one thread covers a compact region of the polygon. All values are kept in columnar primitive arrays,
+ * entry i of each array belongs to sample point i. The isovists are measured in parallel without building them.
+ * The columns are filled before the field is returned and the array getters (getXs, getAreas, ...) return copies of them,
+ * so concurrent readers can't see partial or modified values.
+ *
+ * Usage example:
+
+		IsovistField field = VisibilityPolygon.computeIsovistField(pol, 0.25);
+
+		for (int i = 0; i < field.size(); i++) {
+			double x = field.getX(i), y = field.getY(i);
+			double area = field.getArea(i);
+			...
+		}
+ */
+public final class IsovistField {
+
+	private final double spacing;
+
+	// sample points
+	private final double[] x, y;
+
+	private final double[] area, perimeter, compactness, occlusivity;
+
+	private IsovistField(double spacing, double[] x, double[] y, double[] area, double[] perimeter, double[] compactness, double[] occlusivity) {
+		this.spacing = spacing;
+		this.x = x;
+		this.y = y;
+		this.area = area;
+		this.perimeter = perimeter;
+		this.compactness = compactness;
+		this.occlusivity = occlusivity;
+	}
+
+	// distance between neighboring sample points
+	public double getSpacing() {
+		return spacing;
+	}
+
+	// number of sample points
+	public int size() {
+		return x.length;
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public double getArea(int i) {
+		return area[i];
+	}
+
+	public double getPerimeter(int i) {
+		return perimeter[i];
+	}
+
+	public double getCompactness(int i) {
+		return compactness[i];
+	}
+
+	public double getOcclusivity(int i) {
+		return occlusivity[i];
+	}
+
+	// copy of the x coordinates of the sample points
+	public double[] getXs() {
+		return x.clone();
+	}
+
+	// copy of the y coordinates of the sample points
+	public double[] getYs() {
+		return y.clone();
+	}
+
+	// copy of the areas
+	public double[] getAreas() {
+		return area.clone();
+	}
+
+	// copy of the perimeters
+	public double[] getPerimeters() {
+		return perimeter.clone();
+	}
+
+	// copy of the compactness values
+	public double[] getCompactnesses() {
+		return compactness.clone();
+	}
+
+	// copy of the occlusivity values
+	public double[] getOcclusivities() {
+		return occlusivity.clone();
+	}
+
+	/**
+	 * @param pol Valid polygon.
+	 * @param spacing Side length of the cells, positive.
+	 * @param pool Pool executing the computations.
+	 */
+	static IsovistField build(PreparedPolygon pol, double spacing, ForkJoinPool pool) {
+		double minX = pol.getMinX(), minY = pol.getMinY();
+		double width = Math.max(1, Math.ceil((pol.getMaxX() - minX) / spacing));
+		double height = Math.max(1, Math.ceil((pol.getMaxY() - minY) / spacing));
+
+		if (width * height > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("spacing is too small for the polygon");
+
+		long[] codes = samples(pol, minX, minY, spacing, (int) width, (int) height);
+		Arrays.sort(codes);
+
+		int n = codes.length;
+		double[] x = new double[n], y = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			x[i] = minX + (compact(codes[i]) + 0.5) * spacing;
+			y[i] = minY + (compact(codes[i] >>> 1) + 0.5) * spacing;
+		}
+
+		double[] area = new double[n], perimeter = new double[n], compactness = new double[n], occlusivity = new double[n];
+
+		// ranges of at most minRange sample points are measured sequentially
+		int minRange = Math.max(1, n / (8 * pool.getParallelism()));
+
+		if (n > 0)
+			pool.invoke(new FieldTask(pol, x, y, area, perimeter, compactness, occlusivity, 0, n, minRange));
+
+		return new IsovistField(spacing, x, y, area, perimeter, compactness, occlusivity);
+	}
+
+	/**
+	 * Morton codes (column bits at even, row bits at odd positions) of the cells whose centers lie inside of the polygon.
+	 * The edges crossing the row of centers are collected per row, the centers between the crossings (even-odd) lie inside.
+	 */
+	private static long[] samples(PreparedPolygon pol, double minX, double minY, double spacing, int width, int height) {
+		double[] px = pol.x, py = pol.y;
+		int m = px.length;
+
+		// crossings per row in CSR form: first the number of crossings of each row, then their x coordinates
+		int[] offsets = new int[height + 1];
+		for (int i = 0; i < m; i++) {
+			int j = (i + 1 < m) ? i + 1 : 0;
+			int from = row(Math.min(py[i], py[j]), minY, spacing, height), to = row(Math.max(py[i], py[j]), minY, spacing, height);
+
+			for (int r = from; r < to; r++)
+				offsets[r + 1]++;
+		}
+
+		for (int r = 0; r < height; r++)
+			offsets[r + 1] += offsets[r];
+
+		double[] crossings = new double[offsets[height]];
+		int[] fill = Arrays.copyOf(offsets, height);
+
+		for (int i = 0; i < m; i++) {
+			int j = (i + 1 < m) ? i + 1 : 0;
+			if (py[i] == py[j])
+				continue;
+
+			int from = row(Math.min(py[i], py[j]), minY, spacing, height), to = row(Math.max(py[i], py[j]), minY, spacing, height);
+			double slope = (px[j] - px[i]) / (py[j] - py[i]);
+
+			for (int r = from; r < to; r++)
+				crossings[fill[r]++] = px[i] + (minY + (r + 0.5) * spacing - py[i]) * slope;
+		}
+
+		long[] ret = new long[16];
+		int n = 0;
+
+		for (int r = 0; r < height; r++) {
+			Arrays.sort(crossings, offsets[r], offsets[r + 1]);
+
+			for (int k = offsets[r]; k + 1 < offsets[r + 1]; k += 2) {
+				int c0 = col(crossings[k], minX, spacing, width), c1 = col(crossings[k + 1], minX, spacing, width);
+
+				if (n + c1 - c0 > ret.length)
+					ret = Arrays.copyOf(ret, Math.max(n + c1 - c0, 2 * ret.length));
+
+				for (int c = c0; c < c1; c++)
+					ret[n++] = spread(c) | (spread(r) << 1);
+			}
+		}
+
+		return Arrays.copyOf(ret, n);
+	}
+
+	// first row whose center is at least y, in [0, height]
+	private static int row(double y, double minY, double spacing, int height) {
+		return (int) Math.max(0, Math.min(height, Math.ceil((y - minY) / spacing - 0.5)));
+	}
+
+	// first column whose center is at least x, in [0, width]
+	private static int col(double x, double minX, double spacing, int width) {
+		return (int) Math.max(0, Math.min(width, Math.ceil((x - minX) / spacing - 0.5)));
+	}
+
+	// spreads the 32 bits of v to the even bit positions
+	private static long spread(int v) {
+		long ret = v & 0xFFFFFFFFL;
+		ret = (ret | (ret << 16)) & 0x0000FFFF0000FFFFL;
+		ret = (ret | (ret << 8)) & 0x00FF00FF00FF00FFL;
+		ret = (ret | (ret << 4)) & 0x0F0F0F0F0F0F0F0FL;
+		ret = (ret | (ret << 2)) & 0x3333333333333333L;
+		ret = (ret | (ret << 1)) & 0x5555555555555555L;
+		return ret;
+	}
+
+	// inverse of spread, collects the even bit positions
+	private static int compact(long code) {
+		long ret = code & 0x5555555555555555L;
+		ret = (ret | (ret >>> 1)) & 0x3333333333333333L;
+		ret = (ret | (ret >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+		ret = (ret | (ret >>> 4)) & 0x00FF00FF00FF00FFL;
+		ret = (ret | (ret >>> 8)) & 0x0000FFFF0000FFFFL;
+		ret = (ret | (ret >>> 16)) & 0x00000000FFFFFFFFL;
+		return (int) ret;
+	}
+
+	/**
+	 * Measures the isovist from sample point i, given by its m vertices relative to the sample point in CCW order.
+	 * Edges of the isovist on a line through the sample point are windows, except for the parts on edges of the polygon
+	 * (the sample point is on the line through such an edge), which are only looked for if there are such edges.
+	 */
+	private static void measure(PreparedPolygon pol, double zx, double zy, double[] x, double[] y, int m,
+			double[] area, double[] perimeter, double[] compactness, double[] occlusivity, int i) {
+		double doubleArea = 0, length = 0, windows = 0;
+		int[] collinear = null;
+		int c = 0;
+
+		for (int k = 0; k < m; k++) {
+			int l = (k + 1 < m) ? k + 1 : 0;
+			double cross = x[k] * y[l] - x[l] * y[k];
+			double edge = Math.hypot(x[l] - x[k], y[l] - y[k]);
+
+			doubleArea += cross;
+			length += edge;
+
+			double dist = Math.hypot(x[k], y[k]) * Math.hypot(x[l], y[l]);
+			if (dist == 0 || Math.abs(cross) > CommonUtils.Eps * dist)
+				continue;
+
+			if (collinear == null) {
+				collinear = collinearEdges(pol, zx, zy);
+				c = collinear[collinear.length - 1];
+			}
+
+			windows += edge - overlap(pol, collinear, c, zx, zy, x[k], y[k], x[l], y[l]);
+		}
+
+		area[i] = doubleArea / 2;
+		perimeter[i] = length;
+		compactness[i] = (length > 0) ? 4 * Math.PI * area[i] / (length * length) : 0;
+		occlusivity[i] = windows;
+	}
+
+	/**
+	 * Length of the parts of the edge p, q of the isovist (relative to z, on a line through z) covered by the collinear edges of the polygon.
+	 * The isovist drops vertices between collinear edges, hence its edge may run along an edge of the polygon and continue as a window.
+	 */
+	private static double overlap(PreparedPolygon pol, int[] collinear, int c, double zx, double zy, double px, double py, double qx, double qy) {
+		double len = Math.hypot(qx - px, qy - py);
+		double ux = (qx - px) / len, uy = (qy - py) / len;
+		double ret = 0;
+
+		for (int e = 0; e < c; e++) {
+			int a = collinear[e], b = (a + 1 < pol.size()) ? a + 1 : 0;
+			double ax = pol.x[a] - zx - px, ay = pol.y[a] - zy - py, bx = pol.x[b] - zx - px, by = pol.y[b] - zy - py;
+
+			// the edge lies on a different line through z
+			if (Math.abs(ax * uy - ay * ux) > CommonUtils.Eps * Math.max(1, len) || Math.abs(bx * uy - by * ux) > CommonUtils.Eps * Math.max(1, len))
+				continue;
+
+			double ta = ax * ux + ay * uy, tb = bx * ux + by * uy;
+			ret += Math.max(0, Math.min(len, Math.max(ta, tb)) - Math.max(0, Math.min(ta, tb)));
+		}
+
+		return Math.min(ret, len);
+	}
+
+	// edges of the polygon on a line through z, the last entry is their number
+	private static int[] collinearEdges(PreparedPolygon pol, double zx, double zy) {
+		int n = pol.size();
+		int[] ret = new int[n + 1];
+		int c = 0;
+
+		for (int a = 0; a < n; a++) {
+			int b = (a + 1 < n) ? a + 1 : 0;
+			double ax = pol.x[a] - zx, ay = pol.y[a] - zy, bx = pol.x[b] - zx, by = pol.y[b] - zy;
+
+			if (Math.abs(ax * by - ay * bx) <= CommonUtils.Eps * Math.max(1, Math.hypot(ax, ay) * Math.hypot(bx, by)))
+				ret[c++] = a;
+		}
+
+		ret[n] = c;
+		return ret;
+	}
+
+	// Measures the isovists of a range of sample points, splits the range while it is large.
+	private static class FieldTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final PreparedPolygon pol;
+		final double[] x, y, area, perimeter, compactness, occlusivity;
+		final int from, to, minRange;
+
+		FieldTask(PreparedPolygon pol, double[] x, double[] y, double[] area, double[] perimeter, double[] compactness, double[] occlusivity,
+				int from, int to, int minRange) {
+			this.pol = pol;
+			this.x = x;
+			this.y = y;
+			this.area = area;
+			this.perimeter = perimeter;
+			this.compactness = compactness;
+			this.occlusivity = occlusivity;
+			this.from = from;
+			this.to = to;
+			this.minRange = minRange;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= minRange) {
+				// vertex arrays are reused from sample point to sample point
+				double[][] xy = { new double[16], new double[16] };
+
+				for (int i = from; i < to; i++) {
+					int m = VisibilityPolygon.computeVertices(pol, new Point2D.Double(x[i], y[i]), xy);
+					measure(pol, x[i], y[i], xy[0], xy[1], m, area, perimeter, compactness, occlusivity, i);
+				}
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new FieldTask(pol, x, y, area, perimeter, compactness, occlusivity, from, mid, minRange),
+					  new FieldTask(pol, x, y, area, perimeter, compactness, occlusivity, mid, to, minRange));
+		}
+	}
+}
@@ -2,7 +2,6 @@ package visibilityPolygon;
 
 import java.awt.geom.Point2D;
 
-import visibilityPolygon.CommonUtils.Direction;
 import visibilityPolygon.CommonUtils.Ray2D;
 
 public class LineSegment {
@@ -23,17 +22,22 @@ public class LineSegment {
 	
 	// see https://stackoverflow.com/questions/328107/how-can-you-determine-a-point-is-between-two-other-points-on-a-line-segment
 	public static boolean pointOnSegment(Point2D p, LineSegment s) {
+		return pointOnSegment(p.getX(), p.getY(), s.a.getX(), s.a.getY(), s.b.getX(), s.b.getY());
+	}
+	
+	// checks if p lies on the segment [a, b], points are given by their coordinates
+	public static boolean pointOnSegment(double px, double py, double ax, double ay, double bx, double by) {
 		
 		// point p is an endpoint of segment s
-		if (s.a.equals(p) || s.b.equals(p)) return true;
+		if ((ax == px && ay == py) || (bx == px && by == py)) return true;
 		
-		if (Math.abs(CommonUtils.crossProduct(s.a, s.b, p)) > CommonUtils.Eps) return false;
+		if (Math.abs(CommonUtils.crossProduct(ax, ay, bx, by, px, py)) > CommonUtils.Eps) return false;
 		
-		double dotProduct = CommonUtils.dotProduct(s.a, s.b, p);
+		double dotProduct = CommonUtils.dotProduct(ax, ay, bx, by, px, py);
 		if (dotProduct < 0) return false;
 		
-		boolean ret = dotProduct < CommonUtils.squaredLengthBA(s.a, s.b) ||
-						dotProduct == CommonUtils.squaredLengthBA(s.a, s.b);
+		boolean ret = dotProduct < CommonUtils.squaredLengthBA(ax, ay, bx, by) ||
+						dotProduct == CommonUtils.squaredLengthBA(ax, ay, bx, by);
 		
 		return ret;
 	}
@@ -44,145 +48,181 @@ public class LineSegment {
 		Point2D c = s2.a;
 		Point2D d = s2.b;
 		
-		boolean ret = CommonUtils.crossProduct(a, b, c) * CommonUtils.crossProduct(a, b, d) < 0 &&
-				CommonUtils.crossProduct(c, d, a) * CommonUtils.crossProduct(c, d, b) < 0;
+		boolean ret = CommonUtils.pointTurn(a, b, c).toInt() * CommonUtils.pointTurn(a, b, d).toInt() < 0 &&
+				CommonUtils.pointTurn(c, d, a).toInt() * CommonUtils.pointTurn(c, d, b).toInt() < 0;
 				
 		return ret;
 	}
 	
-	// see http://stackoverflow.com/questions/563198/how-do-you-detect-where-two-line-segments-intersect/565282#565282
 	public static Point2D intersectSegments(LineSegment seg1, LineSegment seg2) {
+		double[] res = new double[2];
+		
+		if (!intersectSegments(seg1.a.getX(), seg1.a.getY(), seg1.b.getX(), seg1.b.getY(),
+				seg2.a.getX(), seg2.a.getY(), seg2.b.getX(), seg2.b.getY(), res))
+			return null;
+		
+		return new Point2D.Double(res[0], res[1]);
+	}
+	
+	/**
+	 * Intersects the segments [a, b] and [c, d] given by the coordinates of their endpoints.
+	 * see http://stackoverflow.com/questions/563198/how-do-you-detect-where-two-line-segments-intersect/565282#565282
+	 * @param res Receives the coordinates of the intersection (x at index 0, y at index 1).
+	 * @return true iff. the segments intersect.
+	 */
+	public static boolean intersectSegments(double ax, double ay, double bx, double by,
+			double cx, double cy, double dx, double dy, double[] res) {
 		
 		// seg1 is just one point
-		if (CommonUtils.epsEquals(seg1.a, seg1.b) && pointOnSegment(seg1.a, seg2)) {
-			return seg1.a;
-		}
+		if (CommonUtils.epsEquals(ax, ay, bx, by) && pointOnSegment(ax, ay, cx, cy, dx, dy))
+			return setPoint(res, ax, ay);
 		
 		// seg2 is just one point
-		if (CommonUtils.epsEquals(seg2.a, seg2.b) && pointOnSegment(seg2.a, seg1)) {
-			return seg2.a;
-		}
+		if (CommonUtils.epsEquals(cx, cy, dx, dy) && pointOnSegment(cx, cy, ax, ay, bx, by))
+			return setPoint(res, cx, cy);
 		
-		if (CommonUtils.epsEquals(seg1.a, seg2.a) || CommonUtils.epsEquals(seg1.a, seg2.b))
-			return seg1.a;
+		if (CommonUtils.epsEquals(ax, ay, cx, cy) || CommonUtils.epsEquals(ax, ay, dx, dy))
+			return setPoint(res, ax, ay);
 		
-		if (CommonUtils.epsEquals(seg1.b, seg2.a) || CommonUtils.epsEquals(seg1.b, seg2.b))
-			return seg1.b;
+		if (CommonUtils.epsEquals(bx, by, cx, cy) || CommonUtils.epsEquals(bx, by, dx, dy))
+			return setPoint(res, bx, by);
 		
-		Point2D p = seg1.a;
-		Direction r = new Direction(seg1.b.getX() - seg1.a.getX(), seg1.b.getY() - seg1.a.getY());
-		Point2D q = seg2.a;
-		Direction s = new Direction(seg2.b.getX() - seg2.a.getX(), seg2.b.getY() - seg2.a.getY());
+		// p = a, r = b - a, q = c, s = d - c
+		double rx = bx - ax, ry = by - ay;
+		double sx = dx - cx, sy = dy - cy;
 		
 		// q - p
-		Direction qMinusp = new Direction(q.getX() - p.getX(), q.getY() - p.getY());
+		double qpx = cx - ax, qpy = cy - ay;
+		
+		double rCrossS = rx * sy - ry * sx;
+		double qpCrossR = qpx * ry - qpy * rx;
 		
 		// check if line segments are collinear
-		if (CommonUtils.epsEquals(r.crossProd(s), 0.0) &&
-				CommonUtils.epsEquals(qMinusp.crossProd(r), 0.0)) {
+		if (CommonUtils.epsEquals(rCrossS, 0.0) &&
+				CommonUtils.epsEquals(qpCrossR, 0.0)) {
 			
-			double t0 = (qMinusp.scalarProd(r) / r.scalarProd(r));
-			double t1 = t0 + s.scalarProd(r) / r.scalarProd(r);
+			double rDotR = rx * rx + ry * ry;
+			double t0 = ((qpx * rx + qpy * ry) / rDotR);
+			double t1 = t0 + (sx * rx + sy * ry) / rDotR;
 		
 			Double intersec = lineIntervalIntersection(t0, t1, 0, 1);
 			if (intersec == null)
-				return null;
-			else {
-				r.scaleBy(Math.max(intersec, 0));
-				Point2D res = new Point2D.Double(p.getX() + r.dx, p.getY() + r.dy);
-				return res;
-			}
+				return false;
 			
+			double k = Math.max(intersec, 0);
+			return setPoint(res, ax + rx * k, ay + ry * k);
 		}
 		
 		// check if line segments are parallel, if so then no intersection
-		if (CommonUtils.epsEquals(r.crossProd(s), 0.0) && CommonUtils.epsNEquals(new Direction(q.getX(), q.getY()).crossProd(r), 0.0))
-			return null;
+		if (CommonUtils.epsEquals(rCrossS, 0.0) && CommonUtils.epsNEquals(cx * ry - cy * rx, 0.0))
+			return false;
 		
 		// check if intersect
-		double u = qMinusp.crossProd(r) / r.crossProd(s);
-		double t = qMinusp.crossProd(s) / r.crossProd(s);
+		double u = qpCrossR / rCrossS;
+		double t = (qpx * sy - qpy * sx) / rCrossS;
 		
-		if (CommonUtils.epsNEquals(r.crossProd(s), 0.0) &&
+		if (CommonUtils.epsNEquals(rCrossS, 0.0) &&
 			CommonUtils.epsLEQ(0.0, u) &&
 			CommonUtils.epsLEQ(u, 1.0) &&
 			CommonUtils.epsGEQ(t, 0.0) &&
 			CommonUtils.epsLEQ(t, 1.0))
 		{
-				s.scaleBy(Math.max(u, 0));
-				Point2D ret = new Point2D.Double(q.getX() + s.dx, q.getY() + s.dy);
-				
-				return ret;
+			double k = Math.max(u, 0);
+			return setPoint(res, cx + sx * k, cy + sy * k);
 		}
 		
 		// otherwise not parallel and no intersection
-		return null;
+		return false;
 	}
 	
 	public static Point2D intersectSegmentWithRay(LineSegment seg, Ray2D ray) {
-		double phi = ray.phi;
+		double[] res = new double[2];
+		
+		if (!intersectSegmentWithRay(seg.a.getX(), seg.a.getY(), seg.b.getX(), seg.b.getY(),
+				ray.origin.getX(), ray.origin.getY(), Math.cos(ray.phi), Math.sin(ray.phi), res))
+			return null;
+		
+		return new Point2D.Double(res[0], res[1]);
+	}
+	
+	/**
+	 * Intersects the segment [a, b] with the ray starting at o in direction (rdx, rdy).
+	 * The direction doesn't need to be normalized.
+	 * @param res Receives the coordinates of the intersection (x at index 0, y at index 1).
+	 * @return true iff. the segment and the ray intersect.
+	 */
+	public static boolean intersectSegmentWithRay(double ax, double ay, double bx, double by,
+			double ox, double oy, double rdx, double rdy, double[] res) {
 		
 		// line segment is just one point
-		if (CommonUtils.epsEquals(seg.a, seg.b)) {
-			double sphi = new PolarPoint2D(seg.a).theta;
+		if (CommonUtils.epsEquals(ax, ay, bx, by)) {
+			double sphi = Math.atan2(ay, ax);
+			double len = Math.sqrt(rdx * rdx + rdy * rdy);
 			
-			if (CommonUtils.epsEquals(Math.cos(sphi), Math.cos(phi)) &&
-					CommonUtils.epsEquals(Math.sin(sphi), Math.sin(phi))) {
-				return seg.a;
+			if (CommonUtils.epsEquals(Math.cos(sphi), rdx / len) &&
+					CommonUtils.epsEquals(Math.sin(sphi), rdy / len)) {
+				return setPoint(res, ax, ay);
 			} else
-				return null;
+				return false;
 		}
 		
-		Point2D p = ray.origin;
-		Direction r = new Direction(Math.cos(phi), Math.sin(phi));
-		Point2D q = seg.a;
-		Direction s = new Direction(seg.b.getX() - seg.a.getX(), seg.b.getY() - seg.a.getY());
+		// p = o, r = ray direction, q = a, s = b - a
+		double sx = bx - ax, sy = by - ay;
 		
 		// q - p
-		Direction qMinusp = new Direction(q.getX() - p.getX(), q.getY() - p.getY());
-//		double temp = r.crossProd(new Direction(q.getX() - p.getX(), q.getY() - p.getY()));
+		double qpx = ax - ox, qpy = ay - oy;
+		
+		double rCrossS = rdx * sy - rdy * sx;
+		double qpCrossR = qpx * rdy - qpy * rdx;
 		
 		// line segment lies on the ray
-		if (CommonUtils.epsEquals(r.crossProd(s), 0.0) &&
-				CommonUtils.epsEquals(qMinusp.crossProd(r), 0.0)) {
+		if (CommonUtils.epsEquals(rCrossS, 0.0) &&
+				CommonUtils.epsEquals(qpCrossR, 0.0)) {
 			
-			double t0 = qMinusp.scalarProd(r) / r.scalarProd(r);
-			double t1 = t0 + s.scalarProd(r) / r.scalarProd(r);
+			double rDotR = rdx * rdx + rdy * rdy;
+			double t0 = (qpx * rdx + qpy * rdy) / rDotR;
+			double t1 = t0 + (sx * rdx + sy * rdy) / rDotR;
 			
 			double tt = Math.max(t0, t1);
 			
 			if (CommonUtils.epsGEQ(tt, 0.0)) {
-				r.scaleBy(Math.max(tt, 0));
-				Point2D ret = new Point2D.Double(p.getX() + r.dx, p.getY() + r.dy);
+				double k = Math.max(tt, 0);
+				setPoint(res, ox + rdx * k, oy + rdy * k);
 				
-				assert(pointOnSegment(ret, seg));
-				return ret;
+				assert(pointOnSegment(res[0], res[1], ax, ay, bx, by));
+				return true;
 			} else
-				return null;
+				return false;
 		}
 		
 		// line segment and ray are parallel, hence there is no intersection
-		if (CommonUtils.epsEquals(r.crossProd(s), 0.0) && CommonUtils.epsNEquals(new Direction(q.getX(), q.getY()).crossProd(r), 0.0))
-			return null;
+		if (CommonUtils.epsEquals(rCrossS, 0.0) && CommonUtils.epsNEquals(ax * rdy - ay * rdx, 0.0))
+			return false;
 		
 		// intersect
-		double u = qMinusp.crossProd(r) / r.crossProd(s);
-		double t = qMinusp.crossProd(s) / r.crossProd(s);
+		double u = qpCrossR / rCrossS;
+		double t = (qpx * sy - qpy * sx) / rCrossS;
 		
-		if (CommonUtils.epsNEquals(r.crossProd(s), 0.0) &&
+		if (CommonUtils.epsNEquals(rCrossS, 0.0) &&
 			CommonUtils.epsLEQ(0.0, u) &&
 			CommonUtils.epsLEQ(u, 1.0) &&
 			CommonUtils.epsGEQ(t, 0.0)) 
 		{
-			s.scaleBy(Math.max(u, 0));
-			Point2D ret = new Point2D.Double(q.getX() + s.dx, q.getY() + s.dy);
+			double k = Math.max(u, 0);
+			setPoint(res, ax + sx * k, ay + sy * k);
 			
-			assert(pointOnSegment(ret, seg));  // ret must be on segment
-			return ret;
+			assert(pointOnSegment(res[0], res[1], ax, ay, bx, by));  // res must be on segment
+			return true;
 		}
 		
 		// no intersection possible
-		return null;
+		return false;
+	}
+	
+	private static boolean setPoint(double[] res, double x, double y) {
+		res[0] = x;
+		res[1] = y;
+		return true;
 	}
 	
 	private static Double lineIntervalIntersection(double a1, double b1, double c1, double d1) {
@@ -0,0 +1,290 @@
+package visibilityPolygon;
+
+import java.util.Arrays;
+
+/**
+ * Point-in-polygon tests for simple polygons, points on the boundary are considered inside.
+ *
+ * crossingTest counts the edges crossed by a horizontal ray from the point in O(n) time.
+ * An instance is a slab decomposition of the polygon: the distinct y coordinates of the vertices
+ * split the plane into horizontal slabs, the edges crossing a slab are stored sorted from left to right
+ * (edges of a simple polygon don't cross, hence the order is the same everywhere in the slab).
+ * A query finds its slab and counts the edges left of the point by binary search in O(log n) time.
+ * Points at the height of vertices are located in the slab above (as crossingTest counts the edges),
+ * the horizontal edges at each height are stored sorted from left to right for the boundary checks.
+ *
+ * Sides are decided by the exact orientation predicate, points that are outside but on an edge
+ * according to LineSegment.pointOnSegment (hence up to CommonUtils.Eps off) are considered on the boundary,
+ * the same way getInitialVertex recognizes viewpoints on edges.
+ */
+final class PointInPolygon {
+
+	// slab decompositions with more entries are not built, they fall back to crossingTest
+	private static final long maxEntries = 1 << 22;
+
+	// vertices of the polygon, edge i goes from vertex i to vertex (i + 1) % n
+	private final double[] x, y;
+
+	// distinct y coordinates of the vertices in ascending order, slab s lies between slabY[s] and slabY[s + 1]
+	private final double[] slabY;
+	// the edges crossing slab s are slabEdges[slabStart[s]], ..., slabEdges[slabStart[s + 1] - 1] from left to right
+	private final int[] slabStart;
+	private final int[] slabEdges;
+	// the horizontal edges at height slabY[h] are horizontalEdges[horizontalStart[h]], ..., horizontalEdges[horizontalStart[h + 1] - 1] from left to right
+	private final int[] horizontalStart;
+	private final int[] horizontalEdges;
+
+	/**
+	 * Builds the slab decomposition in O(n log n + k) time, where k is the total number of edges over all slabs.
+	 * @param x x coordinates of the vertices of a simple polygon.
+	 * @param y y coordinates of the vertices.
+	 */
+	PointInPolygon(double[] x, double[] y) {
+		this.x = x;
+		this.y = y;
+
+		int n = x.length;
+
+		double[] ys = y.clone();
+		Arrays.sort(ys);
+
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (k == 0 || ys[i] != ys[k - 1])
+				ys[k++] = ys[i];
+		}
+
+		slabY = Arrays.copyOf(ys, k);
+
+		// counts the edges per slab, an edge spans the slabs between the ranks of its endpoints
+		int[] lo = new int[n];
+		int[] hi = new int[n];
+		long[] count = new long[k];
+		long total = 0;
+
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+
+			lo[i] = Arrays.binarySearch(slabY, Math.min(y[i], y[j]));
+			hi[i] = Arrays.binarySearch(slabY, Math.max(y[i], y[j]));
+
+			// horizontal edges lie on a slab boundary and span no slab
+			if (lo[i] < hi[i]) {
+				count[lo[i]]++;
+				count[hi[i]]--;
+				total += hi[i] - lo[i];
+			}
+		}
+
+		if (total > maxEntries || k < 2) {
+			slabStart = null;
+			slabEdges = null;
+			horizontalStart = null;
+			horizontalEdges = null;
+			return;
+		}
+
+		slabStart = new int[k];
+		long inSlab = 0;
+		for (int s = 0; s + 1 < k; s++) {
+			inSlab += count[s];
+			slabStart[s + 1] = slabStart[s] + (int) inSlab;
+		}
+
+		slabEdges = new int[(int) total];
+		int[] next = Arrays.copyOf(slabStart, k);
+
+		for (int i = 0; i < n; i++) {
+			for (int s = lo[i]; s < hi[i]; s++)
+				slabEdges[next[s]++] = i;
+		}
+
+		// sorts the edges of each slab by their x coordinate in the middle of the slab
+		double[] key = new double[n];
+
+		for (int s = 0; s + 1 < k; s++) {
+			double midY = (slabY[s] + slabY[s + 1]) / 2;
+			Integer[] edges = new Integer[slabStart[s + 1] - slabStart[s]];
+
+			for (int e = 0; e < edges.length; e++) {
+				int i = slabEdges[slabStart[s] + e];
+				int j = (i + 1) % n;
+
+				key[i] = x[i] + (midY - y[i]) / (y[j] - y[i]) * (x[j] - x[i]);
+				edges[e] = i;
+			}
+
+			Arrays.sort(edges, (e1, e2) -> Double.compare(key[e1], key[e2]));
+
+			for (int e = 0; e < edges.length; e++)
+				slabEdges[slabStart[s] + e] = edges[e];
+		}
+
+		// horizontal edges by height and their left endpoint, they don't overlap as the polygon is simple
+		horizontalStart = new int[k + 1];
+		int horizontal = 0;
+
+		for (int i = 0; i < n; i++) {
+			if (lo[i] == hi[i]) {
+				horizontalStart[lo[i] + 1]++;
+				horizontal++;
+			}
+		}
+
+		for (int h = 0; h < k; h++)
+			horizontalStart[h + 1] += horizontalStart[h];
+
+		Integer[] edges = new Integer[horizontal];
+		next = Arrays.copyOf(horizontalStart, k);
+
+		for (int i = 0; i < n; i++) {
+			if (lo[i] == hi[i]) {
+				edges[next[lo[i]]++] = i;
+				key[i] = Math.min(x[i], x[(i + 1) % n]);
+			}
+		}
+
+		for (int h = 0; h < k; h++)
+			Arrays.sort(edges, horizontalStart[h], horizontalStart[h + 1], (e1, e2) -> Double.compare(key[e1], key[e2]));
+
+		horizontalEdges = new int[horizontal];
+		for (int e = 0; e < horizontal; e++)
+			horizontalEdges[e] = edges[e];
+	}
+
+	/**
+	 * Point location in the slab decomposition in O(log n) time.
+	 * @return true iff. (px, py) lies in the interior or on the boundary of the polygon.
+	 */
+	boolean contains(double px, double py) {
+		if (slabEdges == null)
+			return crossingTest(x, y, px, py);
+
+		// also rejects NaN
+		if (!(slabY[0] <= py && py <= slabY[slabY.length - 1]))
+			return false;
+
+		int s = Arrays.binarySearch(slabY, py);
+
+		// py lies strictly inside slab s, or on the bottom of slab s (the top of the last slab for the highest vertices)
+		s = (s >= 0) ? Math.min(s, slabY.length - 2) : -s - 2;
+
+		int lo = locate(s, px, py);
+
+		// p is inside iff. an odd number of edges lies left of it
+		if (((lo - slabStart[s]) & 1) == 1)
+			return true;
+
+		// p is outside, unless it lies on the boundary up to the tolerance of pointOnSegment
+		return nearEdges(s, lo, px, py) || nearHeight(s, s - 1, px, py) || nearHeight(s + 1, s + 1, px, py);
+	}
+
+	/**
+	 * Binary search for the first edge (from the left) of slab s that doesn't lie left of p.
+	 * Points at the height of a vertex are ordered consistently, as edges of a simple polygon only touch at their endpoints.
+	 * @return Index into slabEdges.
+	 */
+	private int locate(int s, double px, double py) {
+		int lo = slabStart[s];
+		int hi = slabStart[s + 1];
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+
+			if (side(slabEdges[mid], px, py) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		return lo;
+	}
+
+	// p lies on one of the edges of slab s next to position lo
+	private boolean nearEdges(int s, int lo, double px, double py) {
+		return (lo > slabStart[s] && onEdge(slabEdges[lo - 1], px, py)) ||
+			   (lo < slabStart[s + 1] && onEdge(slabEdges[lo], px, py));
+	}
+
+	/**
+	 * Checks the boundary at height slabY[h] close to p: the horizontal edges there and the edges of the slab on the other side.
+	 * @param h Bottom or top of the slab of p.
+	 * @param other Slab on the other side of slabY[h], out of range if there is none.
+	 * @return true iff. p lies on one of these edges.
+	 */
+	private boolean nearHeight(int h, int other, double px, double py) {
+		if (!CommonUtils.epsEquals(py, slabY[h]))
+			return false;
+
+		// heights closer than the tolerance, p may be close to edges of more than two slabs
+		if ((h > 0 && CommonUtils.epsEquals(slabY[h - 1], slabY[h])) || (h + 1 < slabY.length && CommonUtils.epsEquals(slabY[h + 1], slabY[h])))
+			return crossingTest(x, y, px, py);
+
+		// the last horizontal edge starting left of p (or at p)
+		int lo = horizontalStart[h];
+		int hi = horizontalStart[h + 1];
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int i = horizontalEdges[mid];
+
+			if (Math.min(x[i], x[(i + 1) % x.length]) <= px)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		if (lo > horizontalStart[h] && onEdge(horizontalEdges[lo - 1], px, py))
+			return true;
+
+		if (other < 0 || other + 1 >= slabY.length)
+			return false;
+
+		return nearEdges(other, locate(other, px, py), px, py);
+	}
+
+	private boolean onEdge(int i, double px, double py) {
+		int j = (i + 1) % x.length;
+		return LineSegment.pointOnSegment(px, py, x[i], y[i], x[j], y[j]);
+	}
+
+	// positive iff. p lies left of edge i directed upwards, negative iff. it lies right of it
+	private double side(int i, double px, double py) {
+		int j = (i + 1) % x.length;
+
+		if (y[i] < y[j])
+			return Predicates.orient2d(x[i], y[i], x[j], y[j], px, py);
+		else
+			return Predicates.orient2d(x[j], y[j], x[i], y[i], px, py);
+	}
+
+	/**
+	 * Counts the edges crossed by the horizontal ray from (px, py) to the right, in O(n) time.
+	 * @param x x coordinates of the vertices of a simple polygon.
+	 * @param y y coordinates of the vertices.
+	 * @return true iff. (px, py) lies in the interior or on the boundary of the polygon.
+	 */
+	static boolean crossingTest(double[] x, double[] y, double px, double py) {
+		int n = x.length;
+		boolean inside = false;
+
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+
+			// p lies on edge i
+			if (LineSegment.pointOnSegment(px, py, x[i], y[i], x[j], y[j]))
+				return true;
+
+			// edge i crosses the height of p (lower endpoint included, upper one excluded)
+			if ((y[i] > py) != (y[j] > py)) {
+				double o = Predicates.orient2d(x[i], y[i], x[j], y[j], px, py);
+
+				// the crossing lies right of p iff. p lies left of the edge directed upwards
+				if ((y[j] > y[i]) ? o > 0 : o < 0)
+					inside = !inside;
+			}
+		}
+
+		return inside;
+	}
+}
@@ -0,0 +1,121 @@
+package visibilityPolygon;
+
+/**
+ * Adaptive-precision orientation predicate in the style of Shewchuk's orient2d.
+ *
+ * The determinant is first evaluated in plain double arithmetic. Only if its magnitude
+ * is below the forward error bound of that evaluation, the sign is recomputed exactly
+ * using floating-point expansions (sums of non-overlapping doubles), hence the sign
+ * is always correct while almost all calls only pay for the double evaluation.
+ *
+ * Based on: J. R. Shewchuk (1997), Adaptive Precision Floating-Point Arithmetic and Fast Robust Geometric Predicates.
+ * 			 https://people.eecs.berkeley.edu/~jrs/papers/robustr.pdf
+ */
+public class Predicates {
+
+	// 2^-53, half an ulp of 1.0
+	private static final double epsilon = Math.ulp(1.0) / 2;
+
+	// relative error bound of the double evaluation of the determinant
+	private static final double ccwErrBoundA = (3.0 + 16.0 * epsilon) * epsilon;
+
+	/**
+	 * Orientation of the points a, b and c.
+	 * @return Positive iff. a, b, c is a counterclockwise turn, negative iff. it is a clockwise turn
+	 * 		   and 0 iff. the points are collinear. The sign is exact, the magnitude approximates
+	 * 		   twice the signed area of the triangle.
+	 */
+	public static double orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+		double detLeft = (ax - cx) * (by - cy);
+		double detRight = (ay - cy) * (bx - cx);
+		double det = detLeft - detRight;
+		double detSum;
+
+		if (detLeft > 0) {
+			if (detRight <= 0)
+				return det;
+			detSum = detLeft + detRight;
+		} else if (detLeft < 0) {
+			if (detRight >= 0)
+				return det;
+			detSum = -detLeft - detRight;
+		} else {
+			return det;
+		}
+
+		double errBound = ccwErrBoundA * detSum;
+		if (det >= errBound || -det >= errBound)
+			return det;
+
+		return orient2dExact(ax, ay, bx, by, cx, cy);
+	}
+
+	/**
+	 * Same as orient2d but returns the orientation as enum.
+	 */
+	public static Orientation orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+		double det = orient2d(ax, ay, bx, by, cx, cy);
+
+		if (det > 0)
+			return Orientation.COUNTERCLOCKWISE;
+		else if (det < 0)
+			return Orientation.CLOCKWISE;
+		else
+			return Orientation.COLLINEAR;
+	}
+
+	/**
+	 * Evaluates the determinant exactly as sum of its six products
+	 * ax*by - ax*cy - ay*bx + ay*cx + bx*cy - by*cx.
+	 * Each product is split into two doubles without error and the twelve doubles are
+	 * summed into an expansion, whose largest component has the sign of the exact sum.
+	 */
+	private static double orient2dExact(double ax, double ay, double bx, double by, double cx, double cy) {
+		double[] e = new double[12];
+		int len = 0;
+
+		len = growProduct(e, len, ax, by);
+		len = growProduct(e, len, -ax, cy);
+		len = growProduct(e, len, -ay, bx);
+		len = growProduct(e, len, ay, cx);
+		len = growProduct(e, len, bx, cy);
+		len = growProduct(e, len, -by, cx);
+
+		// components are ordered by increasing magnitude, the largest non-zero one determines the sign
+		for (int i = len - 1; i >= 0; i--) {
+			if (e[i] != 0)
+				return e[i];
+		}
+
+		return 0;
+	}
+
+	// adds the exact product a*b (two components) to the expansion e of length len
+	private static int growProduct(double[] e, int len, double a, double b) {
+		double p = a * b;
+		double err = Math.fma(a, b, -p);	// p + err == a*b exactly
+
+		len = growExpansion(e, len, err);
+		return growExpansion(e, len, p);
+	}
+
+	// Shewchuk's Grow-Expansion: adds b to the expansion e of length len
+	private static int growExpansion(double[] e, int len, double b) {
+		double q = b;
+
+		for (int i = 0; i < len; i++) {
+			double sum = q + e[i];
+
+			// two-sum: e[i] receives the rounding error of q + e[i]
+			double bVirtual = sum - q;
+			double aVirtual = sum - bVirtual;
+			double err = (q - aVirtual) + (e[i] - bVirtual);
+
+			e[i] = err;
+			q = sum;
+		}
+
+		e[len] = q;
+		return len + 1;
+	}
+}
@@ -0,0 +1,437 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only representation of a CCWPolygon prepared for many visibility queries.
+ *
+ * Holds the vertices as packed coordinates, the edges as direction vectors, the bounding box and the
+ * signed area, so that queries don't have to derive them from the CCWPolygon again. The point location
+ * structure used by containsPoint and the verdict of isSimple are computed on first use and kept.
+ * Instances can be shared by any number of threads.
+ *
+ * Usage example:
+
+		// prepares the polygon once (or reuses the instance prepared for an equal polygon)
+		PreparedPolygon prepared = PreparedPolygon.of(pol);
+
+		CCWPolygon VP1 = VisibilityPolygon.computeVisPol(prepared, z1);
+		CCWPolygon VP2 = VisibilityPolygon.computeVisPol(prepared, z2);
+ */
+public final class PreparedPolygon {
+
+	// maximum total number of vertices of the prepared polygons kept by the registry
+	private static final long registryCapacity = 1 << 21;
+
+	/**
+	 * Prepared polygons by content hash, polygons with equal hashes are chained.
+	 * Lookups hash and compare the vertices of the CCWPolygon without preparing it and without locking. Polygons are held
+	 * softly, so the garbage collector may reclaim them (and their point location structures) when memory runs low,
+	 * least recently used ones are evicted once their total number of vertices exceeds registryCapacity.
+	 */
+	private static final ConcurrentHashMap<Integer, Registered> registry = new ConcurrentHashMap<>();
+	private static final AtomicLong registryWeight = new AtomicLong();
+	private static final Object evictionLock = new Object();
+
+	// vertices in counter-clockwise order
+	final double[] x;
+	final double[] y;
+
+	// edge i goes from vertex i to vertex (i + 1) % n, stored as direction vector
+	final double[] edgeX;
+	final double[] edgeY;
+
+	// bounding box
+	final double minX, minY, maxX, maxY;
+
+	// positive iff. the vertices are in counter-clockwise order
+	private final double signedArea;
+
+	private final int contentHash;
+
+	// slab decomposition for containsPoint, built on first use
+	private volatile PointInPolygon pointLocation;
+
+	// verdict of the simplicity test, null until it ran
+	private volatile Boolean simple;
+
+	/**
+	 * Prepares the polygon, always creates a new instance.
+	 * @param pol Polygon as vertices in counter-clockwise order.
+	 */
+	public PreparedPolygon(CCWPolygon pol) {
+		this(pol, false);
+	}
+
+	/**
+	 * Prepares the polygon, always creates a new instance.
+	 * @param pol Polygon as vertices in counter-clockwise order.
+	 * @param reverseClockwise If true and the vertices of pol are in clockwise order, they are reversed.
+	 */
+	public PreparedPolygon(CCWPolygon pol, boolean reverseClockwise) {
+		List<Point2D> vertices = pol.getVertices();
+		int n = vertices.size();
+
+		x = new double[n];
+		y = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			x[i] = vertices.get(i).getX();
+			y[i] = vertices.get(i).getY();
+		}
+
+		double area = signedArea(x, y);
+
+		if (reverseClockwise && area < 0) {
+			reverse(x);
+			reverse(y);
+			area = -area;
+		}
+
+		signedArea = area;
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+
+		edgeX = new double[n];
+		edgeY = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			edgeX[i] = x[j] - x[i];
+			edgeY[i] = y[j] - y[i];
+		}
+
+		contentHash = 31 * Arrays.hashCode(x) + Arrays.hashCode(y);
+	}
+
+	/**
+	 * Returns the prepared instance of a polygon with the same vertices if the registry holds one,
+	 * otherwise prepares pol and registers it.
+	 * @param pol Polygon as vertices in counter-clockwise order.
+	 * @return Prepared polygon with the same vertices as pol.
+	 */
+	public static PreparedPolygon of(CCWPolygon pol) {
+		return of(pol, false);
+	}
+
+	/**
+	 * Same as of(pol), reverses the vertices of pol first if reverseClockwise is true and they are in clockwise order.
+	 * @param pol Polygon as vertices in counter-clockwise (or clockwise) order.
+	 * @param reverseClockwise Determines if clockwise polygons are reversed.
+	 * @return Prepared polygon with the vertices of pol.
+	 */
+	public static PreparedPolygon of(CCWPolygon pol, boolean reverseClockwise) {
+		List<Point2D> vertices = pol.getVertices();
+		int n = vertices.size();
+
+		// order of the vertices after preparation, same arithmetic as the constructor
+		boolean reversed = false;
+
+		if (reverseClockwise && n > 0) {
+			double sum = 0;
+			Point2D p = vertices.get(0);
+
+			for (int i = 0; i < n; i++) {
+				Point2D q = vertices.get(i + 1 < n ? i + 1 : 0);
+				sum += p.getX() * q.getY() - q.getX() * p.getY();
+				p = q;
+			}
+
+			reversed = sum / 2 < 0;
+		}
+
+		// same as contentHash of the prepared polygon
+		int hashX = 1, hashY = 1;
+		for (int i = 0; i < n; i++) {
+			Point2D p = vertices.get(reversed ? n - 1 - i : i);
+			hashX = 31 * hashX + Double.hashCode(p.getX());
+			hashY = 31 * hashY + Double.hashCode(p.getY());
+		}
+
+		int hash = 31 * hashX + hashY;
+
+		for (Registered r = registry.get(hash); r != null; r = r.next) {
+			PreparedPolygon registered = r.ref.get();
+
+			if (registered != null && registered.hasVertices(vertices, reversed)) {
+				r.lastUse = System.nanoTime();
+				return registered;
+			}
+		}
+
+		PreparedPolygon prepared = new PreparedPolygon(pol, reverseClockwise);
+		PreparedPolygon[] ret = { prepared };
+
+		// another thread may have registered an equal polygon in the meantime, chains drop the polygons reclaimed by the garbage collector
+		registry.compute(hash, (h, head) -> {
+			Registered chain = null;
+
+			for (Registered r = head; r != null; r = r.next) {
+				PreparedPolygon registered = r.ref.get();
+
+				if (registered == null) {
+					registryWeight.addAndGet(-r.weight);
+					continue;
+				}
+
+				if (registered.equals(prepared))
+					ret[0] = registered;
+
+				chain = new Registered(r, chain);
+			}
+
+			if (ret[0] == prepared) {
+				chain = new Registered(prepared, chain);
+				registryWeight.addAndGet(chain.weight);
+			}
+
+			return chain;
+		});
+
+		if (registryWeight.get() > registryCapacity)
+			evict();
+
+		return ret[0];
+	}
+
+	// registered polygon, link of a chain of polygons with the same content hash
+	private static final class Registered {
+		final SoftReference<PreparedPolygon> ref;
+		final int hash;
+		final int weight;
+		final Registered next;
+		volatile long lastUse;
+
+		Registered(PreparedPolygon pol, Registered next) {
+			this.ref = new SoftReference<>(pol);
+			this.hash = pol.contentHash;
+			this.weight = pol.size();
+			this.next = next;
+			this.lastUse = System.nanoTime();
+		}
+
+		// copy of r linked to another chain
+		Registered(Registered r, Registered next) {
+			this.ref = r.ref;
+			this.hash = r.hash;
+			this.weight = r.weight;
+			this.next = next;
+			this.lastUse = r.lastUse;
+		}
+	}
+
+	/**
+	 * Removes the reclaimed and the least recently used polygons until the registry holds at most 3/4 of its capacity,
+	 * so that evictions are rare compared to registrations.
+	 */
+	private static void evict() {
+		synchronized (evictionLock) {
+			if (registryWeight.get() <= registryCapacity)
+				return;
+
+			List<Registered> all = new ArrayList<>();
+			for (Registered head : registry.values()) {
+				for (Registered r = head; r != null; r = r.next)
+					all.add(r);
+			}
+
+			// reclaimed polygons first, then the least recently used ones, by a snapshot as other threads keep using them
+			long[] lastUse = new long[all.size()];
+			Integer[] order = new Integer[all.size()];
+
+			for (int i = 0; i < order.length; i++) {
+				lastUse[i] = (all.get(i).ref.get() == null) ? Long.MIN_VALUE : all.get(i).lastUse;
+				order[i] = i;
+			}
+
+			Arrays.sort(order, (i1, i2) -> Long.compare(lastUse[i1], lastUse[i2]));
+
+			for (int i = 0; i < order.length && registryWeight.get() > registryCapacity / 4 * 3; i++) {
+				Registered evicted = all.get(order[i]);
+
+				registry.computeIfPresent(evicted.hash, (h, head) -> {
+					Registered chain = null;
+
+					for (Registered r = head; r != null; r = r.next) {
+						if (r.ref == evicted.ref)
+							registryWeight.addAndGet(-r.weight);
+						else
+							chain = new Registered(r, chain);
+					}
+
+					return chain;
+				});
+			}
+		}
+	}
+
+	// number of vertices
+	public int size() {
+		return x.length;
+	}
+
+	public Point2D getVertex(int i) {
+		return new Point2D.Double(x[i], y[i]);
+	}
+
+	/**
+	 * @return Copy of the polygon as CCWPolygon.
+	 */
+	public CCWPolygon toCCWPolygon() {
+		List<Point2D> vertices = new ArrayList<>(x.length);
+
+		for (int i = 0; i < x.length; i++)
+			vertices.add(getVertex(i));
+
+		return new CCWPolygon(vertices);
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+
+	public double getMinY() {
+		return minY;
+	}
+
+	public double getMaxX() {
+		return maxX;
+	}
+
+	public double getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * @return Signed area of the polygon, positive iff. the vertices are in counter-clockwise order.
+	 */
+	public double getSignedArea() {
+		return signedArea;
+	}
+
+	public boolean isCounterClockwise() {
+		return signedArea > 0;
+	}
+
+	/**
+	 * Checks if the boundary of the polygon touches or crosses itself by a Shamos-Hoey sweep, in O(n log n) time.
+	 * The verdict is computed on the first call and kept.
+	 * @return true iff. the polygon has at least 3 vertices and only consecutive edges intersect (in their common vertex).
+	 */
+	public boolean isSimple() {
+		Boolean ret = simple;
+
+		if (ret == null)
+			simple = ret = SimplicityTest.isSimple(x, y);
+
+		return ret;
+	}
+
+	/**
+	 * Checks the assumptions of the visibility polygon algorithm about its input.
+	 * @return true iff. the polygon is simple and its vertices are in counter-clockwise order.
+	 */
+	public boolean isValid() {
+		return isCounterClockwise() && isSimple();
+	}
+
+	/**
+	 * Checks if the point lies in the polygon in O(log n) time (O(n log n) preprocessing on the first call).
+	 * Points on the boundary are considered inside.
+	 * @param p Point to locate.
+	 * @return true iff. p lies in the interior or on the boundary of the polygon.
+	 */
+	public boolean containsPoint(Point2D p) {
+		return containsPoint(p.getX(), p.getY());
+	}
+
+	// same as containsPoint(Point2D) for the point (px, py)
+	public boolean containsPoint(double px, double py) {
+		// also rejects NaN
+		if (!(minX <= px && px <= maxX && minY <= py && py <= maxY))
+			return false;
+
+		PointInPolygon index = pointLocation;
+
+		// threads racing here build equal decompositions, any of them may be kept
+		if (index == null)
+			pointLocation = index = new PointInPolygon(x, y);
+
+		return index.contains(px, py);
+	}
+
+	// shoelace formula
+	private static double signedArea(double[] x, double[] y) {
+		int n = x.length;
+		double sum = 0;
+
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			sum += x[i] * y[j] - x[j] * y[i];
+		}
+
+		return sum / 2;
+	}
+
+	private static void reverse(double[] a) {
+		for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+			double tmp = a[i];
+			a[i] = a[j];
+			a[j] = tmp;
+		}
+	}
+
+	// true iff. the polygon has exactly the given vertices (in reverse order if reversed), compared as equals does
+	private boolean hasVertices(List<Point2D> vertices, boolean reversed) {
+		int n = x.length;
+
+		if (vertices.size() != n)
+			return false;
+
+		for (int i = 0; i < n; i++) {
+			Point2D p = vertices.get(reversed ? n - 1 - i : i);
+
+			if (Double.doubleToLongBits(p.getX()) != Double.doubleToLongBits(x[i]) ||
+				Double.doubleToLongBits(p.getY()) != Double.doubleToLongBits(y[i]))
+				return false;
+		}
+
+		return true;
+	}
+
+	// True iff. both polygons have exactly the same vertices in the same order
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+
+		PreparedPolygon p = (PreparedPolygon) o;
+		return contentHash == p.contentHash && Arrays.equals(x, p.x) && Arrays.equals(y, p.y);
+	}
+
+	@Override
+	public int hashCode() {
+		return contentHash;
+	}
+}
@@ -0,0 +1,471 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Angular plane sweep computing the visibility polygon from z among the edges of an outer polygon and its holes
+ * in O(n log n) time.
+ *
+ * A ray from z rotates once around z in CCW order and stops at the vertices (events). The edges crossed by the ray
+ * are kept sorted by their distance from z in a balanced search tree, the closest one is the boundary of the visibility
+ * polygon in the direction of the ray. Whenever it changes at an event, the points where the ray hits the closest edge
+ * before and after the event are vertices of the visibility polygon.
+ *
+ * Angles are compared with orientation tests (half plane first, then orient2d), so vertices collinear with z
+ * form one event even if their angles would differ by rounding.
+ *
+ * With a limited range the edges are clipped to the disk around z before the sweep and edges outside of it are dropped,
+ * so the sweep only pays for the geometry in range. Directions in which no edge is in range end on the circle.
+ *
+ * Based on: T. Asano (1985), An efficient algorithm for finding the visibility polygon for a polygonal region with holes.
+ */
+final class RotationalSweep {
+
+	private final double[] x, y;
+	private final double zx, zy;
+
+	// endpoints of the edges, z sees a before b in CCW order
+	private final int[] a, b;
+	private final int edges;
+
+	// range of the view, rays that don't hit an edge within it end on the circle around z (approximated by chords)
+	private final double radius;
+	private final double maxArcStep;
+
+	/**
+	 * @param x x coordinates of the endpoints of the edges.
+	 * @param y y coordinates of the endpoints.
+	 * @param from First endpoint of each edge.
+	 * @param to Second endpoint of each edge.
+	 * @param count Number of edges.
+	 * @param zx x coordinate of the viewpoint.
+	 * @param zy y coordinate of the viewpoint.
+	 * @param radius Range of the view, Double.POSITIVE_INFINITY if the edges enclose z.
+	 * @param maxArcStep Largest angle between consecutive vertices on the circle.
+	 */
+	private RotationalSweep(double[] x, double[] y, int[] from, int[] to, int count, double zx, double zy,
+			double radius, double maxArcStep) {
+		this.x = x;
+		this.y = y;
+		this.zx = zx;
+		this.zy = zy;
+		this.radius = radius;
+		this.maxArcStep = maxArcStep;
+
+		a = new int[count];
+		b = new int[count];
+
+		int m = 0;
+		for (int i = 0; i < count; i++) {
+			double o = Predicates.orient2d(zx, zy, x[from[i]], y[from[i]], x[to[i]], y[to[i]]);
+
+			// edges on a line through z don't block any ray but the one along them
+			if (o == 0)
+				continue;
+
+			a[m] = (o > 0) ? from[i] : to[i];
+			b[m] = (o > 0) ? to[i] : from[i];
+			m++;
+		}
+
+		edges = m;
+	}
+
+	/**
+	 * Computes the visibility polygon from z, which must lie in the interior of the region bounded by the rings.
+	 * @param x x coordinates of the vertices of all rings (outer polygon and holes).
+	 * @param y y coordinates of the vertices.
+	 * @param next Index of the next vertex of the same ring, i.e. the edges are (i, next[i]).
+	 * @param z Viewpoint.
+	 * @return Visibility polygon in CCW order.
+	 */
+	static CCWPolygon computeVisPol(double[] x, double[] y, int[] next, Point2D z) {
+		int n = x.length;
+		int[] from = new int[n];
+		for (int i = 0; i < n; i++)
+			from[i] = i;
+
+		return new RotationalSweep(x, y, from, next, n, z.getX(), z.getY(), Double.POSITIVE_INFINITY, 0).sweep();
+	}
+
+	/**
+	 * Computes the part of the visibility polygon from z within distance radius of z. The edges are clipped to the disk
+	 * first, edges outside of it are dropped, so the sweep only handles the geometry in range. Arcs of the circle are
+	 * approximated by chords deviating at most tolerance from the circle.
+	 * @param x x coordinates of the vertices of all rings.
+	 * @param y y coordinates of the vertices.
+	 * @param next Index of the next vertex of the same ring, i.e. the edges are (i, next[i]).
+	 * @param z Viewpoint in the interior of the region bounded by the rings.
+	 * @param radius Range of the view.
+	 * @param tolerance Largest distance between an arc and its chords.
+	 * @return Visibility polygon within range in CCW order.
+	 */
+	static CCWPolygon computeVisPolInRange(double[] x, double[] y, int[] next, Point2D z, double radius, double tolerance) {
+		int n = x.length;
+		double zx = z.getX(), zy = z.getY();
+
+		// endpoints inside of the disk are kept, intersections with the circle are appended
+		double[] cx = Arrays.copyOf(x, 3 * n);
+		double[] cy = Arrays.copyOf(y, 3 * n);
+		int[] from = new int[n];
+		int[] to = new int[n];
+		int points = n, count = 0;
+
+		for (int i = 0; i < n; i++) {
+			int j = next[i];
+			double dx = x[j] - x[i], dy = y[j] - y[i];
+			double fx = x[i] - zx, fy = y[i] - zy;
+
+			// |f + t * d| = radius
+			double qa = dx * dx + dy * dy;
+			double qb = fx * dx + fy * dy;
+			double qc = fx * fx + fy * fy - radius * radius;
+			double disc = qb * qb - qa * qc;
+
+			// the line misses or touches the circle
+			if (disc <= 0)
+				continue;
+
+			double sqrt = Math.sqrt(disc);
+			double t1 = Math.max(0, (-qb - sqrt) / qa);
+			double t2 = Math.min(1, (-qb + sqrt) / qa);
+
+			// the segment lies outside of the disk
+			if (t1 >= t2)
+				continue;
+
+			from[count] = (t1 == 0) ? i : points;
+			if (t1 > 0) {
+				cx[points] = x[i] + t1 * dx;
+				cy[points++] = y[i] + t1 * dy;
+			}
+
+			to[count] = (t2 == 1) ? j : points;
+			if (t2 < 1) {
+				cx[points] = x[i] + t2 * dx;
+				cy[points++] = y[i] + t2 * dy;
+			}
+
+			count++;
+		}
+
+		return new RotationalSweep(cx, cy, from, to, count, zx, zy, radius, maxArcStep(radius, tolerance)).sweep();
+	}
+
+	/**
+	 * @return Largest angle at the center such that the chord deviates at most tolerance from the arc, at most a quarter turn.
+	 */
+	static double maxArcStep(double radius, double tolerance) {
+		if (tolerance >= radius)
+			return Math.PI / 2;
+
+		return Math.min(Math.PI / 2, 2 * Math.acos(1 - tolerance / radius));
+	}
+
+	private CCWPolygon sweep() {
+		// events are encoded as 2 * edge for the first endpoint (insertion), 2 * edge + 1 for the second one (removal)
+		Integer[] events = new Integer[2 * edges];
+
+		for (int e = 0; e < edges; e++) {
+			events[2 * e] = 2 * e;
+			events[2 * e + 1] = 2 * e + 1;
+		}
+
+		Arrays.sort(events, (e1, e2) -> compareAngles(eventVertex(e1), eventVertex(e2)));
+
+		// edges crossed by the ray just before direction (1, 0), i.e. from the lower half plane to the upper one
+		TreeSet<Integer> status = new TreeSet<>(this::compareEdges);
+
+		for (int e = 0; e < edges; e++) {
+			if (half(a[e]) == 1 && half(b[e]) == 0)
+				status.add(e);
+		}
+
+		// at most two vertices per event, plus the vertices of the arcs (at most a full turn in total) if the range is limited
+		int arcVertices = (radius < Double.POSITIVE_INFINITY) ? (int) Math.ceil(2 * Math.PI / maxArcStep) + events.length + 1 : 0;
+		double[] px = new double[2 * events.length + arcVertices + 1];
+		double[] py = new double[px.length];
+		double[] hit = new double[2];
+		int m = 0;
+
+		// direction in which the ray left the last edge while no edge is in range, the first direction in which an edge is hit
+		double arcX = Double.NaN, arcY = Double.NaN;
+		double firstX = Double.NaN, firstY = Double.NaN;
+
+		for (int i = 0; i < events.length; ) {
+			int v = eventVertex(events[i]);
+			double dx = x[v] - zx, dy = y[v] - zy;
+
+			// events at the same angle
+			int j = i;
+			while (j < events.length && compareAngles(v, eventVertex(events[j])) == 0)
+				j++;
+
+			Integer before = status.isEmpty() ? null : status.first();
+
+			// removals before insertions, edges meeting at a vertex are never in the tree together
+			for (int k = i; k < j; k++) {
+				if ((events[k] & 1) == 1)
+					status.remove(events[k] >> 1);
+			}
+
+			for (int k = i; k < j; k++) {
+				if ((events[k] & 1) == 0)
+					status.add(events[k] >> 1);
+			}
+
+			Integer after = status.isEmpty() ? null : status.first();
+
+			if (!Objects.equals(before, after)) {
+				if (before != null) {
+					hitPoint(before, v, hit);
+					m = VisibilityPolygon.appendVertex(px, py, m, hit[0], hit[1]);
+				} else {
+					// the ray reaches an edge again after the arc
+					if (Double.isNaN(arcX)) {
+						firstX = dx;
+						firstY = dy;
+					} else {
+						m = appendArc(px, py, m, arcX, arcY, dx, dy);
+					}
+
+					m = appendCirclePoint(px, py, m, dx, dy);
+				}
+
+				if (after != null) {
+					hitPoint(after, v, hit);
+					m = VisibilityPolygon.appendVertex(px, py, m, hit[0], hit[1]);
+				} else {
+					// no edge in range, the boundary continues on the circle
+					m = appendCirclePoint(px, py, m, dx, dy);
+					arcX = dx;
+					arcY = dy;
+				}
+			}
+
+			i = j;
+		}
+
+		// the ray ends between two edges, the arc is closed at the first edge hit
+		if (radius < Double.POSITIVE_INFINITY && status.isEmpty()) {
+			if (Double.isNaN(firstX)) {
+				// no edge in range at all
+				m = appendCirclePoint(px, py, m, 1, 0);
+				m = appendArc(px, py, m, 1, 0, 1, 0);
+			} else {
+				m = appendArc(px, py, m, arcX, arcY, firstX, firstY);
+			}
+		}
+
+		m = VisibilityPolygon.closeVertices(px, py, m);
+
+		List<Point2D> vertices = new ArrayList<>(m);
+		for (int i = 0; i < m; i++)
+			vertices.add(new Point2D.Double(px[i], py[i]));
+
+		return new CCWPolygon(vertices);
+	}
+
+	// appends the point on the circle in direction (dx, dy) from z
+	private int appendCirclePoint(double[] px, double[] py, int m, double dx, double dy) {
+		double scale = radius / Math.sqrt(dx * dx + dy * dy);
+		return VisibilityPolygon.appendVertex(px, py, m, zx + scale * dx, zy + scale * dy);
+	}
+
+	private int appendArc(double[] px, double[] py, int m, double fromX, double fromY, double toX, double toY) {
+		return appendArc(px, py, m, zx, zy, radius, maxArcStep, fromX, fromY, toX, toY);
+	}
+
+	/**
+	 * Appends the points strictly between the directions (fromX, fromY) and (toX, toY) on the CCW arc of the circle around z,
+	 * a full turn for equal directions.
+	 * @return New number of vertices.
+	 */
+	private static int appendArc(double[] px, double[] py, int m, double zx, double zy, double radius, double maxArcStep,
+			double fromX, double fromY, double toX, double toY) {
+		double start = Math.atan2(fromY, fromX);
+		double span = Math.atan2(toY, toX) - start;
+
+		if (span <= 0)
+			span += 2 * Math.PI;
+
+		int steps = (int) Math.ceil(span / maxArcStep);
+
+		for (int k = 1; k < steps; k++) {
+			double angle = start + span * k / steps;
+			m = VisibilityPolygon.appendVertex(px, py, m, zx + radius * Math.cos(angle), zy + radius * Math.sin(angle));
+		}
+
+		return m;
+	}
+
+	/**
+	 * Clips a polygon that is star-shaped with respect to z (e.g. a visibility polygon from z) to the disk of the given radius around z.
+	 * Parts of the boundary outside of the disk are replaced by arcs, approximated by chords deviating at most tolerance from the circle.
+	 * @param pol Star-shaped polygon in CCW order, z lies in its kernel (boundary is fine too).
+	 * @param z Center of the disk.
+	 * @param radius Radius of the disk.
+	 * @param tolerance Largest distance between an arc and its chords.
+	 * @return Clipped polygon in CCW order.
+	 */
+	static CCWPolygon clipToDisk(CCWPolygon pol, Point2D z, double radius, double tolerance) {
+		List<Point2D> vertices = pol.getVertices();
+		int n = vertices.size();
+		double zx = z.getX(), zy = z.getY();
+		double maxArcStep = maxArcStep(radius, tolerance);
+
+		// part of each edge inside of the disk, NaN if there is none
+		double[] t1 = new double[n], t2 = new double[n];
+		int parts = 0;
+
+		for (int i = 0; i < n; i++) {
+			Point2D p = vertices.get(i), q = vertices.get((i + 1) % n);
+			double dx = q.getX() - p.getX(), dy = q.getY() - p.getY();
+			double fx = p.getX() - zx, fy = p.getY() - zy;
+
+			double qa = dx * dx + dy * dy;
+			double qb = fx * dx + fy * dy;
+			double disc = qb * qb - qa * (fx * fx + fy * fy - radius * radius);
+
+			t1[i] = t2[i] = Double.NaN;
+
+			if (qa == 0 || disc <= 0)
+				continue;
+
+			double lo = Math.max(0, (-qb - Math.sqrt(disc)) / qa);
+			double hi = Math.min(1, (-qb + Math.sqrt(disc)) / qa);
+
+			if (lo < hi) {
+				t1[i] = lo;
+				t2[i] = hi;
+				parts++;
+			}
+		}
+
+		double[] px = new double[2 * n + (int) Math.ceil(2 * Math.PI / maxArcStep) + n + 1];
+		double[] py = new double[px.length];
+		int m = 0;
+
+		for (int i = 0; i < n; i++) {
+			if (Double.isNaN(t1[i]))
+				continue;
+
+			Point2D p = vertices.get(i), q = vertices.get((i + 1) % n);
+			double dx = q.getX() - p.getX(), dy = q.getY() - p.getY();
+
+			m = VisibilityPolygon.appendVertex(px, py, m, p.getX() + t1[i] * dx, p.getY() + t1[i] * dy);
+			m = VisibilityPolygon.appendVertex(px, py, m, p.getX() + t2[i] * dx, p.getY() + t2[i] * dy);
+
+			// the boundary leaves the disk, the arc ends where the next part enters it
+			if (t2[i] < 1) {
+				int j = (i + 1) % n;
+				while (Double.isNaN(t1[j]))
+					j = (j + 1) % n;
+
+				Point2D r = vertices.get(j), s = vertices.get((j + 1) % n);
+				double ex = r.getX() + t1[j] * (s.getX() - r.getX()) - zx;
+				double ey = r.getY() + t1[j] * (s.getY() - r.getY()) - zy;
+
+				m = appendArc(px, py, m, zx, zy, radius, maxArcStep,
+						p.getX() + t2[i] * dx - zx, p.getY() + t2[i] * dy - zy, ex, ey);
+			}
+		}
+
+		// the whole disk lies in the polygon
+		if (parts == 0) {
+			m = VisibilityPolygon.appendVertex(px, py, m, zx + radius, zy);
+			m = appendArc(px, py, m, zx, zy, radius, maxArcStep, 1, 0, 1, 0);
+		}
+
+		m = VisibilityPolygon.closeVertices(px, py, m);
+
+		List<Point2D> ret = new ArrayList<>(m);
+		for (int i = 0; i < m; i++)
+			ret.add(new Point2D.Double(px[i], py[i]));
+
+		return new CCWPolygon(ret);
+	}
+
+	// vertex at which the event (see sweep) happens
+	private int eventVertex(int e) {
+		return ((e & 1) == 0) ? a[e >> 1] : b[e >> 1];
+	}
+
+	// 0 for vertices in direction [0, PI) from z, 1 for [PI, 2 * PI)
+	private int half(int p) {
+		return (y[p] > zy || (y[p] == zy && x[p] > zx)) ? 0 : 1;
+	}
+
+	// order of the directions from z to p and q, starting at direction (1, 0)
+	private int compareAngles(int p, int q) {
+		int hp = half(p), hq = half(q);
+
+		if (hp != hq)
+			return Integer.compare(hp, hq);
+
+		double o = Predicates.orient2d(zx, zy, x[p], y[p], x[q], y[q]);
+		return (o > 0) ? -1 : (o < 0) ? 1 : 0;
+	}
+
+	/**
+	 * Order of two edges crossed by the ray by their distance from z, edges that don't intersect keep their order while both are crossed.
+	 * If t lies on one side of the line through s, then s is closer iff. z lies on the other side, otherwise s lies on one side of the line through t.
+	 * z sees the endpoints of an edge in CCW order, hence z lies left of every edge.
+	 */
+	private int compareEdges(int s, int t) {
+		if (s == t)
+			return 0;
+
+		int side = sideOf(s, t);
+		if (side != 0)
+			return (side > 0) ? 1 : -1;
+
+		side = sideOf(t, s);
+		if (side != 0)
+			return (side > 0) ? -1 : 1;
+
+		// collinear edges can't be crossed by the same ray
+		return Integer.compare(s, t);
+	}
+
+	// side of the line through edge s on which edge t lies, 0 if t crosses it or lies on it
+	private int sideOf(int s, int t) {
+		double o1 = Predicates.orient2d(x[a[s]], y[a[s]], x[b[s]], y[b[s]], x[a[t]], y[a[t]]);
+		double o2 = Predicates.orient2d(x[a[s]], y[a[s]], x[b[s]], y[b[s]], x[b[t]], y[b[t]]);
+
+		if (o1 >= 0 && o2 >= 0 && (o1 > 0 || o2 > 0))
+			return 1;
+		if (o1 <= 0 && o2 <= 0 && (o1 < 0 || o2 < 0))
+			return -1;
+		return 0;
+	}
+
+	// point where the ray from z through vertex v hits edge e, endpoints on the ray are returned exactly
+	private void hitPoint(int e, int v, double[] hit) {
+		int p = a[e], q = b[e];
+
+		if (Predicates.orient2d(zx, zy, x[v], y[v], x[p], y[p]) == 0) {
+			hit[0] = x[p];
+			hit[1] = y[p];
+			return;
+		}
+
+		if (Predicates.orient2d(zx, zy, x[v], y[v], x[q], y[q]) == 0) {
+			hit[0] = x[q];
+			hit[1] = y[q];
+			return;
+		}
+
+		double dx = x[v] - zx, dy = y[v] - zy;
+		double ex = x[q] - x[p], ey = y[q] - y[p];
+		double t = ((x[p] - zx) * ey - (y[p] - zy) * ex) / (dx * ey - dy * ex);
+
+		hit[0] = zx + t * dx;
+		hit[1] = zy + t * dy;
+	}
+}
@@ -0,0 +1,169 @@
+package visibilityPolygon;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Shamos-Hoey sweep deciding in O(n log n) time whether the edges of a polygon intersect only
+ * where consecutive edges share their common vertex (i.e. whether the polygon is simple).
+ *
+ * A vertical line sweeps the endpoints in lexicographic (x, then y) order and keeps the edges it
+ * currently crosses sorted from bottom to top. If any two edges intersect, two of them intersect
+ * that are neighbors in this order at some point, hence only neighbors are tested: when an edge
+ * is inserted against its new neighbors and when an edge is removed its two neighbors against each other.
+ *
+ * Based on: M. I. Shamos and D. Hoey (1976), Geometric intersection problems.
+ */
+final class SimplicityTest {
+
+	private final double[] x, y;
+	private final int n;
+
+	private SimplicityTest(double[] x, double[] y) {
+		this.x = x;
+		this.y = y;
+		this.n = x.length;
+	}
+
+	/**
+	 * @param x x coordinates of the vertices of the polygon.
+	 * @param y y coordinates of the vertices.
+	 * @return true iff. the polygon has at least 3 vertices and its boundary doesn't touch or cross itself.
+	 */
+	static boolean isSimple(double[] x, double[] y) {
+		return x.length >= 3 && new SimplicityTest(x, y).sweep();
+	}
+
+	private boolean sweep() {
+		// events are encoded as 2 * edge for the left (lexicographically smaller) endpoint, 2 * edge + 1 for the right one
+		Integer[] events = new Integer[2 * n];
+
+		for (int i = 0; i < n; i++) {
+			// edges of length 0 make the polygon degenerate
+			if (x[i] == x[next(i)] && y[i] == y[next(i)])
+				return false;
+
+			events[2 * i] = 2 * i;
+			events[2 * i + 1] = 2 * i + 1;
+		}
+
+		// insertions before removals at the same point, so edges touching there meet in the status
+		Arrays.sort(events, (e1, e2) -> {
+			int p1 = eventVertex(e1), p2 = eventVertex(e2);
+
+			if (x[p1] != x[p2])
+				return Double.compare(x[p1], x[p2]);
+			if (y[p1] != y[p2])
+				return Double.compare(y[p1], y[p2]);
+			return Integer.compare(e1 & 1, e2 & 1);
+		});
+
+		// edges crossed by the sweep line from bottom to top
+		TreeSet<Integer> status = new TreeSet<>(this::compareEdges);
+
+		for (int e : events) {
+			int edge = e >> 1;
+
+			if ((e & 1) == 0) {
+				status.add(edge);
+
+				Integer below = status.lower(edge);
+				Integer above = status.higher(edge);
+
+				if ((below != null && intersect(below, edge)) || (above != null && intersect(edge, above)))
+					return false;
+			} else {
+				Integer below = status.lower(edge);
+				Integer above = status.higher(edge);
+
+				if (below != null && above != null && intersect(below, above))
+					return false;
+
+				status.remove(edge);
+			}
+		}
+
+		return true;
+	}
+
+	private int next(int i) {
+		return (i + 1) % n;
+	}
+
+	// vertex at which the event (see sweep) happens
+	private int eventVertex(int e) {
+		return ((e & 1) == 0) ? left(e >> 1) : right(e >> 1);
+	}
+
+	private int left(int edge) {
+		return lexLess(edge, next(edge)) ? edge : next(edge);
+	}
+
+	private int right(int edge) {
+		return lexLess(edge, next(edge)) ? next(edge) : edge;
+	}
+
+	private boolean lexLess(int a, int b) {
+		return x[a] < x[b] || (x[a] == x[b] && y[a] < y[b]);
+	}
+
+	/**
+	 * Order of two edges crossed by the sweep line, edges that don't intersect keep their order while both are crossed.
+	 * An edge t is above edge s if the endpoint of t that lies in the x range of s lies left of s directed
+	 * from its left to its right endpoint (the lexicographic order treats vertical edges as if slightly tilted).
+	 */
+	private int compareEdges(int s, int t) {
+		if (s == t)
+			return 0;
+
+		if (lexLess(left(t), left(s)))
+			return -compareEdges(t, s);
+
+		int sl = left(s), sr = right(s);
+
+		double o = Predicates.orient2d(x[sl], y[sl], x[sr], y[sr], x[left(t)], y[left(t)]);
+
+		if (o == 0)
+			o = Predicates.orient2d(x[sl], y[sl], x[sr], y[sr], x[right(t)], y[right(t)]);
+
+		if (o != 0)
+			return (o > 0) ? -1 : 1;
+
+		// collinear edges, they are tested against each other as neighbors
+		return Integer.compare(s, t);
+	}
+
+	// true iff. the edges intersect anywhere but in the common vertex of consecutive edges
+	private boolean intersect(int s, int t) {
+		if (next(s) == t || next(t) == s) {
+			int v = (next(s) == t) ? t : s;	// common vertex
+			int a = (v == t) ? s : t;		// other endpoint of the edge ending in v
+			int b = next(v);				// other endpoint of the edge starting in v
+
+			// consecutive edges only overlap if the boundary folds back onto itself at v
+			return Predicates.orient2d(x[a], y[a], x[v], y[v], x[b], y[b]) == 0 &&
+				   (x[a] - x[v]) * (x[b] - x[v]) + (y[a] - y[v]) * (y[b] - y[v]) > 0;
+		}
+
+		int a = s, b = next(s), c = t, d = next(t);
+
+		double o1 = Predicates.orient2d(x[a], y[a], x[b], y[b], x[c], y[c]);
+		double o2 = Predicates.orient2d(x[a], y[a], x[b], y[b], x[d], y[d]);
+		double o3 = Predicates.orient2d(x[c], y[c], x[d], y[d], x[a], y[a]);
+		double o4 = Predicates.orient2d(x[c], y[c], x[d], y[d], x[b], y[b]);
+
+		// proper crossing
+		if (((o1 > 0 && o2 < 0) || (o1 < 0 && o2 > 0)) && ((o3 > 0 && o4 < 0) || (o3 < 0 && o4 > 0)))
+			return true;
+
+		// an endpoint touches the other edge
+		return (o1 == 0 && inBox(c, a, b)) || (o2 == 0 && inBox(d, a, b)) ||
+			   (o3 == 0 && inBox(a, c, d)) || (o4 == 0 && inBox(b, c, d));
+	}
+
+	// true iff. vertex p lies in the bounding box of vertices a and b
+	private boolean inBox(int p, int a, int b) {
+		return Math.min(x[a], x[b]) <= x[p] && x[p] <= Math.max(x[a], x[b]) &&
+			   Math.min(y[a], y[b]) <= y[p] && y[p] <= Math.max(y[a], y[b]);
+	}
+}
@@ -0,0 +1,550 @@
+package visibilityPolygon;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Triangulation of a simple polygon in O(n log n) time and shortest path trees inside of it in O(n log n) time.
+ *
+ * A vertical line sweeps the vertices in lexicographic (x, then y) order and splits the polygon into x-monotone pieces
+ * by diagonals from split and merge vertices to the helpers of the edges below them. Each piece is triangulated with a stack
+ * of the vertices whose diagonals are still missing.
+ *
+ * The shortest paths from a source vertex are found by walking the dual tree of the triangulation. Each diagonal crossed
+ * carries a funnel: the shortest paths to its endpoints, which share a path up to the apex and split into two chains
+ * that are convex towards the inside of the funnel. The path to the third vertex of the next triangle leaves the funnel
+ * at the vertex where its line touches the funnel, which splits the funnel into the funnels of the two other edges.
+ * The funnel is kept in one array: a split overwrites one entry next to the tangent vertex, which is restored when the
+ * walk returns, hence no funnel is copied.
+ *
+ * Based on: M. de Berg, O. Cheong, M. van Kreveld, M. Overmars (2008), Computational Geometry: Algorithms and Applications,
+ * chapter 3, and D. T. Lee, F. P. Preparata (1984), Euclidean shortest paths in the presence of rectilinear barriers,
+ * as used by L. Guibas, J. Hershberger, D. Leven, M. Sharir, R. Tarjan (1987), Linear-time algorithms for visibility
+ * and shortest path problems inside triangulated simple polygons.
+ */
+final class Triangulation {
+
+	private final double[] x, y;
+	private final int n;
+
+	// vertices of the triangles in CCW order, 3 per triangle
+	private int[] triangles;
+	private int count;
+
+	// triangle across the edge from the k-th to the (k + 1)-th vertex of triangle t at 3 * t + k, -1 for edges of the polygon
+	private int[] adjacent;
+
+	// diagonals splitting the polygon into monotone pieces, from diagonals[2 * i] to diagonals[2 * i + 1]
+	private int[] diagonals = new int[16];
+	private int diagonalCount;
+
+	/**
+	 * @param x x coordinates of the vertices of the polygon in CCW order.
+	 * @param y y coordinates of the vertices.
+	 * @param n Number of vertices, the arrays may be longer.
+	 */
+	Triangulation(double[] x, double[] y, int n) {
+		this.x = x;
+		this.y = y;
+		this.n = n;
+
+		triangles = new int[3 * Math.max(1, n - 2)];
+
+		decompose();
+		triangulatePieces();
+		connect();
+	}
+
+	// number of triangles, n - 2 for simple polygons
+	int size() {
+		return count;
+	}
+
+	// k-th vertex of triangle t in CCW order
+	int vertex(int t, int k) {
+		return triangles[3 * t + k];
+	}
+
+	/**
+	 * Computes the tree of the shortest paths inside the polygon from a vertex to all vertices.
+	 * @param source Index of the vertex the paths start at.
+	 * @param parent Receives the predecessor of each vertex on its shortest path from source, -1 for the source
+	 * (and for vertices not reached because of rounding errors).
+	 * @param order Receives the vertices reached, parents before their children.
+	 * @return Number of vertices reached.
+	 */
+	int shortestPathTree(int source, int[] parent, int[] order) {
+		Arrays.fill(parent, 0, n, -1);
+
+		int t0 = -1, k0 = -1;
+		for (int t = 0; t < count && t0 < 0; t++) {
+			for (int k = 0; k < 3; k++) {
+				if (triangles[3 * t + k] == source) {
+					t0 = t;
+					k0 = k;
+				}
+			}
+		}
+
+		int reached = 0;
+		order[reached++] = source;
+
+		if (t0 < 0)
+			return reached;
+
+		// the vertices of the first triangle see the source
+		int p = triangles[3 * t0 + (k0 + 1) % 3];
+		int q = triangles[3 * t0 + (k0 + 2) % 3];
+		parent[p] = source;
+		parent[q] = source;
+		order[reached++] = p;
+		order[reached++] = q;
+
+		// funnels grow by at most one entry to each side per triangle
+		int[] funnel = new int[2 * n + 8];
+		int c = n + 3;
+
+		// funnels of the edges from source to p, from p to q and from q to source, each from its left to its right endpoint
+		funnel[c] = p;
+		funnel[c + 1] = source;
+		reached = walk(adjacent[3 * t0 + k0], funnel, c, c + 1, c + 1, parent, order, reached);
+
+		funnel[c] = q;
+		funnel[c + 1] = source;
+		funnel[c + 2] = p;
+		reached = walk(adjacent[3 * t0 + (k0 + 1) % 3], funnel, c, c + 2, c + 1, parent, order, reached);
+
+		funnel[c] = source;
+		funnel[c + 1] = q;
+		reached = walk(adjacent[3 * t0 + (k0 + 2) % 3], funnel, c, c + 1, c, parent, order, reached);
+
+		return reached;
+	}
+
+	/**
+	 * Walks the subtree of the dual tree behind a diagonal with an explicit stack (the dual tree may be as deep as the polygon is large).
+	 * Frames are (triangle, lo, hi, apex, index, vertex): the funnel is funnel[lo..hi] with its apex at funnel[apex] after
+	 * funnel[index] was set to vertex. Frames with triangle -1 restore funnel[index] to vertex.
+	 * @param t Triangle behind the diagonal from funnel[lo] to funnel[hi] (on its left), -1 if it is an edge of the polygon.
+	 * @return New number of vertices reached.
+	 */
+	private int walk(int t, int[] funnel, int lo, int hi, int apex, int[] parent, int[] order, int reached) {
+		if (t < 0)
+			return reached;
+
+		int[] stack = new int[6 * 16];
+		int top = 0;
+		stack = push(stack, top++, t, lo, hi, apex, -1, 0);
+
+		while (top > 0) {
+			int at = 6 * --top;
+			t = stack[at];
+			lo = stack[at + 1];
+			hi = stack[at + 2];
+			apex = stack[at + 3];
+			int index = stack[at + 4], vertex = stack[at + 5];
+
+			if (t < 0) {
+				funnel[index] = vertex;
+				continue;
+			}
+
+			if (index >= 0) {
+				stack = push(stack, top++, -1, 0, 0, 0, index, funnel[index]);
+				funnel[index] = vertex;
+			}
+
+			// the triangle is entered by its edge from l to r, w is the vertex opposite of it
+			int l = funnel[lo], r = funnel[hi], k = 0;
+			while (k < 3 && (triangles[3 * t + k] != l || triangles[3 * t + (k + 1) % 3] != r))
+				k++;
+
+			// rounding errors made the triangulation inconsistent
+			if (k == 3)
+				continue;
+
+			int w = triangles[3 * t + (k + 2) % 3];
+			if (parent[w] >= 0 || w == order[0])
+				continue;
+
+			int tangent = tangent(funnel, lo, hi, apex, w);
+			parent[w] = funnel[tangent];
+			order[reached++] = w;
+
+			// funnel of the edge from w to r: w, then the funnel from the tangent vertex on, and of the edge from l to w
+			int next = adjacent[3 * t + (k + 1) % 3];
+			if (next >= 0)
+				stack = push(stack, top++, next, tangent - 1, hi, Math.max(apex, tangent), tangent - 1, w);
+
+			next = adjacent[3 * t + (k + 2) % 3];
+			if (next >= 0)
+				stack = push(stack, top++, next, lo, tangent + 1, Math.min(apex, tangent), tangent + 1, w);
+		}
+
+		return reached;
+	}
+
+	private static int[] push(int[] stack, int top, int t, int lo, int hi, int apex, int index, int vertex) {
+		if (6 * top + 6 > stack.length)
+			stack = Arrays.copyOf(stack, 2 * stack.length);
+
+		int at = 6 * top;
+		stack[at] = t;
+		stack[at + 1] = lo;
+		stack[at + 2] = hi;
+		stack[at + 3] = apex;
+		stack[at + 4] = index;
+		stack[at + 5] = vertex;
+
+		return stack;
+	}
+
+	/**
+	 * Finds the vertex of the funnel at which the shortest path to w leaves it, by binary search on both chains:
+	 * w lies beyond the extensions of the edges of a chain (on their outer side) up to the vertex the path leaves at.
+	 * Paths pass through the vertices they touch, hence w on the extension of an edge counts as beyond it.
+	 * @return Index of the vertex in the funnel.
+	 */
+	private int tangent(int[] funnel, int lo, int hi, int apex, int w) {
+		// left chain from the apex to funnel[lo], its edges are directed away from the apex
+		int i = lo, j = apex;
+		while (i < j) {
+			int mid = (i + j) >>> 1;
+
+			if (orient(funnel[mid + 1], funnel[mid], w) >= 0)
+				j = mid;
+			else
+				i = mid + 1;
+		}
+
+		if (i < apex)
+			return i;
+
+		// right chain from the apex to funnel[hi]
+		j = hi;
+		while (i < j) {
+			int mid = (i + j) >>> 1;
+
+			if (orient(funnel[mid], funnel[mid + 1], w) <= 0)
+				i = mid + 1;
+			else
+				j = mid;
+		}
+
+		return i;
+	}
+
+	/**
+	 * Sweeps the vertices and adds the diagonals splitting the polygon into x-monotone pieces. The sweep line keeps the edges
+	 * it crosses that have the polygon above them, each with its helper: the last vertex swept that sees the edge from above.
+	 */
+	private void decompose() {
+		Integer[] events = new Integer[n];
+		for (int i = 0; i < n; i++)
+			events[i] = i;
+
+		Arrays.sort(events, (a, b) -> lexLess(a, b) ? -1 : lexLess(b, a) ? 1 : 0);
+
+		int[] helper = new int[n];
+		boolean[] merge = new boolean[n];
+
+		// edges from i to i + 1 running in sweep direction, from bottom to top
+		TreeSet<Integer> status = new TreeSet<>(this::compareEdges);
+
+		for (int v : events) {
+			int u = prev(v), w = next(v);
+			boolean convex = orient(u, v, w) > 0;
+
+			if (lexLess(v, u) && lexLess(v, w)) {
+				// start or split vertex, a split vertex is connected to the helper of the edge below
+				if (!convex) {
+					Integer below = status.lower(~v);
+					if (below != null) {
+						addDiagonal(v, helper[below]);
+						helper[below] = v;
+					}
+				}
+
+				status.add(v);
+				helper[v] = v;
+			} else if (lexLess(u, v) && lexLess(w, v)) {
+				// end or merge vertex
+				if (merge[helper[u]])
+					addDiagonal(v, helper[u]);
+				status.remove(u);
+
+				if (!convex) {
+					merge[v] = true;
+					below(v, status, helper, merge);
+				}
+			} else if (lexLess(u, v)) {
+				// the boundary runs in sweep direction, the polygon lies above v
+				if (merge[helper[u]])
+					addDiagonal(v, helper[u]);
+				status.remove(u);
+				status.add(v);
+				helper[v] = v;
+			} else {
+				// the polygon lies below v
+				below(v, status, helper, merge);
+			}
+		}
+	}
+
+	// v becomes the helper of the edge below it, a merge vertex helping it before is connected to v
+	private void below(int v, TreeSet<Integer> status, int[] helper, boolean[] merge) {
+		Integer below = status.lower(~v);
+
+		if (below != null) {
+			if (merge[helper[below]])
+				addDiagonal(v, helper[below]);
+			helper[below] = v;
+		}
+	}
+
+	private void addDiagonal(int a, int b) {
+		if (2 * diagonalCount + 2 > diagonals.length)
+			diagonals = Arrays.copyOf(diagonals, 2 * diagonals.length);
+
+		diagonals[2 * diagonalCount] = a;
+		diagonals[2 * diagonalCount + 1] = b;
+		diagonalCount++;
+	}
+
+	/**
+	 * Order of two edges of the status, both run from their left to their right endpoint. An edge t is above edge s if
+	 * the endpoint of t that lies in the x range of s lies left of s. ~v stands for vertex v, hence status.lower(~v)
+	 * is the edge below v.
+	 */
+	private int compareEdges(int s, int t) {
+		if (s == t)
+			return 0;
+
+		if (t < 0)
+			return (orient(s, next(s), ~t) >= 0) ? -1 : 1;
+		if (s < 0)
+			return -compareEdges(t, s);
+
+		if (lexLess(t, s))
+			return -compareEdges(t, s);
+
+		double o = orient(s, next(s), t);
+
+		if (o == 0)
+			o = orient(s, next(s), next(t));
+
+		if (o != 0)
+			return (o > 0) ? -1 : 1;
+
+		return Integer.compare(s, t);
+	}
+
+	/**
+	 * Traces the monotone pieces (faces of the polygon and the diagonals, each with the polygon on its left)
+	 * and triangulates them.
+	 */
+	private void triangulatePieces() {
+		// neighbors of each vertex along the polygon and the diagonals, sorted by angle
+		int[] offsets = new int[n + 1];
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] = 2;
+		for (int i = 0; i < 2 * diagonalCount; i++)
+			offsets[diagonals[i] + 1]++;
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] += offsets[i];
+
+		int[] neighbors = new int[offsets[n]];
+		int[] fill = Arrays.copyOf(offsets, n);
+
+		for (int i = 0; i < n; i++) {
+			neighbors[fill[i]++] = prev(i);
+			neighbors[fill[i]++] = next(i);
+		}
+		for (int i = 0; i < diagonalCount; i++) {
+			int a = diagonals[2 * i], b = diagonals[2 * i + 1];
+			neighbors[fill[a]++] = b;
+			neighbors[fill[b]++] = a;
+		}
+
+		for (int v = 0; v < n; v++) {
+			if (offsets[v + 1] - offsets[v] > 2)
+				sortByAngle(v, neighbors, offsets[v], offsets[v + 1]);
+		}
+
+		// edges from v to neighbors[k] already traced, the edges of the polygon in CW order bound the outside
+		boolean[] traced = new boolean[neighbors.length];
+		for (int v = 0; v < n; v++) {
+			for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+				if (neighbors[k] == prev(v) && prev(v) != next(v))
+					traced[k] = true;
+			}
+		}
+
+		int[] piece = new int[n];
+
+		for (int v = 0; v < n; v++) {
+			for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+				if (traced[k])
+					continue;
+
+				// follows the piece on the left of the edge from v, turning right as far as possible at each vertex
+				int size = 0;
+				int u = v, at = k;
+
+				while (!traced[at] && size < n) {
+					traced[at] = true;
+					piece[size++] = u;
+
+					int w = neighbors[at];
+					int back = offsets[w];
+					while (back < offsets[w + 1] && neighbors[back] != u)
+						back++;
+
+					int degree = offsets[w + 1] - offsets[w];
+					at = offsets[w] + (back - offsets[w] + degree - 1) % degree;
+					u = w;
+				}
+
+				triangulateMonotone(piece, size);
+			}
+		}
+	}
+
+	// sorts the neighbors of v in neighbors[from..to - 1] by the angle of the direction from v to them
+	private void sortByAngle(int v, int[] neighbors, int from, int to) {
+		Integer[] sorted = new Integer[to - from];
+		for (int k = from; k < to; k++)
+			sorted[k - from] = neighbors[k];
+
+		Arrays.sort(sorted, (a, b) -> Double.compare(Math.atan2(y[a] - y[v], x[a] - x[v]), Math.atan2(y[b] - y[v], x[b] - x[v])));
+
+		for (int k = from; k < to; k++)
+			neighbors[k] = sorted[k - from];
+	}
+
+	/**
+	 * Triangulates an x-monotone piece: its vertices are merged from the lower chain (CCW from the leftmost vertex) and the upper chain
+	 * in sweep order, the stack holds the vertices whose diagonals to later vertices are still missing, they form a reflex chain.
+	 */
+	private void triangulateMonotone(int[] piece, int size) {
+		if (size < 3)
+			return;
+
+		int first = 0, last = 0;
+		for (int i = 1; i < size; i++) {
+			if (lexLess(piece[i], piece[first]))
+				first = i;
+			if (lexLess(piece[last], piece[i]))
+				last = i;
+		}
+
+		int[] sorted = new int[size];
+		boolean[] upper = new boolean[size];
+		sorted[0] = piece[first];
+
+		for (int k = 1, i = (first + 1) % size, j = (first + size - 1) % size; k < size; k++) {
+			if (i != last && (j == last || lexLess(piece[i], piece[j]))) {
+				sorted[k] = piece[i];
+				i = (i + 1) % size;
+			} else {
+				sorted[k] = piece[j];
+				upper[k] = j != last;
+				j = (j + size - 1) % size;
+			}
+		}
+
+		int[] stack = new int[size];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = 1;
+
+		for (int k = 2; k < size - 1; k++) {
+			if (upper[k] != upper[stack[top - 1]]) {
+				// k sees the whole stack, which lies on the other chain
+				for (; top > 1; top--)
+					addTriangle(sorted[k], sorted[stack[top - 1]], sorted[stack[top - 2]]);
+
+				top = 0;
+				stack[top++] = k - 1;
+				stack[top++] = k;
+			} else {
+				// k sees the stack on its chain as long as the diagonals lie inside of the piece
+				int prev = stack[--top];
+
+				while (top > 0) {
+					double o = orient(sorted[k], sorted[prev], sorted[stack[top - 1]]);
+					if (upper[k] ? o <= 0 : o >= 0)
+						break;
+
+					addTriangle(sorted[k], sorted[prev], sorted[stack[top - 1]]);
+					prev = stack[--top];
+				}
+
+				stack[top++] = prev;
+				stack[top++] = k;
+			}
+		}
+
+		for (; top > 1; top--)
+			addTriangle(sorted[size - 1], sorted[stack[top - 1]], sorted[stack[top - 2]]);
+	}
+
+	private void addTriangle(int a, int b, int c) {
+		if (3 * count + 3 > triangles.length)
+			triangles = Arrays.copyOf(triangles, 2 * triangles.length);
+
+		// CCW order
+		if (orient(a, b, c) < 0) {
+			int t = b;
+			b = c;
+			c = t;
+		}
+
+		triangles[3 * count] = a;
+		triangles[3 * count + 1] = b;
+		triangles[3 * count + 2] = c;
+		count++;
+	}
+
+	// finds the triangles on both sides of each diagonal
+	private void connect() {
+		adjacent = new int[3 * count];
+		Arrays.fill(adjacent, -1);
+
+		Map<Long, Integer> edges = new HashMap<>(4 * count);
+
+		for (int at = 0; at < 3 * count; at++) {
+			int a = triangles[at], b = triangles[at - at % 3 + (at + 1) % 3];
+
+			if (b == next(a) || a == next(b))
+				continue;
+
+			Integer other = edges.remove((long) Math.min(a, b) * n + Math.max(a, b));
+
+			if (other == null) {
+				edges.put((long) Math.min(a, b) * n + Math.max(a, b), at);
+			} else {
+				adjacent[at] = other / 3;
+				adjacent[other] = at / 3;
+			}
+		}
+	}
+
+	private int prev(int i) {
+		return (i + n - 1) % n;
+	}
+
+	private int next(int i) {
+		return (i + 1) % n;
+	}
+
+	private boolean lexLess(int a, int b) {
+		return x[a] < x[b] || (x[a] == x[b] && y[a] < y[b]);
+	}
+
+	private double orient(int a, int b, int c) {
+		return Predicates.orient2d(x[a], y[a], x[b], y[b], x[c], y[c]);
+	}
+}
@@ -0,0 +1,96 @@
+package visibilityPolygon;
+
+import java.util.Arrays;
+
+/**
+ * Array-backed stack of points with their angular displacement as used by advance, retard and scan.
+ * Each point also knows its position on the boundary of the polygon: 2 * i for the vertex v_i, 2 * i + 1 for
+ * points on the edge from v_i to v_{i+1}.
+ * Points are stored as primitives in parallel arrays (x, y, alpha, pos), so pushing and popping doesn't
+ * allocate objects. Elements can be addressed by their distance from the top, so the stack can be
+ * inspected and popped in place without copying it.
+ */
+class VertDisplStack {
+	private double[] x;
+	private double[] y;
+	private double[] alpha;	// angular displacement
+	private int[] pos;	// position on the boundary
+	private int size;
+
+	/**
+	 * Initializes an empty stack.
+	 * @param capacity Expected maximum number of elements, the stack grows if needed.
+	 */
+	public VertDisplStack(int capacity) {
+		capacity = Math.max(capacity, 2);
+
+		x = new double[capacity];
+		y = new double[capacity];
+		alpha = new double[capacity];
+		pos = new int[capacity];
+	}
+
+	public void push(double px, double py, double palpha, int ppos) {
+		if (size == x.length) {
+			x = Arrays.copyOf(x, 2 * size);
+			y = Arrays.copyOf(y, 2 * size);
+			alpha = Arrays.copyOf(alpha, 2 * size);
+			pos = Arrays.copyOf(pos, 2 * size);
+		}
+
+		x[size] = px;
+		y[size] = py;
+		alpha[size] = palpha;
+		pos[size] = ppos;
+		size++;
+	}
+
+	public void pop() {
+		assert (size > 0);
+		size--;
+	}
+
+	/**
+	 * @param k Distance from the top, x(0) is the top of the stack.
+	 * @return x coordinate of the k-th element below the top.
+	 */
+	public double x(int k) {
+		assert (0 <= k && k < size);
+		return x[size - 1 - k];
+	}
+
+	// y coordinate of the k-th element below the top
+	public double y(int k) {
+		assert (0 <= k && k < size);
+		return y[size - 1 - k];
+	}
+
+	// angular displacement of the k-th element below the top
+	public double alpha(int k) {
+		assert (0 <= k && k < size);
+		return alpha[size - 1 - k];
+	}
+
+	// position on the boundary of the k-th element below the top
+	public int pos(int k) {
+		assert (0 <= k && k < size);
+		return pos[size - 1 - k];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder ret = new StringBuilder("[");
+
+		for (int k = 0; k < size; k++) {
+			if (k > 0)
+				ret.append(", ");
+			ret.append("(").append(x(k)).append(", ").append(y(k)).append(", ").append(alpha(k)).append(")");
+		}
+
+		return ret.append("]").toString();
+	}
+}
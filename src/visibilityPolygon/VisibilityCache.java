@@ -0,0 +1,166 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of visibility polygons in front of VisibilityPolygon.computeVisPol, for request streams repeating
+ * the same polygons and viewpoints that differ only by rounding errors.
+ *
+ * An entry is keyed by the polygon (by content, as PreparedPolygon.equals) and the viewpoint snapped to a grid of the given quantum:
+ * viewpoints in the same cell of the grid share the visibility polygon from the first of them. The weight of an entry is the number
+ * of vertices of its visibility polygon, least recently used entries are evicted once the total weight exceeds the capacity,
+ * a visibility polygon with more vertices than the whole capacity is returned but not cached. The entries are split into segments
+ * by the hash of their keys, each segment has a lock of its own (lock striping), so threads working on different keys rarely wait
+ * for each other. Visibility polygons are computed outside of the locks.
+ * Cached visibility polygons are kept as packed coordinates that never change, each call returns a new CCWPolygon,
+ * so callers may modify it (e.g. CCWPolygon.addVertex) without corrupting the cache.
+ * Instances can be shared by any number of threads.
+ *
+ * Usage example:
+
+		VisibilityCache cache = new VisibilityCache(1000000, 1e-9);
+
+		CCWPolygon VP = cache.computeVisPol(pol, z);
+		double hitRate = (double) cache.getHitCount() / (cache.getHitCount() + cache.getMissCount());
+ */
+public final class VisibilityCache {
+
+	private final WeightedLruCache<GridKey, Entry> entries;
+	private final double quantum;
+	private final long capacity;
+
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+	/**
+	 * @param capacity Maximum total number of vertices of the cached visibility polygons, positive.
+	 * @param quantum Side length of the cells viewpoints are snapped to, positive.
+	 */
+	public VisibilityCache(long capacity, double quantum) {
+
+		if (capacity <= 0 || !(quantum > 0) || Double.isInfinite(quantum))
+			throw new IllegalArgumentException("capacity must be positive, quantum positive and finite");
+
+		this.capacity = capacity;
+		this.quantum = quantum;
+
+		entries = new WeightedLruCache<>(capacity, Entry::weight);
+	}
+
+	/**
+	 * Returns the cached visibility polygon for the polygon and the cell of z, computes and caches it on a miss.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Visibility polygon in CCW order (a new instance on every call), null if z lies outside of the polygon
+	 * or the polygon is not simple or not in CCW order.
+	 */
+	public CCWPolygon computeVisPol(CCWPolygon pol, Point2D z) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeVisPol(PreparedPolygon.of(pol), z);
+	}
+
+	/**
+	 * Returns the cached visibility polygon for the polygon and the cell of z, computes and caches it on a miss.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Visibility polygon in CCW order (a new instance on every call), null if z lies outside of the polygon
+	 * or the polygon is not simple or not in CCW order.
+	 */
+	public CCWPolygon computeVisPol(PreparedPolygon pol, Point2D z) {
+
+		// rejected input is neither a hit nor a miss
+		if (pol.size() < 3 || !pol.isValid() || !pol.containsPoint(z))
+			return null;
+
+		GridKey key = new GridKey(pol, Math.round(z.getX() / quantum), Math.round(z.getY() / quantum));
+
+		Entry entry = entries.get(key);
+
+		if (entry != null) {
+			hits.increment();
+			return entry.toCCWPolygon();
+		}
+
+		misses.increment();
+
+		CCWPolygon VP = VisibilityPolygon.computeVisPol(pol, z);
+		Entry added = new Entry(VP);
+
+		// another thread may have cached the cell in the meantime
+		entry = entries.compute(key, old -> (old != null) ? old : added);
+
+		return (entry != null && entry != added) ? entry.toCCWPolygon() : VP;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	// number of entries evicted to stay within the capacity
+	public long getEvictionCount() {
+		return entries.getEvictionCount();
+	}
+
+	// number of cached visibility polygons
+	public int size() {
+		return entries.size();
+	}
+
+	// total number of vertices of the cached visibility polygons
+	public long getWeight() {
+		return entries.getWeight();
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public double getQuantum() {
+		return quantum;
+	}
+
+	// removes all entries, the counters are kept
+	public void clear() {
+		entries.clear();
+	}
+
+	// visibility polygon as packed coordinates, never changed after construction
+	private static final class Entry {
+		final double[] x, y;
+
+		Entry(CCWPolygon VP) {
+			List<Point2D> vertices = VP.getVertices();
+			int m = vertices.size();
+
+			x = new double[m];
+			y = new double[m];
+
+			for (int i = 0; i < m; i++) {
+				x[i] = vertices.get(i).getX();
+				y[i] = vertices.get(i).getY();
+			}
+		}
+
+		int weight() {
+			return x.length;
+		}
+
+		CCWPolygon toCCWPolygon() {
+			List<Point2D> vertices = new ArrayList<>(x.length);
+
+			for (int i = 0; i < x.length; i++)
+				vertices.add(new Point2D.Double(x[i], y[i]));
+
+			return new CCWPolygon(vertices);
+		}
+	}
+}
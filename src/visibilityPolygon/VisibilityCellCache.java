@@ -0,0 +1,171 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of combinatorial visibility polygons, for many viewpoints clustered in large polygons.
+ *
+ * The combinatorial structure of the visibility polygon (which vertices are visible and on which edges the windows end)
+ * is the same for all viewpoints in a cell of the visibility decomposition. Instead of visibility polygons this cache keeps
+ * their templates as VisibilityTracker does: the indices of the visible vertices, the indices of the reflex vertices and edges of the windows,
+ * and the halfplanes bounding the cell. A viewpoint inside all halfplanes of a cached template (or closer to its viewpoint than any
+ * of the critical lines) gets the visibility polygon instantiated from the template in O(k) time, k being the size of the template,
+ * instead of the O(n) time of a full computation.
+ *
+ * Templates are found by the polygon (by content, as PreparedPolygon.equals) and a bucket of a grid of the given size containing
+ * the viewpoint: the templates built from viewpoints in the same bucket are checked, most recent first. A cell spanning multiple
+ * buckets gets a template in each of them. The weight of a bucket is the total size of its templates, least recently used buckets
+ * are evicted once the total weight exceeds the capacity, a template that would make its bucket heavier than the whole capacity
+ * is not cached. Locks are striped over segments of the buckets, visibility polygons and templates are computed outside of the locks.
+ * Templates never change and each call returns a new CCWPolygon.
+ * Instances can be shared by any number of threads.
+ *
+ * Usage example:
+
+		VisibilityCellCache cache = new VisibilityCellCache(1000000, 1);
+
+		for (Point2D z : viewPoints) {
+			CCWPolygon VP = cache.computeVisPol(pol, z);
+			...
+		}
+ */
+public final class VisibilityCellCache {
+
+	// templates checked per bucket, bounds the time spent on viewpoints not covered by any of them
+	private static final int templatesPerBucket = 4;
+
+	// arrays of a bucket are replaced instead of modified, so they can be read outside of the locks, most recent template first
+	private final WeightedLruCache<GridKey, VisibilityTemplate[]> buckets;
+	private final double bucketSize;
+	private final long capacity;
+
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+	/**
+	 * @param capacity Maximum total size of the cached templates (number of vertices plus number of halfplanes), positive.
+	 * @param bucketSize Side length of the buckets templates are looked up in, positive.
+	 */
+	public VisibilityCellCache(long capacity, double bucketSize) {
+
+		if (capacity <= 0 || !(bucketSize > 0) || Double.isInfinite(bucketSize))
+			throw new IllegalArgumentException("capacity must be positive, bucketSize positive and finite");
+
+		this.capacity = capacity;
+		this.bucketSize = bucketSize;
+
+		buckets = new WeightedLruCache<>(capacity, VisibilityCellCache::weight);
+	}
+
+	/**
+	 * Instantiates the visibility polygon from a cached template if z lies in its cell, otherwise computes it and caches its template.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Visibility polygon in CCW order (a new instance on every call), null if z lies outside of the polygon
+	 * or the polygon is not simple or not in CCW order.
+	 */
+	public CCWPolygon computeVisPol(CCWPolygon pol, Point2D z) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeVisPol(PreparedPolygon.of(pol), z);
+	}
+
+	/**
+	 * Instantiates the visibility polygon from a cached template if z lies in its cell, otherwise computes it and caches its template.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Visibility polygon in CCW order (a new instance on every call), null if z lies outside of the polygon
+	 * or the polygon is not simple or not in CCW order.
+	 */
+	public CCWPolygon computeVisPol(PreparedPolygon pol, Point2D z) {
+
+		// rejected input is neither a hit nor a miss
+		if (pol.size() < 3 || !pol.isValid() || !pol.containsPoint(z))
+			return null;
+
+		double zx = z.getX();
+		double zy = z.getY();
+
+		GridKey key = new GridKey(pol, (long) Math.floor(zx / bucketSize), (long) Math.floor(zy / bucketSize));
+
+		VisibilityTemplate[] templates = buckets.get(key);
+
+		if (templates != null) {
+			for (VisibilityTemplate template : templates) {
+				if (template.isValidFor(zx, zy)) {
+					hits.increment();
+					return template.instantiate(zx, zy);
+				}
+			}
+		}
+
+		misses.increment();
+
+		CCWPolygon VP = VisibilityPolygon.computeVisPol(pol, z);
+
+		// degenerate viewpoints (e.g. on the boundary or on a critical line) have no template
+		VisibilityTemplate template = (VP == null) ? null : VisibilityTemplate.build(pol, zx, zy, VP);
+		if (template != null)
+			buckets.compute(key, old -> prepend(template, old));
+
+		return VP;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	// number of buckets evicted to stay within the capacity
+	public long getEvictionCount() {
+		return buckets.getEvictionCount();
+	}
+
+	// number of cached templates
+	public int size() {
+		return (int) buckets.sum(templates -> templates.length);
+	}
+
+	// total size of the cached templates
+	public long getWeight() {
+		return buckets.getWeight();
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public double getBucketSize() {
+		return bucketSize;
+	}
+
+	// removes all templates, the counters are kept
+	public void clear() {
+		buckets.clear();
+	}
+
+	// templates of the bucket with the template in front, the oldest one is dropped from full buckets
+	private static VisibilityTemplate[] prepend(VisibilityTemplate template, VisibilityTemplate[] old) {
+		int count = (old == null) ? 0 : Math.min(old.length, templatesPerBucket - 1);
+
+		VisibilityTemplate[] ret = new VisibilityTemplate[count + 1];
+		ret[0] = template;
+		if (count > 0)
+			System.arraycopy(old, 0, ret, 1, count);
+
+		return ret;
+	}
+
+	private static long weight(VisibilityTemplate[] templates) {
+		long ret = 0;
+		for (VisibilityTemplate template : templates)
+			ret += template.weight();
+
+		return ret;
+	}
+}
@@ -0,0 +1,158 @@
+package visibilityPolygon;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Visibility graph of the vertices of a simple polygon in compressed sparse row (CSR) form:
+ * the neighbors of vertex i (the vertices visible from it, sorted by index) are neighbors[offsets[i]] to neighbors[offsets[i + 1] - 1].
+ * Visibility includes grazing the boundary, hence consecutive vertices of the polygon are always neighbors.
+ * The arrays are not written after the parallel build and getOffsets and getNeighbors return clones of them,
+ * so a graph can be read by several threads without locking.
+ *
+ * Usage example:
+
+		VisibilityGraph graph = VisibilityPolygon.computeVisibilityGraph(PreparedPolygon.of(pol), ForkJoinPool.commonPool());
+
+		for (int k = 0; k < graph.degree(i); k++) {
+			int j = graph.neighbor(i, k);
+			...
+		}
+ */
+public final class VisibilityGraph {
+
+	private final int[] offsets;
+	private final int[] neighbors;
+
+	private VisibilityGraph(int[] offsets, int[] neighbors) {
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+	}
+
+	// number of vertices
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	// number of edges, each edge connects two vertices and is stored once for each of them
+	public int edgeCount() {
+		return neighbors.length / 2;
+	}
+
+	// number of vertices visible from vertex i
+	public int degree(int i) {
+		return offsets[i + 1] - offsets[i];
+	}
+
+	// k-th neighbor of vertex i (by index)
+	public int neighbor(int i, int k) {
+		return neighbors[offsets[i] + k];
+	}
+
+	/**
+	 * @return true iff. vertices i and j see each other, in O(log degree(i)) time.
+	 */
+	public boolean isVisible(int i, int j) {
+		return Arrays.binarySearch(neighbors, offsets[i], offsets[i + 1], j) >= 0;
+	}
+
+	// copy of the offsets, n + 1 entries
+	public int[] getOffsets() {
+		return offsets.clone();
+	}
+
+	// copy of the neighbors, 2 * edgeCount() entries
+	public int[] getNeighbors() {
+		return neighbors.clone();
+	}
+
+	/**
+	 * Computes the neighbors of all vertices in parallel (one run of the scan per vertex, O(n^2) time in total)
+	 * and packs them into CSR form. Whether i and j see each other is decided by the visibility polygon from the smaller
+	 * of both indices only, so rounding errors can't make the graph asymmetric.
+	 * @param pol Valid polygon.
+	 * @param pool Pool executing the computations.
+	 */
+	static VisibilityGraph build(PreparedPolygon pol, ForkJoinPool pool) {
+		int n = pol.size();
+
+		// neighbors with larger indices
+		int[][] rows = new int[n][];
+
+		// ranges of at most minRange vertices are computed sequentially
+		int minRange = Math.max(1, n / (8 * pool.getParallelism()));
+
+		pool.invoke(new RowTask(pol, rows, 0, n, minRange));
+
+		int[] offsets = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] += rows[i].length;
+			for (int j : rows[i])
+				offsets[j + 1]++;
+		}
+
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] += offsets[i];
+
+		// smaller neighbors first (filled in increasing order of i), then the larger ones, hence each row is sorted
+		int[] neighbors = new int[offsets[n]];
+		int[] fill = Arrays.copyOf(offsets, n);
+
+		for (int i = 0; i < n; i++) {
+			for (int j : rows[i])
+				neighbors[fill[j]++] = i;
+
+			System.arraycopy(rows[i], 0, neighbors, fill[i], rows[i].length);
+			fill[i] += rows[i].length;
+		}
+
+		return new VisibilityGraph(offsets, neighbors);
+	}
+
+	/**
+	 * Vertices with larger indices visible from vertex i, sorted by index: the visible vertices come in CCW order
+	 * starting after i, hence the ones with larger indices are the first of them.
+	 * @param visible Buffer for VisibilityPolygon.computeVisibleVertices, reused from row to row.
+	 */
+	private static int[] row(PreparedPolygon pol, int i, int[][] visible) {
+		int count = VisibilityPolygon.computeVisibleVertices(pol, i, visible);
+
+		int degree = 0;
+		while (degree < count && visible[0][degree] > i)
+			degree++;
+
+		return Arrays.copyOf(visible[0], degree);
+	}
+
+	private static class RowTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final PreparedPolygon pol;
+		final int[][] rows;
+		final int from, to, minRange;
+
+		RowTask(PreparedPolygon pol, int[][] rows, int from, int to, int minRange) {
+			this.pol = pol;
+			this.rows = rows;
+			this.from = from;
+			this.to = to;
+			this.minRange = minRange;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= minRange) {
+				int[][] visible = { new int[0] };
+
+				for (int i = from; i < to; i++)
+					rows[i] = row(pol, i, visible);
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new RowTask(pol, rows, from, mid, minRange),
+					  new RowTask(pol, rows, mid, to, minRange));
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Raster of a simple polygon counting for each cell the viewpoints that see it (its center, to be precise).
+ * The grid covers the bounding box of the polygon with square cells, starting at its lower left corner.
+ * Counts are stored row by row (row 0 at the lowest y), hence cell (col, row) is entry row * getWidth() + col.
+ *
+ * Each visibility polygon is scan-converted directly from its vertices: as it is star-shaped with respect to its viewpoint,
+ * its boundary is simple and the rows of cell centers are crossed by edges going down where the polygon starts (CCW order)
+ * and by edges going up where it ends. The crossings are added as +1 and -1 to the rows, which are summed up once at the end.
+ * Ranges of viewpoints are rasterized in parallel into tiles of their own, the tiles are added pairwise (tree reduction).
+ * The counts are final once the tiles are merged, getCounts and getFractions return new arrays, hence a heatmap
+ * can be read from several threads.
+ *
+ * Usage example:
+
+		VisibilityHeatmap heatmap = VisibilityPolygon.computeHeatmap(pol, viewPoints, 0.5);
+
+		int[] counts = heatmap.getCounts();
+		float[] fractions = heatmap.getFractions();
+ */
+public final class VisibilityHeatmap {
+
+	// lower left corner of the grid
+	private final double minX, minY;
+	private final double cellSize;
+	private final int width, height;
+
+	// number of viewpoints seeing each cell, row by row
+	private final int[] counts;
+
+	// number of viewpoints inside of the polygon
+	private final int viewPointCount;
+
+	private VisibilityHeatmap(double minX, double minY, double cellSize, int width, int height, int[] counts, int viewPointCount) {
+		this.minX = minX;
+		this.minY = minY;
+		this.cellSize = cellSize;
+		this.width = width;
+		this.height = height;
+		this.counts = counts;
+		this.viewPointCount = viewPointCount;
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+
+	public double getMinY() {
+		return minY;
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	// number of columns
+	public int getWidth() {
+		return width;
+	}
+
+	// number of rows
+	public int getHeight() {
+		return height;
+	}
+
+	// number of viewpoints inside of the polygon, the ones outside see nothing
+	public int getViewPointCount() {
+		return viewPointCount;
+	}
+
+	// number of viewpoints seeing the center of cell (col, row)
+	public int getCount(int col, int row) {
+		return counts[row * width + col];
+	}
+
+	// center of cell (col, row)
+	public Point2D getCellCenter(int col, int row) {
+		return new Point2D.Double(minX + (col + 0.5) * cellSize, minY + (row + 0.5) * cellSize);
+	}
+
+	// copy of the counts, row by row
+	public int[] getCounts() {
+		return counts.clone();
+	}
+
+	// fraction of the viewpoints inside of the polygon seeing each cell, row by row, 0 for all cells if there are no such viewpoints
+	public float[] getFractions() {
+		float[] ret = new float[counts.length];
+
+		if (viewPointCount > 0) {
+			for (int i = 0; i < counts.length; i++)
+				ret[i] = (float) counts[i] / viewPointCount;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * @param pol Valid polygon.
+	 * @param viewPoints Viewpoints, the ones outside of the polygon see nothing.
+	 * @param cellSize Side length of the cells, positive.
+	 * @param pool Pool executing the computations.
+	 */
+	static VisibilityHeatmap build(PreparedPolygon pol, List<Point2D> viewPoints, double cellSize, ForkJoinPool pool) {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < pol.size(); i++) {
+			minX = Math.min(minX, pol.x[i]);
+			minY = Math.min(minY, pol.y[i]);
+			maxX = Math.max(maxX, pol.x[i]);
+			maxY = Math.max(maxY, pol.y[i]);
+		}
+
+		double width = Math.max(1, Math.ceil((maxX - minX) / cellSize));
+		double height = Math.max(1, Math.ceil((maxY - minY) / cellSize));
+
+		// a tile has an extra column for the crossings right of the last cell center
+		if ((width + 1) * height > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("cellSize is too small for the polygon");
+
+		Grid grid = new Grid(minX, minY, cellSize, (int) width, (int) height);
+		Point2D[] zs = viewPoints.toArray(new Point2D[0]);
+
+		// one range of viewpoints per thread, as each range gets a tile of its own
+		int minRange = Math.max(1, (zs.length + pool.getParallelism() - 1) / pool.getParallelism());
+
+		Tile tile = (zs.length == 0) ? new Tile(grid) : pool.invoke(new TileTask(pol, grid, zs, 0, zs.length, minRange));
+
+		return new VisibilityHeatmap(minX, minY, cellSize, grid.width, grid.height, tile.counts(), tile.viewPointCount);
+	}
+
+	// geometry of the grid
+	private static final class Grid {
+		final double minX, minY, cellSize;
+		final int width, height;
+
+		Grid(double minX, double minY, double cellSize, int width, int height) {
+			this.minX = minX;
+			this.minY = minY;
+			this.cellSize = cellSize;
+			this.width = width;
+			this.height = height;
+		}
+
+		// first row whose center is at least y, in [0, height]
+		int row(double y) {
+			double r = Math.ceil((y - minY) / cellSize - 0.5);
+			return (int) Math.max(0, Math.min(height, r));
+		}
+
+		// first column whose center is at least x, in [0, width]
+		int col(double x) {
+			double c = Math.ceil((x - minX) / cellSize - 0.5);
+			return (int) Math.max(0, Math.min(width, c));
+		}
+	}
+
+	/**
+	 * Crossings of the rows of cell centers with the boundaries of visibility polygons, per row and column:
+	 * entry row * (width + 1) + col is the number of boundaries starting minus the number ending left of the center of cell col.
+	 */
+	private static final class Tile {
+		final Grid grid;
+		final int[] crossings;
+		int viewPointCount;
+
+		Tile(Grid grid) {
+			this.grid = grid;
+			this.crossings = new int[(grid.width + 1) * grid.height];
+		}
+
+		/**
+		 * Adds the visibility polygon with the m vertices x, y (relative to z, CCW order).
+		 * A row of cell centers at y is crossed by an edge iff. y lies in [min, max) of the y coordinates of its endpoints
+		 * (half-open, so a vertex on the row is counted once), the crossing counts for the cells whose centers are at least x.
+		 */
+		void add(double zx, double zy, double[] x, double[] y, int m) {
+			int stride = grid.width + 1;
+
+			for (int i = 0; i < m; i++) {
+				int j = (i + 1 < m) ? i + 1 : 0;
+				double ax = zx + x[i], ay = zy + y[i], bx = zx + x[j], by = zy + y[j];
+
+				if (ay == by)
+					continue;
+
+				// edges going down start the polygon (interior on their left), edges going up end it
+				int sign = (by < ay) ? 1 : -1;
+				int from = grid.row(Math.min(ay, by)), to = grid.row(Math.max(ay, by));
+				double slope = (bx - ax) / (by - ay);
+
+				for (int r = from; r < to; r++) {
+					double cy = grid.minY + (r + 0.5) * grid.cellSize;
+					crossings[r * stride + grid.col(ax + (cy - ay) * slope)] += sign;
+				}
+			}
+
+			viewPointCount++;
+		}
+
+		Tile merge(Tile other) {
+			for (int i = 0; i < crossings.length; i++)
+				crossings[i] += other.crossings[i];
+
+			viewPointCount += other.viewPointCount;
+			return this;
+		}
+
+		// sums up the crossings along the rows
+		int[] counts() {
+			int width = grid.width, stride = width + 1;
+			int[] ret = new int[width * grid.height];
+
+			for (int r = 0; r < grid.height; r++) {
+				int sum = 0;
+				for (int c = 0; c < width; c++) {
+					sum += crossings[r * stride + c];
+					ret[r * width + c] = sum;
+				}
+			}
+
+			return ret;
+		}
+	}
+
+	private static class TileTask extends RecursiveTask<Tile> {
+		private static final long serialVersionUID = 1L;
+
+		final PreparedPolygon pol;
+		final Grid grid;
+		final Point2D[] zs;
+		final int from, to, minRange;
+
+		TileTask(PreparedPolygon pol, Grid grid, Point2D[] zs, int from, int to, int minRange) {
+			this.pol = pol;
+			this.grid = grid;
+			this.zs = zs;
+			this.from = from;
+			this.to = to;
+			this.minRange = minRange;
+		}
+
+		@Override
+		protected Tile compute() {
+			if (to - from <= minRange) {
+				Tile tile = new Tile(grid);
+
+				// vertex arrays are reused from viewpoint to viewpoint
+				double[][] xy = { new double[16], new double[16] };
+
+				for (int i = from; i < to; i++) {
+					if (!pol.containsPoint(zs[i]))
+						continue;
+
+					int m = VisibilityPolygon.computeVertices(pol, zs[i], xy);
+					tile.add(zs[i].getX(), zs[i].getY(), xy[0], xy[1], m);
+				}
+
+				return tile;
+			}
+
+			int mid = (from + to) >>> 1;
+			TileTask left = new TileTask(pol, grid, zs, from, mid, minRange), right = new TileTask(pol, grid, zs, mid, to, minRange);
+			invokeAll(left, right);
+
+			return left.join().merge(right.join());
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package visibilityPolygon;
+
+/**
+ * Scalar measures of the visibility polygon (isovist) from a viewpoint z,
+ * as computed by VisibilityPolygon.computeMetrics without building the polygon itself.
+ */
+public final class VisibilityMetrics {
+
+	private final double area;
+	private final double perimeter;
+	private final double maxRadialDistance;
+	private final double minRadialDistance;
+	private final int vertexCount;
+	private final int outputVertexCount;
+
+	VisibilityMetrics(double area, double perimeter, double maxRadialDistance, double minRadialDistance, int vertexCount, int outputVertexCount) {
+		this.area = area;
+		this.perimeter = perimeter;
+		this.maxRadialDistance = maxRadialDistance;
+		this.minRadialDistance = minRadialDistance;
+		this.vertexCount = vertexCount;
+		this.outputVertexCount = outputVertexCount;
+	}
+
+	public double getArea() {
+		return area;
+	}
+
+	public double getPerimeter() {
+		return perimeter;
+	}
+
+	// distance from z to the farthest point of the visibility polygon (one of its vertices)
+	public double getMaxRadialDistance() {
+		return maxRadialDistance;
+	}
+
+	// distance from z to the closest point on the boundary of the visibility polygon, 0 if z lies on the boundary
+	public double getMinRadialDistance() {
+		return minRadialDistance;
+	}
+
+	// number of vertices of the polygon visible from z (z included if it is one), window endpoints on edges don't count
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	// number of vertices of the visibility polygon, the same as computeVisPol returns
+	public int getOutputVertexCount() {
+		return outputVertexCount;
+	}
+
+	@Override
+	public String toString() {
+		return "[area=" + area + ", perimeter=" + perimeter + ", maxRadialDistance=" + maxRadialDistance +
+				", minRadialDistance=" + minRadialDistance + ", vertexCount=" + vertexCount + ", outputVertexCount=" + outputVertexCount + "]";
+	}
+}
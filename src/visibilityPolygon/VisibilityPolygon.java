@@ -1,16 +1,17 @@
 package visibilityPolygon;
 
 import java.awt.geom.Point2D;
-import java.util.ArrayDeque;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import visibilityPolygon.CommonUtils.Pair;
-import visibilityPolygon.CommonUtils.Ray2D;
 
 /**
  * This class can be used to compute the visibility polygon from a point inside
@@ -50,217 +51,991 @@ public class VisibilityPolygon {
 	 * @return Visibility polygon in CCW order.
 	 */
 	public static CCWPolygon computeVisPol(CCWPolygon pol, Point2D z) {
+		return computeVisPol(pol, z, AngleMode.RADIANS);
+	}
+	
+	/**
+	 * Computes visibility polygon from one viewpoint.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param mode How angles around z are measured, AngleMode.PSEUDO avoids trigonometric functions.
+	 * @return Visibility polygon in CCW order, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeVisPol(CCWPolygon pol, Point2D z, AngleMode mode) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		// the registered instance keeps the verdict of the validation, hence it is paid once per polygon
+		PreparedPolygon prepared = PreparedPolygon.of(pol);
+
+		if (!prepared.isValid())
+			return null;
+
+		// point on the boundary is considered inside, O(n) as building the index for O(log n) checks doesn't pay off for one viewpoint
+		if (!pol.containsPoint(z))
+			return null;
+
+		return compute(prepared, z, mode);
+	}
+	
+	/**
+	 * Computes visibility polygon from one viewpoint.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Visibility polygon in CCW order.
+	 */
+	public static CCWPolygon computeVisPol(PreparedPolygon pol, Point2D z) {
+		return computeVisPol(pol, z, AngleMode.RADIANS);
+	}
+	
+	/**
+	 * Computes visibility polygon from one viewpoint.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param mode How angles around z are measured, AngleMode.PSEUDO avoids trigonometric functions.
+	 * @return Visibility polygon in CCW order, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeVisPol(PreparedPolygon pol, Point2D z, AngleMode mode) {
+
+		if (pol.size() < 3 || !pol.isValid())
+			return null;
+
+		// point on the boundary is considered inside
+		if (!pol.containsPoint(z))
+			return null;
+
+		// Computes and returns the visibility polygon.
+		return compute(pol, z, mode);
+	}
+	
+	/**
+	 * Computes visibility polygon from one viewpoint in a polygon with holes (obstacles) in O(n log n) time,
+	 * see RotationalSweep. Without holes the O(n) algorithm for simple polygons is used.
+	 * The holes must lie inside of the outer polygon and must not touch each other, this is not checked.
+	 * @param outer Simple polygon bounding the region.
+	 * @param holes Simple polygons cut out of the region.
+	 * @param z Viewpoint in the interior of the region, i.e. inside of the outer polygon, outside of the holes and not on any boundary.
+	 * @return Visibility polygon in CCW order, null if z doesn't lie in the interior of the region or a polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeVisPolWithHoles(CCWPolygon outer, List<CCWPolygon> holes, Point2D z) {
+
+		if (holes.isEmpty())
+			return computeVisPol(outer, z);
+
+		if (outer.getVertices().size() < 3 || !PreparedPolygon.of(outer).isValid() || !outer.containsPoint(z))
+			return null;
+
+		int n = outer.getVertices().size();
+
+		for (CCWPolygon hole : holes) {
+			if (hole.getVertices().size() < 3 || !PreparedPolygon.of(hole).isValid() || hole.containsPoint(z))
+				return null;
+
+			n += hole.getVertices().size();
+		}
+
+		// all rings in one array, next links each vertex to its successor in the same ring
+		double[] x = new double[n];
+		double[] y = new double[n];
+		int[] next = new int[n];
+		int k = 0;
+
+		for (int r = -1; r < holes.size(); r++) {
+			List<Point2D> ring = (r < 0) ? outer.getVertices() : holes.get(r).getVertices();
+
+			for (int i = 0; i < ring.size(); i++) {
+				x[k + i] = ring.get(i).getX();
+				y[k + i] = ring.get(i).getY();
+				next[k + i] = k + (i + 1) % ring.size();
+
+				// the sweep needs z off the boundary, edges through z would block nothing
+				if (LineSegment.pointOnSegment(z.getX(), z.getY(), ring.get(i).getX(), ring.get(i).getY(),
+						ring.get((i + 1) % ring.size()).getX(), ring.get((i + 1) % ring.size()).getY()))
+					return null;
+			}
+
+			k += ring.size();
+		}
+
+		return RotationalSweep.computeVisPol(x, y, next, z);
+	}
+
+	/**
+	 * Computes the part of the visibility polygon from one viewpoint within distance radius of it (limited range of view).
+	 * Edges completely out of range are dropped by a linear pass of cheap tests before the O(k log k) sweep over the k edges in range,
+	 * see RotationalSweep. Directions without an edge in range end on the circle, whose arcs are approximated by chords.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param radius Range of the view, positive.
+	 * @param tolerance Largest distance between an arc of the circle and its chords, positive.
+	 * @return Visibility polygon within range in CCW order, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeVisPolInRange(CCWPolygon pol, Point2D z, double radius, double tolerance) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeVisPolInRange(PreparedPolygon.of(pol), z, radius, tolerance);
+	}
+
+	/**
+	 * Computes the part of the visibility polygon from one viewpoint within distance radius of it (limited range of view).
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param radius Range of the view, positive.
+	 * @param tolerance Largest distance between an arc of the circle and its chords, positive.
+	 * @return Visibility polygon within range in CCW order, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeVisPolInRange(PreparedPolygon pol, Point2D z, double radius, double tolerance) {
+
+		if (!(radius > 0) || !(tolerance > 0))
+			throw new IllegalArgumentException("radius and tolerance must be positive");
+
+		if (pol.size() < 3 || !pol.isValid() || !pol.containsPoint(z))
+			return null;
+
+		double[] x = pol.x, y = pol.y;
+		int n = x.length;
+
+		int[] next = new int[n];
+		for (int i = 0; i < n; i++) {
+			next[i] = (i + 1) % n;
+
+			// the sweep needs z off the boundary, the full visibility polygon is clipped instead
+			if (LineSegment.pointOnSegment(z.getX(), z.getY(), x[i], y[i], x[next[i]], y[next[i]]))
+				return RotationalSweep.clipToDisk(compute(pol, z, AngleMode.PSEUDO), z, radius, tolerance);
+		}
+
+		return RotationalSweep.computeVisPolInRange(x, y, next, z, radius, tolerance);
+	}
+
+	/**
+	 * Computes the part of the visibility polygon from one viewpoint within a field of view (e.g. of a camera),
+	 * the sector of directions at most aperture / 2 away from heading.
+	 * Only the part of the boundary between the first points hit by the two rays bounding the sector is processed,
+	 * hence narrow sectors are cheaper than the full visibility polygon.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param heading Direction of the center of the sector, CCW angle from the x axis in radians.
+	 * @param aperture Opening angle of the sector in radians, positive, 2 * Math.PI or more is the full visibility polygon.
+	 * @return Visibility polygon within the sector in CCW order, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeVisPol(CCWPolygon pol, Point2D z, double heading, double aperture) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeVisPol(PreparedPolygon.of(pol), z, heading, aperture);
+	}
+
+	/**
+	 * Computes the part of the visibility polygon from one viewpoint within a field of view (e.g. of a camera),
+	 * the sector of directions at most aperture / 2 away from heading.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param heading Direction of the center of the sector, CCW angle from the x axis in radians.
+	 * @param aperture Opening angle of the sector in radians, positive, 2 * Math.PI or more is the full visibility polygon.
+	 * @return Visibility polygon within the sector in CCW order, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeVisPol(PreparedPolygon pol, Point2D z, double heading, double aperture) {
+
+		if (Double.isNaN(heading) || Double.isInfinite(heading) || !(aperture > 0))
+			throw new IllegalArgumentException("heading must be finite and aperture positive");
+
+		if (pol.size() < 3 || !pol.isValid() || !pol.containsPoint(z))
+			return null;
+
+		if (aperture >= 2 * Math.PI)
+			return compute(pol, z, AngleMode.RADIANS);
+
+		return computeSector(pol, z, heading - aperture / 2, heading + aperture / 2, aperture);
+	}
+
+	/**
+	 * Computes the weak visibility polygon of a segment (e.g. a door), the region visible from at least one point of the segment,
+	 * see WeakVisibility.
+	 * @param pol Simple polygon.
+	 * @param a First endpoint of the segment.
+	 * @param b Second endpoint of the segment.
+	 * @return Weak visibility polygon in CCW order, null if the segment doesn't lie in the polygon (touching the boundary only at its endpoints or along an edge)
+	 * or the polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeWeakVisPol(CCWPolygon pol, Point2D a, Point2D b) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeWeakVisPol(PreparedPolygon.of(pol), a, b);
+	}
+
+	/**
+	 * Computes the weak visibility polygon of a segment (e.g. a door), the region visible from at least one point of the segment.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param a First endpoint of the segment.
+	 * @param b Second endpoint of the segment.
+	 * @return Weak visibility polygon in CCW order, null if the segment doesn't lie in the polygon (touching the boundary only at its endpoints or along an edge)
+	 * or the polygon is not simple or not in CCW order.
+	 */
+	public static CCWPolygon computeWeakVisPol(PreparedPolygon pol, Point2D a, Point2D b) {
+
+		if (pol.size() < 3 || !pol.isValid())
+			return null;
+
+		// a segment of length 0 is a point
+		if (CommonUtils.epsEquals(a, b))
+			return computeVisPol(pol, a);
+
+		return WeakVisibility.compute(pol, a, b);
+	}
+	
+	
+	/**
+	 * Computes area, perimeter, radial distances and number of vertices of the visibility polygon from one viewpoint,
+	 * without building the visibility polygon.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Measures of the visibility polygon, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityMetrics computeMetrics(CCWPolygon pol, Point2D z) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		PreparedPolygon prepared = PreparedPolygon.of(pol);
+
+		if (!prepared.isValid() || !pol.containsPoint(z))
+			return null;
+
+		// no trigonometric functions needed, as the measures don't depend on the rotation
+		VsRep vs = preprocess(prepared, z, AngleMode.PSEUDO).first;
+		return measure(run(vs), vs);
+	}
+
+	/**
+	 * Computes area, perimeter, radial distances and number of vertices of the visibility polygon from one viewpoint,
+	 * without building the visibility polygon.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Measures of the visibility polygon, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityMetrics computeMetrics(PreparedPolygon pol, Point2D z) {
+		// no trigonometric functions needed, as the measures don't depend on the rotation
+		return computeMetrics(pol, z, AngleMode.PSEUDO);
+	}
+
+	/**
+	 * Computes area, perimeter, radial distances and number of vertices of the visibility polygon from one viewpoint,
+	 * without building the visibility polygon.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param mode How angles around z are measured.
+	 * @return Measures of the visibility polygon, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityMetrics computeMetrics(PreparedPolygon pol, Point2D z, AngleMode mode) {
+
+		if (pol.size() < 3 || !pol.isValid() || !pol.containsPoint(z))
+			return null;
+
+		VsRep vs = preprocess(pol, z, mode).first;
+		return measure(run(vs), vs);
+	}
+	
+	/**
+	 * Computes the visibility polygon from one viewpoint as query object answering visibility and ray queries from z in O(log n) time.
+	 * @param pol Simple polygon.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Visibility polygon as query object, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityQuery computeQuery(CCWPolygon pol, Point2D z) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		PreparedPolygon prepared = PreparedPolygon.of(pol);
+
+		if (!prepared.isValid() || !pol.containsPoint(z))
+			return null;
+
+		return computeQuery(prepared, z, AngleMode.PSEUDO);
+	}
+
+	/**
+	 * Computes the visibility polygon from one viewpoint as query object answering visibility and ray queries from z in O(log n) time.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param mode How angles around z are measured.
+	 * @return Visibility polygon as query object, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityQuery computeQuery(PreparedPolygon pol, Point2D z, AngleMode mode) {
+
+		if (pol.size() < 3 || !pol.isValid() || !pol.containsPoint(z))
+			return null;
+
+		Pair<VsRep, Double> temp = preprocess(pol, z, mode);
+		VsRep vs = temp.first;
+		VertDisplStack s = run(vs);
+
+		double[] x = new double[s.size() + 1];
+		double[] y = new double[s.size() + 1];
+
+		// rotates the points back, but keeps z as origin
+		double initAngle = temp.second;
+		double cos = (initAngle == 0) ? 1 : Math.cos(initAngle);
+		double sin = (initAngle == 0) ? 0 : Math.sin(initAngle);
+
+		int m = emitVertices(s, vs.zIsVertex, cos, sin, 0, 0, x, y);
+
+		return new VisibilityQuery(z.getX(), z.getY(), x, y, m);
+	}
+	
+	/**
+	 * Computes the visibility graph of the vertices of the polygon in parallel on the common fork/join pool.
+	 * @param pol Simple polygon.
+	 * @return Visibility graph in CSR form, null if the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityGraph computeVisibilityGraph(CCWPolygon pol) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeVisibilityGraph(PreparedPolygon.of(pol), ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Computes the visibility graph of the vertices of the polygon in parallel on the given fork/join pool,
+	 * one run of the scan per vertex (O(n^2) time in total).
+	 * @param pol Simple polygon prepared for queries.
+	 * @param pool Pool executing the computations.
+	 * @return Visibility graph in CSR form, null if the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityGraph computeVisibilityGraph(PreparedPolygon pol, ForkJoinPool pool) {
+
+		if (pol.size() < 3 || !pol.isValid())
+			return null;
+
+		return VisibilityGraph.build(pol, pool);
+	}
+	
+	/**
+	 * Computes the coverage of the polygon by the guards in parallel on the common fork/join pool, see Coverage.
+	 * @param pol Simple polygon.
+	 * @param guards Guards, the ones outside of the polygon see nothing.
+	 * @return Coverage of the polygon, null if the polygon is not simple or not in CCW order.
+	 */
+	public static Coverage computeCoverage(CCWPolygon pol, List<Point2D> guards) {
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeCoverage(PreparedPolygon.of(pol), guards, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Computes the coverage of the polygon by the guards in parallel on the given fork/join pool: the visibility polygons of the guards,
+	 * then their overlay with the polygon, slab by slab (see Coverage).
+	 * @param pol Simple polygon prepared for queries.
+	 * @param guards Guards, the ones outside of the polygon see nothing.
+	 * @param pool Pool executing the computations.
+	 * @return Coverage of the polygon, null if the polygon is not simple or not in CCW order.
+	 */
+	public static Coverage computeCoverage(PreparedPolygon pol, List<Point2D> guards, ForkJoinPool pool) {
+
+		if (pol.size() < 3 || !pol.isValid())
+			return null;
+
+		return Coverage.build(pol, guards, pool);
+	}
+
+	/**
+	 * Computes how many of the viewpoints see each cell of a grid over the polygon, in parallel on the common fork/join pool.
+	 * @param pol Simple polygon.
+	 * @param viewPoints Viewpoints, the ones outside of the polygon see nothing.
+	 * @param cellSize Side length of the cells, positive.
+	 * @return Heatmap of the polygon, null if the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityHeatmap computeHeatmap(CCWPolygon pol, List<Point2D> viewPoints, double cellSize) {
+
+		if (!(cellSize > 0) || Double.isInfinite(cellSize))
+			throw new IllegalArgumentException("cellSize must be positive and finite");
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeHeatmap(PreparedPolygon.of(pol), viewPoints, cellSize, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes how many of the viewpoints see each cell of a grid over the polygon, in parallel on the given fork/join pool.
+	 * The visibility polygons are scan-converted one by one, without building them (see VisibilityHeatmap).
+	 * @param pol Simple polygon prepared for queries.
+	 * @param viewPoints Viewpoints, the ones outside of the polygon see nothing.
+	 * @param cellSize Side length of the cells, positive.
+	 * @param pool Pool executing the computations.
+	 * @return Heatmap of the polygon, null if the polygon is not simple or not in CCW order.
+	 */
+	public static VisibilityHeatmap computeHeatmap(PreparedPolygon pol, List<Point2D> viewPoints, double cellSize, ForkJoinPool pool) {
+
+		if (!(cellSize > 0) || Double.isInfinite(cellSize))
+			throw new IllegalArgumentException("cellSize must be positive and finite");
+
+		if (pol.size() < 3 || !pol.isValid())
+			return null;
+
+		return VisibilityHeatmap.build(pol, viewPoints, cellSize, pool);
+	}
+
+	/**
+	 * Computes the isovist field of the polygon (area, perimeter, compactness and occlusivity of the visibility polygon
+	 * from each point of a grid inside of the polygon) in parallel on the common fork/join pool.
+	 * @param pol Simple polygon.
+	 * @param spacing Distance between neighboring sample points, positive.
+	 * @return Isovist field of the polygon, null if the polygon is not simple or not in CCW order.
+	 */
+	public static IsovistField computeIsovistField(CCWPolygon pol, double spacing) {
+
+		if (!(spacing > 0) || Double.isInfinite(spacing))
+			throw new IllegalArgumentException("spacing must be positive and finite");
+
+		if (pol.getVertices().size() < 3)
+			return null;
+
+		return computeIsovistField(PreparedPolygon.of(pol), spacing, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes the isovist field of the polygon (area, perimeter, compactness and occlusivity of the visibility polygon
+	 * from each point of a grid inside of the polygon) in parallel on the given fork/join pool, without building the visibility polygons.
+	 * @param pol Simple polygon prepared for queries.
+	 * @param spacing Distance between neighboring sample points, positive.
+	 * @param pool Pool executing the computations.
+	 * @return Isovist field of the polygon, null if the polygon is not simple or not in CCW order.
+	 */
+	public static IsovistField computeIsovistField(PreparedPolygon pol, double spacing, ForkJoinPool pool) {
+
+		if (!(spacing > 0) || Double.isInfinite(spacing))
+			throw new IllegalArgumentException("spacing must be positive and finite");
+
+		if (pol.size() < 3 || !pol.isValid())
+			return null;
+
+		return IsovistField.build(pol, spacing, pool);
+	}
+
+	/**
+	 * Computes the visibility polygons from each of the viewpoints individually.
+	 * @param inputPol	The polygon in which the viewPoints are contained.
+	 * @param viewPoints	The viewpoints from which we are computing the visibility polygon.
+	 * @return	List of visibility polygons for the individual viewPoints, null for viewpoints outside of the polygon (null if the polygon is not simple or not in CCW order).
+	 */
+	public static List<CCWPolygon> computeVisPol(CCWPolygon inputPol, List<Point2D> viewPoints) {
+		return computeVisPol(inputPol, viewPoints, AngleMode.RADIANS);
+	}
+	
+	/**
+	 * Computes the visibility polygons from each of the viewpoints individually.
+	 * @param inputPol	The polygon in which the viewPoints are contained.
+	 * @param viewPoints	The viewpoints from which we are computing the visibility polygon.
+	 * @param mode	How angles around the viewpoints are measured.
+	 * @return	List of visibility polygons for the individual viewPoints, null for viewpoints outside of the polygon (null if the polygon is not simple or not in CCW order).
+	 */
+	public static List<CCWPolygon> computeVisPol(CCWPolygon inputPol, List<Point2D> viewPoints, AngleMode mode) {
+
+		if (inputPol.getVertices().size() < 3)
+			return null;
+
+		// the polygon is prepared once for all viewpoints
+		return computeVisPol(PreparedPolygon.of(inputPol), viewPoints, mode);
+	}
+	
+	/**
+	 * Computes the visibility polygons from each of the viewpoints individually.
+	 * @param inputPol	The prepared polygon in which the viewPoints are contained.
+	 * @param viewPoints	The viewpoints from which we are computing the visibility polygon.
+	 * @param mode	How angles around the viewpoints are measured.
+	 * @return	List of visibility polygons for the individual viewPoints, null for viewpoints outside of the polygon (null if the polygon is not simple or not in CCW order).
+	 */
+	public static List<CCWPolygon> computeVisPol(PreparedPolygon inputPol, List<Point2D> viewPoints, AngleMode mode) {
+
+		if (inputPol.size() < 3 || !inputPol.isValid())
+			return null;
+		
+		List<CCWPolygon> visPolygons = new ArrayList<>();
+		
+		// computes and stores the VP for each viewPoint, null for viewpoints outside of the polygon
+		for (Point2D curr : viewPoints) {
+			CCWPolygon currVP = computeVisPol(inputPol, curr, mode);
+			visPolygons.add(currVP);
+		}
+		
+		// one VP per viewPoint
+		assert(visPolygons.size() == viewPoints.size());
+		
+		return visPolygons;
+	}
+	
+	/**
+	 * Computes the visibility polygons from each of the viewpoints individually, in parallel on the common fork/join pool.
+	 * @param inputPol	The polygon in which the viewPoints are contained.
+	 * @param viewPoints	The viewpoints from which we are computing the visibility polygon.
+	 * @return	List of visibility polygons for the individual viewPoints (same order as viewPoints), null for viewpoints outside of the polygon (null if the polygon is not simple or not in CCW order).
+	 */
+	public static List<CCWPolygon> computeVisPolParallel(CCWPolygon inputPol, List<Point2D> viewPoints) {
+		return computeVisPolParallel(inputPol, viewPoints, AngleMode.RADIANS, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Computes the visibility polygons from each of the viewpoints individually, in parallel on the given fork/join pool.
+	 * @param inputPol	The polygon in which the viewPoints are contained.
+	 * @param viewPoints	The viewpoints from which we are computing the visibility polygon.
+	 * @param mode	How angles around the viewpoints are measured.
+	 * @param pool	Pool executing the computations.
+	 * @return	List of visibility polygons for the individual viewPoints (same order as viewPoints), null for viewpoints outside of the polygon (null if the polygon is not simple or not in CCW order).
+	 */
+	public static List<CCWPolygon> computeVisPolParallel(CCWPolygon inputPol, List<Point2D> viewPoints, AngleMode mode, ForkJoinPool pool) {
+
+		if (inputPol.getVertices().size() < 3)
+			return null;
+		
+		return computeVisPolParallel(PreparedPolygon.of(inputPol), viewPoints, mode, pool);
+	}
+	
+	/**
+	 * Computes the visibility polygons from each of the viewpoints individually, in parallel on the given fork/join pool.
+	 * The viewpoints are split recursively into ranges, all tasks share the prepared polygon.
+	 * @param inputPol	The prepared polygon in which the viewPoints are contained.
+	 * @param viewPoints	The viewpoints from which we are computing the visibility polygon.
+	 * @param mode	How angles around the viewpoints are measured.
+	 * @param pool	Pool executing the computations.
+	 * @return	List of visibility polygons for the individual viewPoints (same order as viewPoints), null for viewpoints outside of the polygon (null if the polygon is not simple or not in CCW order).
+	 */
+	public static List<CCWPolygon> computeVisPolParallel(PreparedPolygon inputPol, List<Point2D> viewPoints, AngleMode mode, ForkJoinPool pool) {
 
-		if (pol.getVertices().size() < 3)
+		if (inputPol.size() < 3 || !inputPol.isValid())
 			return null;
-
-		// TODO
-		// check if point is in polygon (point on the boundary is considered inside)
-		// if (!pol.containsPoint(z))
-		// return null;
-
-		// Computes and returns the visibility polygon.
-		return compute(pol, z);
+		
+		Point2D[] zs = viewPoints.toArray(new Point2D[0]);
+		CCWPolygon[] visPolygons = new CCWPolygon[zs.length];
+		
+		// ranges of at most minRange viewpoints are computed sequentially
+		int minRange = Math.max(1, zs.length / (8 * pool.getParallelism()));
+		
+		pool.invoke(new BatchTask(inputPol, zs, mode, visPolygons, 0, zs.length, minRange));
+		
+		return Arrays.asList(visPolygons);
 	}
 	
-	
 	/**
-	 * Computes the visibility polygons from each of the viewpoints individually.
+	 * Computes the visibility polygons from each of the viewpoints individually, in parallel on the given executor.
+	 * Blocks until all visibility polygons are computed.
 	 * @param inputPol	The polygon in which the viewPoints are contained.
 	 * @param viewPoints	The viewpoints from which we are computing the visibility polygon.
-	 * @return	List of visibility polygons for the individual viewPoints.
+	 * @param mode	How angles around the viewpoints are measured.
+	 * @param executor	Executor running the chunks.
+	 * @param parallelism	Number of threads of the executor, positive.
+	 * @return	List of visibility polygons for the individual viewPoints (same order as viewPoints), null for viewpoints outside of the polygon (null if the polygon is not simple or not in CCW order).
 	 */
-	public static List<CCWPolygon> computeVisPol(CCWPolygon inputPol, List<Point2D> viewPoints) {
+	public static List<CCWPolygon> computeVisPolParallel(CCWPolygon inputPol, List<Point2D> viewPoints, AngleMode mode, Executor executor, int parallelism) {
 
 		if (inputPol.getVertices().size() < 3)
 			return null;
+		
+		return computeVisPolParallel(PreparedPolygon.of(inputPol), viewPoints, mode, executor, parallelism);
+	}
+	
+	/**
+	 * Computes the visibility polygons from each of the viewpoints individually, in parallel on the given executor.
+	 * The viewpoints are split into chunks (a few per thread of the executor), all chunks share the prepared polygon.
+	 * Blocks until all visibility polygons are computed.
+	 * @param inputPol	The prepared polygon in which the viewPoints are contained.
+	 * @param viewPoints	The viewpoints from which we are computing the visibility polygon.
+	 * @param mode	How angles around the viewpoints are measured.
+	 * @param executor	Executor running the chunks.
+	 * @param parallelism	Number of threads of the executor, positive.
+	 * @return	List of visibility polygons for the individual viewPoints (same order as viewPoints), null for viewpoints outside of the polygon (null if the polygon is not simple or not in CCW order).
+	 */
+	public static List<CCWPolygon> computeVisPolParallel(PreparedPolygon inputPol, List<Point2D> viewPoints, AngleMode mode, Executor executor, int parallelism) {
+
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism must be positive");
 
-		// TODO
-		// check if point is in polygon (point on the boundary is considered inside)
-		// if (!pol.containsPoint(z))
-		// return null;
+		if (inputPol.size() < 3 || !inputPol.isValid())
+			return null;
 		
-		List<CCWPolygon> visPolygons = new ArrayList<>();
+		Point2D[] zs = viewPoints.toArray(new Point2D[0]);
+		CCWPolygon[] visPolygons = new CCWPolygon[zs.length];
 		
-		// computes and stores the VP for each viewPoint
-		for (Point2D curr : viewPoints) {
-			CCWPolygon currVP = compute(inputPol, curr);
-			visPolygons.add(currVP);
+		int chunks = (int) Math.min(zs.length, 4L * parallelism);
+		List<CompletableFuture<Void>> futures = new ArrayList<>(chunks);
+		
+		for (int c = 0; c < chunks; c++) {
+			int from = (int) ((long) zs.length * c / chunks);
+			int to = (int) ((long) zs.length * (c + 1) / chunks);
+			
+			futures.add(CompletableFuture.runAsync(() -> {
+				for (int i = from; i < to; i++)
+					visPolygons[i] = computeVisPol(inputPol, zs[i], mode);
+			}, executor));
 		}
 		
-		// one VP per viewPoint
-		assert(visPolygons.size() == viewPoints.size());
+		try {
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		} catch (CompletionException e) {
+			// rethrows the failure of a chunk as if it had been computed sequentially
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
 		
-		return visPolygons;
+		return Arrays.asList(visPolygons);
 	}
 
 	/**
 	 * Computes visibility polygon from z in pol.
-	 * @param pol Input polygon.
+	 * Only reads its arguments, hence it can be called concurrently for the same polygon.
+	 * @param pol Prepared input polygon.
 	 * @param z Viewpoint in pol.
+	 * @param mode How angles around z are measured.
 	 * @return Visibility polygon in CCW order.
 	 */
-	private static CCWPolygon compute(CCWPolygon pol, Point2D z) {
+	private static CCWPolygon compute(PreparedPolygon pol, Point2D z, AngleMode mode) {
 		// list v, satisfies assumptions made in paper (section 2, paragraph 1 and 2).
-		Pair<VsRep, Double> temp = preprocess(pol, z);
+		Pair<VsRep, Double> temp = preprocess(pol, z, mode);
 
 		VsRep vs = temp.first;
 		double initAngle = temp.second;
 
-		VertDispl v0 = vs.get(0);
+		// converts stack containing the visibility polygon into final ccw visibility
+		// polygon
+		return postprocess(run(vs), vs, z, initAngle);
+	}
+
+	/**
+	 * Computes the visibility polygon from z within the sector from angle start to angle end (CCW).
+	 *
+	 * The first points h0 and h1 hit by the rays bounding the sector are visible, hence the segments from z to them
+	 * split the polygon into two parts. Sight lines within the sector never cross these segments, so they only see the part
+	 * bounded by z, h0, the boundary from h0 to h1 and h1. The algorithm runs on that part with z as its vertex, where
+	 * preprocess takes the vertex after z, i.e. h0 on the start of the sector, as v0. The scan ends at h1, where the angular
+	 * displacement leaves the sector, without visiting the rest of the boundary.
+	 */
+	private static CCWPolygon computeSector(PreparedPolygon pol, Point2D z, double start, double end, double aperture) {
+		double[] x = pol.x, y = pol.y;
+		int n = x.length;
+		double zx = z.getX(), zy = z.getY();
+		double sx = Math.cos(start), sy = Math.sin(start);
+		double ex = Math.cos(end), ey = Math.sin(end);
+
+		// the rays bounding the sector would leave the polygon right away
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			if (LineSegment.pointOnSegment(zx, zy, x[i], y[i], x[j], y[j]))
+				return clipToSector(compute(pol, z, AngleMode.RADIANS), z, sx, sy, ex, ey, aperture);
+		}
+
+		double[] h0 = new double[3];
+		double[] h1 = new double[3];
+		int e0 = firstEdgeHit(pol, zx, zy, sx, sy, h0);
+		int e1 = firstEdgeHit(pol, zx, zy, ex, ey, h1);
+
+		if (e0 < 0 || e1 < 0)
+			return clipToSector(compute(pol, z, AngleMode.RADIANS), z, sx, sy, ex, ey, aperture);
+
+		// vertices after edge e0 up to the start of edge e1, all of them if both rays hit the same edge the long way around
+		int count = (e1 - e0 + n) % n;
+		if (e0 == e1 && (aperture > Math.PI || h1[2] < h0[2]))
+			count = n;
+
+		double[] px = new double[count + 3];
+		double[] py = new double[count + 3];
+		int m = 0;
+
+		px[m] = zx;
+		py[m++] = zy;
+		m = appendDistinct(px, py, m, h0[0], h0[1]);
+
+		for (int k = 1; k <= count; k++)
+			m = appendDistinct(px, py, m, x[(e0 + k) % n], y[(e0 + k) % n]);
+
+		m = appendDistinct(px, py, m, h1[0], h1[1]);
+
+		List<Point2D> part = new ArrayList<>(m);
+		for (int i = 0; i < m; i++)
+			part.add(new Point2D.Double(px[i], py[i]));
+
+		return compute(new PreparedPolygon(new CCWPolygon(part)), z, AngleMode.RADIANS);
+	}
+
+	/**
+	 * Shoots a ray from z in direction (dx, dy) and finds the first edge hit.
+	 * @param hit Receives the point hit and its parameter along the edge.
+	 * @return Index of the edge hit, -1 if there is none (rounding errors).
+	 */
+	private static int firstEdgeHit(PreparedPolygon pol, double zx, double zy, double dx, double dy, double[] hit) {
+		double[] x = pol.x, y = pol.y;
+		double tMin = Double.POSITIVE_INFINITY;
+		int ret = -1;
+
+		for (int i = 0; i < x.length; i++) {
+			double denom = dx * pol.edgeY[i] - dy * pol.edgeX[i];
+
+			// edges parallel to the ray are hit at their endpoints by the adjacent edges
+			if (denom == 0)
+				continue;
+
+			double fx = x[i] - zx, fy = y[i] - zy;
+			double t = (fx * pol.edgeY[i] - fy * pol.edgeX[i]) / denom;
+			double u = (fx * dy - fy * dx) / denom;
+
+			if (t > 0 && t < tMin && u >= 0 && u <= 1) {
+				tMin = t;
+				ret = i;
+				hit[0] = x[i] + u * pol.edgeX[i];
+				hit[1] = y[i] + u * pol.edgeY[i];
+				hit[2] = u;
+			}
+		}
+
+		return ret;
+	}
+
+	// appends (px, py) unless it equals the last vertex
+	private static int appendDistinct(double[] x, double[] y, int m, double px, double py) {
+		if (CommonUtils.epsEquals(x[m - 1], y[m - 1], px, py))
+			return m;
+
+		x[m] = px;
+		y[m] = py;
+		return m + 1;
+	}
+
+	/**
+	 * Clips a visibility polygon from z to the sector from direction (sx, sy) CCW to direction (ex, ey).
+	 * Its edges not incident to z turn CCW around z, hence each of them enters the sector at most once across the start ray
+	 * and leaves it at most once across the end ray, where the boundary of the result returns to z.
+	 */
+	private static CCWPolygon clipToSector(CCWPolygon VP, Point2D z, double sx, double sy, double ex, double ey, double aperture) {
+		List<Point2D> vertices = VP.getVertices();
+		int n = vertices.size();
+		double zx = z.getX(), zy = z.getY();
+
+		double[] x = new double[3 * n];
+		double[] y = new double[3 * n];
+		int m = 0;
+
+		for (int i = 0; i < n; i++) {
+			double px = vertices.get(i).getX() - zx, py = vertices.get(i).getY() - zy;
+			double qx = vertices.get((i + 1) % n).getX() - zx, qy = vertices.get((i + 1) % n).getY() - zy;
+
+			// z on an edge of the polygon, its visibility polygon keeps z on that edge instead of as a vertex
+			if (LineSegment.pointOnSegment(0, 0, px, py, qx, qy)) {
+				if (!CommonUtils.epsEquals(px, py, 0, 0) && !CommonUtils.epsEquals(qx, qy, 0, 0))
+					m = appendVertex(x, y, m, zx, zy);
+			} else if (Predicates.orient2d(0, 0, px, py, qx, qy) > 0) {
+				double ps = Predicates.orient2d(0, 0, sx, sy, px, py), qs = Predicates.orient2d(0, 0, sx, sy, qx, qy);
+				double pe = Predicates.orient2d(0, 0, ex, ey, px, py), qe = Predicates.orient2d(0, 0, ex, ey, qx, qy);
+
+				// parameters along the edge where it enters and leaves the sector
+				double tIn = (ps <= 0 && qs > 0) ? ps / (ps - qs) : Double.NaN;
+				double tOut = (pe < 0 && qe >= 0) ? pe / (pe - qe) : Double.NaN;
+
+				if (!Double.isNaN(tOut) && !(tIn < tOut)) {
+					m = appendVertex(x, y, m, zx + px + tOut * (qx - px), zy + py + tOut * (qy - py));
+					m = appendVertex(x, y, m, zx, zy);
+				}
+
+				if (!Double.isNaN(tIn))
+					m = appendVertex(x, y, m, zx + px + tIn * (qx - px), zy + py + tIn * (qy - py));
+
+				if (!Double.isNaN(tOut) && tIn < tOut) {
+					m = appendVertex(x, y, m, zx + px + tOut * (qx - px), zy + py + tOut * (qy - py));
+					m = appendVertex(x, y, m, zx, zy);
+				}
+			}
+
+			// z itself lies in the sector
+			if (qx == 0 && qy == 0 || inSector(qx, qy, sx, sy, ex, ey, aperture))
+				m = appendVertex(x, y, m, zx + qx, zy + qy);
+		}
+
+		m = closeVertices(x, y, m);
+
+		List<Point2D> ret = new ArrayList<>(m);
+		for (int i = 0; i < m; i++)
+			ret.add(new Point2D.Double(x[i], y[i]));
 
-		Deque<VertDispl> s0 = new LinkedList<>();
-		s0.push(v0);
+		return new CCWPolygon(ret);
+	}
+
+	// true iff. direction (px, py) lies strictly between the start (sx, sy) and the end (ex, ey) of the sector
+	private static boolean inSector(double px, double py, double sx, double sy, double ex, double ey, double aperture) {
+		boolean afterStart = Predicates.orient2d(0, 0, sx, sy, px, py) > 0;
+		boolean beforeEnd = Predicates.orient2d(0, 0, ex, ey, px, py) < 0;
+
+		return (aperture <= Math.PI) ? afterStart && beforeEnd : afterStart || beforeEnd;
+	}
+
+	/**
+	 * Runs advance, retard and scan on the preprocessed polygon.
+	 * @param vs Preprocessed polygon, z is the origin.
+	 * @return Stack containing the vertices of the visibility polygon in clockwise order from its top, v0 at the bottom.
+	 */
+	private static VertDisplStack run(VsRep vs) {
+		ScanState st = new ScanState(vs.n);
+		st.s.push(vs.x[0], vs.y[0], vs.alpha[0], 0);
 
 		assert (vs.n > 1);
 
-		List<VertDispl> s; // used to store the vertices of the visibility
-							// polygon
-		if (CommonUtils.epsGEQ(vs.get(1).getDisplacement(), v0.getDisplacement()))
-			s = advance(vs, s0, 0);
+		Step step;
+		if (CommonUtils.epsGEQ(vs.alpha[1], vs.alpha[0]))
+			step = Step.ADVANCE;
 		else
-			s = scan(vs, s0, 0, null, Orientation.CLOCKWISE);	// -1 is Clockwise
+			step = st.toScan(0, Orientation.CLOCKWISE);	// -1 is Clockwise
+
+		// drives advance, retard and scan until the last vertex was processed
+		// (instead of letting them call each other recursively, once per vertex)
+		while (step != Step.DONE) {
+			switch (step) {
+			case ADVANCE:
+				step = advance(vs, st);
+				break;
+			case RETARD:
+				step = retard(vs, st);
+				break;
+			case SCAN:
+				step = scan(vs, st);
+				break;
+			default:
+				assert (false); // unreachable
+			}
+		}
 
-		assert (CommonUtils.epsEquals(s.get(s.size() - 1).getPoint().toCartesian(), v0.getPoint().toCartesian()));
+		// the stack (used to store the vertices of the visibility polygon) starts with v0
+		assert (CommonUtils.epsEquals(st.s.x(st.s.size() - 1), st.s.y(st.s.size() - 1), vs.x[0], vs.y[0]));
 
-//		System.out.println("s0 deque: " + s0);
-		
-		// converts stack containing the visibility polygon into final ccw visibility
-		// polygon
-		return postprocess(s, vs, z, initAngle);
+		return st.s;
 	}
 
 	// Pushes vertices on the stack.
-	private static List<VertDispl> advance(VsRep v, Deque<VertDispl> s, int iprev) {
+	private static Step advance(VsRep v, ScanState st) {
+		VertDisplStack s = st.s;
+		int iprev = st.iprev;
 
 		int n = v.n - 1;
 
 		assert (iprev + 1 <= n);
 
-		if (CommonUtils.epsLEQ(v.get(iprev + 1).getDisplacement(), CommonUtils.PI2)) {
+		if (CommonUtils.epsLEQ(v.alpha[iprev + 1], v.period)) {
 			int i = iprev + 1;
-			s.push(v.get(i));
+			s.push(v.x[i], v.y[i], v.alpha[i], 2 * i);
 
 			if (i == n)
-				return new ArrayList<VertDispl>(s);
+				return Step.DONE;
 
-			if (CommonUtils.epsLess(v.get(i + 1).getDisplacement(), v.get(i).getDisplacement())
-					&& CommonUtils.pointTurn(v.get(i - 1).getPoint().toCartesian(), v.get(i).getPoint().toCartesian(),
-							v.get(i + 1).getPoint().toCartesian()) == Orientation.CLOCKWISE) { // -1 is RightTurn
+			if (CommonUtils.epsLess(v.alpha[i + 1], v.alpha[i]) && v.turn(i - 1, i, i + 1) == Orientation.CLOCKWISE) { // -1 is RightTurn
 				
-				return scan(v, s, i, null, Orientation.CLOCKWISE); // -1 is Clockwise
-			} else if (CommonUtils.epsLess(v.get(i + 1).getDisplacement(), v.get(i).getDisplacement())
-					&& CommonUtils.pointTurn(v.get(i - 1).getPoint().toCartesian(), v.get(i).getPoint().toCartesian(),
-							v.get(i + 1).getPoint().toCartesian()) == Orientation.COUNTERCLOCKWISE) { // 1 is LeftTurn
+				return st.toScan(i, Orientation.CLOCKWISE); // -1 is Clockwise
+			} else if (CommonUtils.epsLess(v.alpha[i + 1], v.alpha[i]) && v.turn(i - 1, i, i + 1) == Orientation.COUNTERCLOCKWISE) { // 1 is LeftTurn
 
-				return retard(v, s, i);
+				return st.to(Step.RETARD, i);
 			} else {
-				return advance(v, s, i);
+				return st.to(Step.ADVANCE, i);
 			}
 		} else {
-			VertDispl v0 = v.get(0);
+			if (s.alpha(0) < v.period) {
+				// ray from z in direction of v0
+				boolean isect = LineSegment.intersectSegmentWithRay(v.x[iprev], v.y[iprev], v.x[iprev + 1], v.y[iprev + 1],
+						0, 0, v.dirX(v.x[0], v.theta[0]), v.dirY(v.y[0], v.theta[0]), st.p);
 
-			if (s.peekFirst().getDisplacement() < CommonUtils.PI2) {
-				Ray2D ray = new Ray2D(CommonUtils.origin2D, v0.getPoint().theta);
+				assert (isect);
 
-				Point2D isect = LineSegment.intersectSegmentWithRay(
-						new LineSegment(v.get(iprev).getPoint().toCartesian(), v.get(iprev + 1).getPoint().toCartesian()), ray);
-
-				assert (isect != null);
-
-				VertDispl st = displacementInBetween(new PolarPoint2D(isect), v.get(iprev), v.get(iprev + 1));
-				s.push(st);
+				s.push(st.p[0], st.p[1], displacementInBetween(v, st.p, v.alpha[iprev], v.alpha[iprev + 1]), 2 * iprev + 1);
 			}
 
-			return scan(v, s, iprev, v0, Orientation.COUNTERCLOCKWISE); // 1 is Counterclockwise
+			return st.toScan(iprev, v.x[0], v.y[0], Orientation.COUNTERCLOCKWISE); // 1 is Counterclockwise
 		}
 
 	}
 
 	// Pops vertices from stack
-	private static List<VertDispl> retard(VsRep v, Deque<VertDispl> sOld, int iprev) {
-		VertDispl sj1 = sOld.peekFirst();
-		List<VertDispl> ssTail = new ArrayList<>(sOld).subList(1, sOld.size());
-		
-		Pair<Deque<VertDispl>, VertDispl> temp = locateSj(v.get(iprev), v.get(iprev + 1), sj1, ssTail);
-		Deque<VertDispl> s = temp.first;
-		VertDispl sjNext = temp.second;
+	private static Step retard(VsRep v, ScanState st) {
+		VertDisplStack s = st.s;
+		int iprev = st.iprev;
+
+		// pops the stack in place until sj is on top, s_{j+1} is kept in st
+		locateSj(v, iprev, iprev + 1, st);
 		
-		VertDispl sj = s.peekFirst();
+		double sjAlpha = s.alpha(0);
 		
-		if (sj.getDisplacement() < v.get(iprev + 1).getDisplacement()) {
+		if (sjAlpha < v.alpha[iprev + 1]) {
 			int i = iprev + 1;	
 			
-			VertDispl vi = v.get(i);
-			Point2D p = LineSegment.intersectSegmentWithRay(new LineSegment(sj.getPoint().toCartesian(), sjNext.getPoint().toCartesian()), new Ray2D(CommonUtils.origin2D, vi.getPoint().theta)); 
-			VertDispl st1 = displacementInBetween(new PolarPoint2D(p), sj, sjNext);
+			// ray from z through vi
+			if (LineSegment.intersectSegmentWithRay(s.x(0), s.y(0), st.sj1x, st.sj1y,
+					0, 0, v.dirX(v.x[i], v.theta[i]), v.dirY(v.y[i], v.theta[i]), st.p))
+				// on the edge of the polygon from sj to s_{j+1}
+				s.push(st.p[0], st.p[1], displacementInBetween(v, st.p, sjAlpha, st.sj1Alpha), s.pos(0) | 1);
 			
-			if (st1 != null)
-				s.push(st1);
-			
-			s.push(vi);
+			s.push(v.x[i], v.y[i], v.alpha[i], 2 * i);
 			
 			// paper does i == v.n
 			if (i == v.n - 1) {
-				return new ArrayList<VertDispl>(s);
+				return Step.DONE;
 			}
-			else if (CommonUtils.epsGEQ(v.get(i+1).getDisplacement(), vi.getDisplacement()) && CommonUtils.pointTurn(v.get(i-1).getPoint().toCartesian(), vi.getPoint().toCartesian(), v.get(i+1).getPoint().toCartesian()) == Orientation.CLOCKWISE) { // -1 is RighTurn
-				return advance(v, s, i);
-			} else if (CommonUtils.epsGreater(v.get(i+1).getDisplacement(), vi.getDisplacement()) && CommonUtils.pointTurn(v.get(i-1).getPoint().toCartesian(), vi.getPoint().toCartesian(), v.get(i+1).getPoint().toCartesian()) == Orientation.COUNTERCLOCKWISE) {  // 1 is LeftTurn
+			else if (CommonUtils.epsGEQ(v.alpha[i+1], v.alpha[i]) && v.turn(i-1, i, i+1) == Orientation.CLOCKWISE) { // -1 is RighTurn
+				return st.to(Step.ADVANCE, i);
+			} else if (CommonUtils.epsGreater(v.alpha[i+1], v.alpha[i]) && v.turn(i-1, i, i+1) == Orientation.COUNTERCLOCKWISE) {  // 1 is LeftTurn
 				s.pop();
-				return scan(v, s, i, vi, Orientation.COUNTERCLOCKWISE);  // 1 is Counterclockwise
+				return st.toScan(i, v.x[i], v.y[i], Orientation.COUNTERCLOCKWISE);  // 1 is Counterclockwise
 			} else {
 				s.pop();
-				return retard(v, s, i);
+				return st.to(Step.RETARD, i);
 			}
 		} else {
-			if (CommonUtils.epsEquals(v.get(iprev + 1).getDisplacement(), sj.getDisplacement()) &&
-				CommonUtils.epsGreater(v.get(iprev + 2).getDisplacement(), v.get(iprev + 1).getDisplacement()) &&
-				CommonUtils.pointTurn(v.get(iprev).getPoint().toCartesian(), v.get(iprev + 1).getPoint().toCartesian(), v.get(iprev + 2).getPoint().toCartesian()) == Orientation.CLOCKWISE) {  // -1 is RightTurn
+			if (CommonUtils.epsEquals(v.alpha[iprev + 1], sjAlpha) &&
+				CommonUtils.epsGreater(v.alpha[iprev + 2], v.alpha[iprev + 1]) &&
+				v.turn(iprev, iprev + 1, iprev + 2) == Orientation.CLOCKWISE) {  // -1 is RightTurn
 				
-				s.push(v.get(iprev + 1));
-				return advance(v, s, iprev + 1);
+				s.push(v.x[iprev + 1], v.y[iprev + 1], v.alpha[iprev + 1], 2 * (iprev + 1));
+				return st.to(Step.ADVANCE, iprev + 1);
 				
 			} else {
-				VertDispl w = intersectWithWindow(v.get(iprev), v.get(iprev + 1), sj, sjNext);
+				boolean w = intersectWithWindow(v, iprev, s.x(0), s.y(0), sjAlpha, true, st.sj1x, st.sj1y, st.p);
 
-				assert(w != null);
-				return scan(v, s, iprev, w, Orientation.CLOCKWISE); // -1 is Clockwise
+				assert(w);
+				return st.toScan(iprev, st.p[0], st.p[1], Orientation.CLOCKWISE); // -1 is Clockwise
 			}
 		}
 	}
 	
 	// Skips invisible vertices
-	private static List<VertDispl> scan(VsRep v, Deque<VertDispl> s, int iprev, VertDispl windowEnd, Orientation ori) {
-		int i = iprev + 1;
-		
-		if (i+1 == v.n) return new ArrayList<VertDispl>(s);
-		
-		if (ori == Orientation.CLOCKWISE &&		// -1 is Clockwise
-			CommonUtils.epsGreater(v.get(i+1).getDisplacement(), s.peekFirst().getDisplacement()) && 
-			CommonUtils.epsGEQ(s.peekFirst().getDisplacement(), v.get(i).getDisplacement())) {
-			
-			VertDispl intersec = intersectWithWindow(v.get(i), v.get(i+1), s.peekFirst(), windowEnd);
-			
-			if (intersec != null && !(windowEnd != null && CommonUtils.epsEquals(intersec.getPoint().toCartesian(), windowEnd.getPoint().toCartesian()))) {
-				s.push(intersec);
-				return advance(v, s, i);
-			} else {
-				return scan(v, s, i, windowEnd, ori);
-			}
-			
-			
-		} else if (ori == Orientation.COUNTERCLOCKWISE &&		// 1 is Counterclockwise
-				   CommonUtils.epsLEQ(v.get(i+1).getDisplacement(), s.peekFirst().getDisplacement()) &&
-				   s.peekFirst().getDisplacement() < v.get(i).getDisplacement()) {
+	private static Step scan(VsRep v, ScanState st) {
+		VertDisplStack s = st.s;
+		Orientation ori = st.ori;
+
+		// skips vertices in a loop until one of them becomes visible again
+		for (int i = st.iprev + 1; ; i++) {
+			if (i+1 == v.n) return Step.DONE;
 			
-			if (intersectWithWindow(v.get(i), v.get(i+1), s.peekFirst(), windowEnd) != null) {
-				return retard(v, s, i);
-			} else {
-				return scan(v, s, i, windowEnd, ori);
+			if (ori == Orientation.CLOCKWISE &&		// -1 is Clockwise
+				CommonUtils.epsGreater(v.alpha[i+1], s.alpha(0)) && 
+				CommonUtils.epsGEQ(s.alpha(0), v.alpha[i])) {
+				
+				if (intersectWithWindow(v, i, s.x(0), s.y(0), s.alpha(0), st.windowEnd, st.wx, st.wy, st.p) &&
+					!(st.windowEnd && CommonUtils.epsEquals(st.p[0], st.p[1], st.wx, st.wy))) {
+					s.push(st.p[0], st.p[1], st.p[2], 2 * i + 1);
+					return st.to(Step.ADVANCE, i);
+				}
+				
+			} else if (ori == Orientation.COUNTERCLOCKWISE &&		// 1 is Counterclockwise
+					   CommonUtils.epsLEQ(v.alpha[i+1], s.alpha(0)) &&
+					   s.alpha(0) < v.alpha[i]) {
+				
+				if (intersectWithWindow(v, i, s.x(0), s.y(0), s.alpha(0), st.windowEnd, st.wx, st.wy, st.p))
+					return st.to(Step.RETARD, i);
 			}
-		} else {
-			return scan(v, s, i, windowEnd, ori);
 		}
 		
 	}
@@ -279,74 +1054,310 @@ public class VisibilityPolygon {
 	 *         made in section 2 of the paper (Joe&Simpson, 1985).
 	 */
 	private static Pair<VsRep, Double> preprocess(CCWPolygon pol, Point2D z) {
+		return preprocess(new PreparedPolygon(pol), z, AngleMode.RADIANS);
+	}
+	
+	/**
+	 * Same as preprocess(pol, z) for a prepared polygon and angles measured as given by mode.
+	 * With AngleMode.PSEUDO the vertices are only shifted, angles are diamond angles
+	 * relative to the direction of v0 and the returned rotation angle is 0.
+	 */
+	private static Pair<VsRep, Double> preprocess(PreparedPolygon pol, Point2D z, AngleMode mode) {
+		int m = pol.size();
 
-		pol = pol.shiftToOrigin(z);
+		// shifts the polygon such that z becomes the origin
+		double[] px = new double[m];
+		double[] py = new double[m];
+		int zIndex = -1;
 
-		boolean zIsVertex = pol.getVertices().contains(CommonUtils.origin2D);
+		for (int i = 0; i < m; i++) {
+			px[i] = pol.x[i] - z.getX();
+			py[i] = pol.y[i] - z.getY();
 
-		// determines v0
-		PolarPoint2D v0 = getInitialVertex(pol, zIsVertex);
+			if (zIndex < 0 && px[i] == 0 && py[i] == 0)
+				zIndex = i;
+		}
 
-		assert (!v0.equals(z));
+		boolean zIsVertex = zIndex >= 0;
 
-		// converts Cartesian vertices of polygon to polar and stores them in
-		// list l
-		List<PolarPoint2D> l = pol.getVertices().stream().map(x -> new PolarPoint2D(x)).collect(Collectors.toList());
+		// determines v0
+		int v0 = getInitialVertex(pol, px, py, zIsVertex);
+		double v0Theta = (mode == AngleMode.RADIANS) ? Math.atan2(py[v0], px[v0]) : 0;
+
+		assert (v0 != zIndex);
+
+		// v = [v0, v1, ..., vk] in ccw order starting at v0, z is left out if it is a vertex
+		int n = zIsVertex ? m - 1 : m;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] theta = new double[n];
+
+		for (int k = 0, i = v0; k < n; i = (i + 1) % m) {
+			if (i == zIndex)
+				continue;
+
+			if (mode == AngleMode.PSEUDO) {
+				// measures the angle relative to v0 instead of rotating the point
+				x[k] = px[i];
+				y[k] = py[i];
+				theta[k] = CommonUtils.pseudoAngle(px[v0] * px[i] + py[v0] * py[i], px[v0] * py[i] - py[v0] * px[i]);
+				k++;
+				continue;
+			}
 
-		// adjusts positions such that v0 at the beginning
-		placeV0First(l, v0);
+			double r = Math.sqrt(px[i] * px[i] + py[i] * py[i]);
+			theta[k] = Math.atan2(py[i], px[i]);
 
-		assert (l.get(0).equals(v0));
-		
-		// if z is on boundary?? then [v0, v1, ..., vk, z] -> [z, v0, v1, ...,
-		// vk]
-		adjustPositionOfz(l, zIsVertex, z);
+			// rotates the point clockwise such that v0 lies on the x axis
+			if (!CommonUtils.epsEquals(r, 0))
+				theta[k] = normalizeAngle(theta[k] - v0Theta);
 
-		// rotate all points of the shifted polygon clockwise such that v0 lies
-		// on the x axis
-		for (PolarPoint2D curr : l) {
-			if (!curr.isOrigin())
-				curr.rotateClockWise(v0.theta);
+			x[k] = Math.cos(theta[k]) * r;
+			y[k] = Math.sin(theta[k]) * r;
+			k++;
 		}
 
-		assert (l.get(0).theta == 0);
+		assert (theta[0] == 0);
 
-		return new Pair(new VsRep(l, zIsVertex), v0.theta);
+		return new Pair<VsRep, Double>(new VsRep(x, y, theta, zIsVertex, mode, v0, zIndex), v0Theta);
 	}
 
 	/**
 	 * Converts the final stack content into the visibility polygon.
-	 * @param pre_s Stack content after the algorithm terminated.
+	 * @param s Stack content after the algorithm terminated.
 	 * @param vs 
 	 * @param z Viewpoint which became the origin after shifting the original input polygon during the preprocessing.
 	 * @param initAngle Angle corresponding to how much the original input polygon was rotated during the preprocessing.
 	 * @return Final visibility polygon in CCW order.
 	 */
-	private static CCWPolygon postprocess(List<VertDispl> pre_s, VsRep vs, Point2D z, double initAngle) {
-		if (vs.zIsVertex)
-			pre_s.add(0, new VertDispl(new PolarPoint2D(CommonUtils.origin2D), 0));
+	private static CCWPolygon postprocess(VertDisplStack s, VsRep vs, Point2D z, double initAngle) {
+		double[] x = new double[s.size() + 1];
+		double[] y = new double[s.size() + 1];
+
+		// rotates points back to original position before the rotation in preprocess()
+		double cos = (initAngle == 0) ? 1 : Math.cos(initAngle);
+		double sin = (initAngle == 0) ? 0 : Math.sin(initAngle);
+		
+		int m = emitVertices(s, vs.zIsVertex, cos, sin, z.getX(), z.getY(), x, y);
+		
+		List<Point2D> ret = new ArrayList<>(m);
+		
+		for (int i = 0; i < m; i++)
+			ret.add(new Point2D.Double(x[i], y[i]));
+		
+		return new CCWPolygon(ret);
+	}
+	
+	/**
+	 * Computes the measures of the visibility polygon from the final stack content, without rotating
+	 * and shifting the points back (none of the measures depends on it) and without building the polygon.
+	 * @param s Stack content after the algorithm terminated.
+	 * @param vs Preprocessed polygon, z is the origin.
+	 * @return Measures of the visibility polygon.
+	 */
+	private static VisibilityMetrics measure(VertDisplStack s, VsRep vs) {
+		double[] x = new double[s.size() + 1];
+		double[] y = new double[s.size() + 1];
+		
+		int m = emitVertices(s, vs.zIsVertex, 1, 0, 0, 0, x, y);
+		
+		double doubleArea = 0;
+		double perimeter = 0;
+		double maxDistSq = 0;
+		double minDistSq = Double.POSITIVE_INFINITY;
+		
+		for (int i = 0; i < m; i++) {
+			int j = (i + 1) % m;
+			double dx = x[j] - x[i];
+			double dy = y[j] - y[i];
+			double lenSq = dx * dx + dy * dy;
+			
+			// shoelace formula
+			doubleArea += x[i] * y[j] - x[j] * y[i];
+			perimeter += Math.sqrt(lenSq);
+			maxDistSq = Math.max(maxDistSq, x[i] * x[i] + y[i] * y[i]);
+			
+			// closest point of the edge to z
+			double t = (lenSq == 0) ? 0 : Math.max(0, Math.min(1, -(x[i] * dx + y[i] * dy) / lenSq));
+			double cx = x[i] + t * dx;
+			double cy = y[i] + t * dy;
+			minDistSq = Math.min(minDistSq, cx * cx + cy * cy);
+		}
+		
+		// polygon vertices on the stack (even positions), in boundary order from its bottom, as in computeVisibleVertices
+		int vertexCount = vs.zIsVertex ? 1 : 0;
+		for (int k = s.size() - 1, last = -1; k >= 0; k--) {
+			int pos = s.pos(k);
+			if ((pos & 1) == 0 && pos > last) {
+				vertexCount++;
+				last = pos;
+			}
+		}
+		
+		return new VisibilityMetrics(doubleArea / 2, perimeter, Math.sqrt(maxDistSq), Math.sqrt(minDistSq), vertexCount, m);
+	}
+
+	/**
+	 * Computes the vertices of the visibility polygon from z relative to z in CCW order, without building the polygon.
+	 * @param pol Valid polygon prepared for queries.
+	 * @param z Viewpoint inside (boundary is fine too) of the polygon.
+	 * @param xy Receives the x and y coordinates in xy[0] and xy[1], the arrays are replaced by larger ones if they are too short,
+	 * hence they can be reused from viewpoint to viewpoint.
+	 * @return Number of vertices of the visibility polygon.
+	 */
+	static int computeVertices(PreparedPolygon pol, Point2D z, double[][] xy) {
+		// no rotation to undo, as the vertices are only shifted
+		VsRep vs = preprocess(pol, z, AngleMode.PSEUDO).first;
+		VertDisplStack s = run(vs);
+
+		if (xy[0].length < s.size() + 1) {
+			xy[0] = new double[s.size() + 1];
+			xy[1] = new double[s.size() + 1];
+		}
+
+		return emitVertices(s, vs.zIsVertex, 1, 0, 0, 0, xy[0], xy[1]);
+	}
+
+	/**
+	 * Computes the vertices of the polygon visible from its vertex i, grazing the boundary counts as visible.
+	 * The final stack follows the boundary in CCW order from v0 and knows the position of each of its points on the boundary,
+	 * hence the vertices between two consecutive points are the ones skipped by the visibility polygon,
+	 * they are visible iff. they lie on its edge between both points.
+	 * @param pol Valid polygon prepared for queries.
+	 * @param i Index of the vertex the polygon is seen from.
+	 * @param visible Receives the indices of the visible vertices in CCW order starting after i (hence i + 1, ..., n - 1, 0, ..., i - 1),
+	 * the array is replaced by a larger one if it is too short, hence it can be reused from vertex to vertex.
+	 * @return Number of visible vertices.
+	 */
+	static int computeVisibleVertices(PreparedPolygon pol, int i, int[][] visible) {
+		VsRep vs = preprocess(pol, new Point2D.Double(pol.x[i], pol.y[i]), AngleMode.PSEUDO).first;
+		VertDisplStack s = run(vs);
+
+		assert (vs.zIsVertex);
+
+		if (visible[0].length < vs.n)
+			visible[0] = new int[vs.n];
+
+		int count = 0;
+		int last = -1;	// position of the last visible vertex
+		double ax = 0, ay = 0;
+		int aPos = -1;
+
+		// from the bottom of the stack to its top and back to z (the origin, after v_{n-1})
+		for (int k = s.size() - 1; k >= -1; k--) {
+			double bx = (k >= 0) ? s.x(k) : 0;
+			double by = (k >= 0) ? s.y(k) : 0;
+			int bPos = (k >= 0) ? s.pos(k) : 2 * vs.n;
+
+			// skipped vertices v_j, aPos < 2j < bPos
+			for (int j = aPos / 2 + 1; aPos >= 0 && 2 * j < bPos; j++) {
+				if (2 * j > last && (CommonUtils.epsEquals(vs.x[j], vs.y[j], ax, ay) || CommonUtils.epsEquals(vs.x[j], vs.y[j], bx, by) ||
+									 LineSegment.pointOnSegment(vs.x[j], vs.y[j], ax, ay, bx, by))) {
+					visible[0][count++] = vs.polygonIndex(j);
+					last = 2 * j;
+				}
+			}
+
+			if (k >= 0 && (bPos & 1) == 0 && bPos > last) {
+				visible[0][count++] = vs.polygonIndex(bPos / 2);
+				last = bPos;
+			}
+
+			ax = bx;
+			ay = by;
+			aPos = bPos;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Emits the vertices of the visibility polygon in CCW order in one pass over the final stack content:
+	 * reverses the order of the stack, rotates and shifts the points and drops duplicate vertices and
+	 * vertices lying on the segment between their neighbors (e.g. window endpoints on polygon edges).
+	 * @param s Stack content after the algorithm terminated.
+	 * @param zIsVertex Determines if z (the origin) is a vertex of the visibility polygon.
+	 * @param cos Cosine of the rotation angle.
+	 * @param sin Sine of the rotation angle.
+	 * @param zx x coordinate the origin is shifted to.
+	 * @param zy y coordinate the origin is shifted to.
+	 * @param x Receives the x coordinates of the vertices, at least s.size() + 1 long.
+	 * @param y Receives the y coordinates of the vertices, at least s.size() + 1 long.
+	 * @return Number of vertices of the visibility polygon.
+	 */
+	private static int emitVertices(VertDisplStack s, boolean zIsVertex, double cos, double sin, double zx, double zy, double[] x, double[] y) {
+		int m = 0;
 		
 		// reverse order of stack to establish CCW order of final visibility polygon
-		Collections.reverse(pre_s);
+		for (int k = s.size() - 1; k >= 0; k--) {
+			double px = s.x(k);
+			double py = s.y(k);
+			m = appendVertex(x, y, m, px * cos - py * sin + zx, px * sin + py * cos + zy);
+		}
 		
-		// convert VertDispl to PolarPoint2D
-		List<PolarPoint2D> rotatedPol = pre_s.stream().map(v -> v.getPoint()).collect(Collectors.toList());
+		if (zIsVertex)
+			m = appendVertex(x, y, m, zx, zy);
 		
-		// rotates points back to original position before the rotation in preprocess()
-		for (PolarPoint2D curr : rotatedPol) {
-			curr.rotateClockWise(-initAngle);
+		return closeVertices(x, y, m);
+	}
+	
+	/**
+	 * Removes the redundant vertices around the seam between the last and the first of the m vertices in x and y,
+	 * the vertices are shifted to the beginning of the arrays.
+	 * @return New number of vertices.
+	 */
+	static int closeVertices(double[] x, double[] y, int m) {
+		// the polygon is closed, hence the vertices around the seam between the last and the first vertex are checked as well
+		int first = 0;
+		
+		while (m - first >= 3) {
+			if (CommonUtils.epsEquals(x[m - 1], y[m - 1], x[first], y[first]) ||
+				isAligned(x[m - 2], y[m - 2], x[m - 1], y[m - 1], x[first], y[first]))
+				m--;
+			else if (isAligned(x[m - 1], y[m - 1], x[first], y[first], x[first + 1], y[first + 1]))
+				first++;
+			else
+				break;
+		}
+		
+		if (first > 0) {
+			System.arraycopy(x, first, x, 0, m - first);
+			System.arraycopy(y, first, y, 0, m - first);
 		}
 		
-		// convert PolarPoint2D to Point2D
-		List<Point2D> shiftedPol = rotatedPol.stream().map(v -> v.toCartesian()).collect(Collectors.toList());
+		return m - first;
+	}
+	
+	/**
+	 * Appends (px, py) to the first m vertices in x and y, unless it equals the last vertex.
+	 * Vertices that become redundant, because they lie on the segment between their predecessor and (px, py), are removed.
+	 * @return New number of vertices.
+	 */
+	static int appendVertex(double[] x, double[] y, int m, double px, double py) {
+		if (m > 0 && CommonUtils.epsEquals(x[m - 1], y[m - 1], px, py))
+			return m;
+		
+		while (m >= 2 && isAligned(x[m - 2], y[m - 2], x[m - 1], y[m - 1], px, py))
+			m--;
 		
-		// shifts points back to their position before the shift in preprocess()
-		for (Point2D curr : shiftedPol)
-			curr.setLocation(curr.getX() + z.getX(), curr.getY() + z.getY());
+		x[m] = px;
+		y[m] = py;
+		return m + 1;
+	}
+	
+	/**
+	 * Checks if b lies on the segment [a, c], i.e. if b can be dropped from the polygon boundary a, b, c.
+	 * Collinearity is tested relative to the lengths of [a, b] and [b, c], as the points carry the rounding errors of postprocess.
+	 * @return true iff. a, b and c are collinear and b lies between a and c.
+	 */
+	private static boolean isAligned(double ax, double ay, double bx, double by, double cx, double cy) {
+		double abx = bx - ax, aby = by - ay;
+		double bcx = cx - bx, bcy = cy - by;
 		
-		// TODO remove aligned vertices
+		double cross = abx * bcy - aby * bcx;
+		double dot = abx * bcx + aby * bcy;
 		
-		return new CCWPolygon(shiftedPol);
+		return dot > 0 && Math.abs(cross) <= CommonUtils.Eps * Math.sqrt((abx * abx + aby * aby) * (bcx * bcx + bcy * bcy));
 	}
 
 	
@@ -355,212 +1366,397 @@ public class VisibilityPolygon {
 	 */
 	
 	/**
-	  * Computes the intersection between the line segment [a, b] and the window [orig, endpoint]
-	  */
-	private static VertDispl intersectWithWindow(VertDispl a, VertDispl b, VertDispl orig, VertDispl endpoint) {
-		LineSegment s1 = new LineSegment(a.getPoint(), b.getPoint());
+	 * Computes the intersection between the line segment [v_i, v_{i+1}] and the window [orig, endpoint].
+	 * If there is no endpoint, then the window is the ray from orig in direction of its angular displacement.
+	 * @param res Receives the coordinates (index 0 and 1) and the angular displacement (index 2) of the intersection.
+	 * @return true iff. the segment and the window intersect.
+	 */
+	private static boolean intersectWithWindow(VsRep v, int i, double origX, double origY, double origAlpha,
+			boolean hasEndpoint, double endX, double endY, double[] res) {
+		boolean found;
 		
-		Point2D res;
-		if (endpoint != null) {
-			LineSegment s2 = new LineSegment(orig.getPoint(), endpoint.getPoint());
-			res = LineSegment.intersectSegments(s1, s2);
-		}
-		else {
-			Ray2D ray = new Ray2D(orig.getPoint().toCartesian(), orig.getDisplacement());
-			res = LineSegment.intersectSegmentWithRay(s1, ray);
-		}
+		if (hasEndpoint)
+			found = LineSegment.intersectSegments(v.x[i], v.y[i], v.x[i + 1], v.y[i + 1], origX, origY, endX, endY, res);
+		else
+			found = LineSegment.intersectSegmentWithRay(v.x[i], v.y[i], v.x[i + 1], v.y[i + 1],
+					origX, origY, v.dirX(origX, origAlpha), v.dirY(origY, origAlpha), res);
 		
-		return displacementInBetween(new PolarPoint2D(res), a, b);
+		if (found)
+			res[2] = displacementInBetween(v, res, v.alpha[i], v.alpha[i + 1]);
+		
+		return found;
 	}
 	
 	/**
-	 * Computes angular displacement for a point s of a segment between v1 and v2.
-	 * @param s Point of a segment.
-	 * @param v1 First vertex.
-	 * @param v2 Second vertex.
-	 * @return Angular displacement between v1 and v2 from the perspective of s.
+	 * Computes angular displacement for a point s of a segment between two points with angular displacements alpha1 and alpha2.
+	 * @param v Vertices, determine how angles are measured.
+	 * @param s Point of a segment (x at index 0, y at index 1).
+	 * @param alpha1 Angular displacement of the first endpoint.
+	 * @param alpha2 Angular displacement of the second endpoint.
+	 * @return Angular displacement between alpha1 and alpha2 from the perspective of s.
 	 */
-	private static VertDispl displacementInBetween(PolarPoint2D s, VertDispl v1, VertDispl v2) {
-		double bot = Math.min(v1.getDisplacement(), v2.getDisplacement());
-		double top = Math.max(v1.getDisplacement(), v2.getDisplacement());
+	private static double displacementInBetween(VsRep v, double[] s, double alpha1, double alpha2) {
+		double bot = Math.min(alpha1, alpha2);
+		double top = Math.max(alpha1, alpha2);
 		
 		if (CommonUtils.epsEquals(bot, top))
-			return new VertDispl(s, bot);
+			return bot;
 
 		
-		double temp = s.theta;
+		double temp = v.angle(s[0], s[1]);
 		while (CommonUtils.epsGreater(temp, top))	// normalizes the anglex
-			temp -= CommonUtils.PI2;
+			temp -= v.period;
 
 		while (CommonUtils.epsLess(temp, bot))	// normalizes the angle
-			temp += CommonUtils.PI2;
+			temp += v.period;
 
 		assert (CommonUtils.epsLEQ(bot, temp) && CommonUtils.epsLEQ(temp, top));
-		return new VertDispl(s, temp);
+		return temp;
 	}
 
 	/**
 	 * Vertices from the stack are popped until a sj is found that satisfies one of the two conditions from the paper (see Remark 3).
-	 * @return New stack and the last popped element.
+	 * The stack is popped in place, sj remains on top of it and the last popped element (s_{j+1} in the paper) is stored in st.
 	 */
-	private static Pair<Deque<VertDispl>, VertDispl> locateSj(VertDispl vi, VertDispl vi1, VertDispl sj1,
-			List<VertDispl> ss) {
-		
-		VertDispl sj = ss.get(0);
-		List<VertDispl> sTail = ss.subList(1, ss.size());
-		
-		if (CommonUtils.epsLess(sj.getDisplacement(), vi1.getDisplacement()) && CommonUtils.epsLEQ(vi1.getDisplacement(), sj1.getDisplacement())) {
-			return new Pair<Deque<VertDispl>, VertDispl>(new ArrayDeque<>(ss), sj1);
-		}
+	private static void locateSj(VsRep v, int i, int i1, ScanState st) {
+		VertDisplStack s = st.s;
 		
-		Point2D y = LineSegment.intersectSegments(new LineSegment(vi.getPoint().toCartesian(), vi1.getPoint().toCartesian()), new LineSegment(sj.getPoint().toCartesian(), sj1.getPoint().toCartesian())); 
+		double sj1x = s.x(0);
+		double sj1y = s.y(0);
+		double sj1Alpha = s.alpha(0);
+		s.pop();
 		
-		if (CommonUtils.epsLEQ(vi1.getDisplacement(), sj.getDisplacement()) && 
-			CommonUtils.epsLEQ(sj.getDisplacement(), sj1.getDisplacement()) &&
-			CommonUtils.epsNEquals(y, sj.getPoint().toCartesian()) && 
-			CommonUtils.epsNEquals(y, sj1.getPoint().toCartesian()) && 
-			y != null) {
+		// pops one element per iteration until sj (top of the stack) satisfies one of the conditions
+		while (true) {
+			double sjx = s.x(0);
+			double sjy = s.y(0);
+			double sjAlpha = s.alpha(0);
 			
-			return new Pair<Deque<VertDispl>, VertDispl>(new ArrayDeque<>(ss), sj1);
+			if (CommonUtils.epsLess(sjAlpha, v.alpha[i1]) && CommonUtils.epsLEQ(v.alpha[i1], sj1Alpha))
+				break;
+			
+			if (CommonUtils.epsLEQ(v.alpha[i1], sjAlpha) && 
+				CommonUtils.epsLEQ(sjAlpha, sj1Alpha) &&
+				LineSegment.intersectSegments(v.x[i], v.y[i], v.x[i1], v.y[i1], sjx, sjy, sj1x, sj1y, st.p) &&
+				!CommonUtils.epsEquals(st.p[0], st.p[1], sjx, sjy) && 
+				!CommonUtils.epsEquals(st.p[0], st.p[1], sj1x, sj1y))
+				break;
+			
+			sj1x = sjx;
+			sj1y = sjy;
+			sj1Alpha = sjAlpha;
+			s.pop();
 		}
-
-		return locateSj(vi, vi1, sj, sTail);
+		
+		st.sj1x = sj1x;
+		st.sj1y = sj1y;
+		st.sj1Alpha = sj1Alpha;
 	}
 	
+	// keeps theta in [0, 2*PI), same as PolarPoint2D.normalize
+	private static double normalizeAngle(double theta) {
+		while (theta <= 0.0)
+			theta += CommonUtils.PI2;
+
+		while (theta >= CommonUtils.PI2)
+			theta -= CommonUtils.PI2;
+		
+		return theta;
+	}
+
 	/**
-	 * Computes the angular displacements.
-	 * @param v Vertices whose angular displacement we compute.
-	 * @return Vertices and their angles.
+	 * Computes the initial vertex v0.
+	 * @param pol Prepared input polygon, its edge vectors don't change by shifting.
+	 * @param px x coordinates of the shifted input polygon (z is the origin).
+	 * @param py y coordinates of the shifted input polygon.
+	 * @param zIsVertex Determines if the viewpoint z is a vertex of the input polygon.
+	 * @return Index of the initial vertex v0.
 	 */
-	private static List<VertDispl> computeAngularDisplacements(List<PolarPoint2D> v) {
+	private static int getInitialVertex(PreparedPolygon pol, double[] px, double[] py, boolean zIsVertex) {
+		int m = px.length;
 
-		// used to store the result, vertices with their corresponding angular
-		// displacement
-		List<VertDispl> ret = new ArrayList<>();
+		// If z is vertex then take vertex adjacent to z.
+		if (zIsVertex) {
+			/* Find segment whose endpoint a is origin, pick the adjacent
+			   endpoint b. */
+			for (int i = 0; i < m; i++) {
+				if (CommonUtils.epsEquals(px[i], py[i], 0, 0))
+					return (i + 1) % m;
+			}
+		}
 
-		for (int i = 0; i < v.size(); i++) {
+		// If z is on an edge, return the vertex next to it.
+		for (int i = 0; i < m; i++) {
+			int j = (i + 1) % m;
+			if (LineSegment.pointOnSegment(0, 0, px[i], py[i], px[j], py[j]))
+				return j;
+		}
 
-			if (i == 0) {
-				ret.add(new VertDispl(v.get(0), v.get(0).theta));
-			} else {
-				PolarPoint2D vi = v.get(i);
-				PolarPoint2D viprev = v.get(i - 1);
-				double phi = vi.theta;
-				double rawAngle = Math.abs(phi - viprev.theta);
+		// the closest vertex c is taken as v0 if nothing blocks the view from z to it
+		int c = 0;
+		for (int i = 0; i < m; i++) {
+			if (px[i] * px[i] + py[i] * py[i] < px[c] * px[c] + py[c] * py[c])
+				c = i;
+		}
 
-				assert (rawAngle < CommonUtils.PI2);
+		// shoots a ray from z through c and keeps the closest edge hit before c
+		double tMin = 1;
+		int hitEdge = -1;
 
-				double angle = Math.min(rawAngle, CommonUtils.PI2 - rawAngle);
-				int sigma = CommonUtils.pointTurn(CommonUtils.origin2D, viprev.toCartesian(), vi.toCartesian()).toInt();
-				double alpha_vi = ret.get(i - 1).getDisplacement() + sigma * angle;
+		for (int i = 0; i < m; i++) {
+			double dx = pol.edgeX[i];
+			double dy = pol.edgeY[i];
+			double denom = px[c] * dy - py[c] * dx;
 
-				assert (Math.abs(alpha_vi - ret.get(i - 1).getDisplacement()) < CommonUtils.PI);
+			// edges parallel to the ray can't lie between z and the closest vertex
+			if (denom == 0)
+				continue;
 
-				ret.add(new VertDispl(vi, alpha_vi));
+			double t = (px[i] * dy - py[i] * dx) / denom;
+			double u = (px[i] * py[c] - py[i] * px[c]) / denom;
+
+			if (t > 0 && CommonUtils.epsLess(t, tMin) && CommonUtils.epsLEQ(0, u) && CommonUtils.epsLEQ(u, 1)) {
+				tMin = t;
+				hitEdge = i;
 			}
 		}
 
-		return ret;
+		if (hitEdge < 0)
+			return c;
+
+		return firstVertexSwept(px, py, hitEdge, px[c] * tMin, py[c] * tMin);
 	}
 
-	private static void adjustPositionOfz(List<PolarPoint2D> l, boolean zIsVertex, Point2D z) {
-		if (zIsVertex) {
-			// removes z from list (z is origin because we shifted the polygon)
-			boolean temp = l.remove(new PolarPoint2D(0, 0));
-			assert (temp);
+	/**
+	 * Rotates the ray from z through h counter-clockwise and returns the first vertex it hits.
+	 * Edge e is the closest edge hit by the ray (h lies on e), hence the vertex is visible from z.
+	 * @param px x coordinates of the shifted input polygon (z is the origin).
+	 * @param py y coordinates of the shifted input polygon.
+	 * @param e Index of the edge [v_e, v_{e+1}] containing h, z lies to its left.
+	 * @param hx x coordinate of a point of e visible from z.
+	 * @param hy y coordinate of a point of e visible from z.
+	 * @return Index of a vertex visible from z.
+	 */
+	private static int firstVertexSwept(double[] px, double[] py, int e, double hx, double hy) {
+		int a = e;
+		int b = (e + 1) % px.length;
 
-			l.add(0, new PolarPoint2D(0, 0));
-		}
-	}
+		// vertex b is hit last, unless some vertex lies in the triangle (z, h, b)
+		int first = b;
 
-	private static void placeV0First(List<PolarPoint2D> l, PolarPoint2D v0) {
-		assert (l.contains(v0));
-		/*
-		 * List l can't have duplicates since this would imply a self
-		 * intersecting polygon and we assume simple polygons as input.
-		 */
-		assert (l.indexOf(v0) == l.lastIndexOf(v0));
+		for (int i = 0; i < px.length; i++) {
+			if (Predicates.orient2d(0, 0, hx, hy, px[i], py[i]) > 0 &&
+				Predicates.orient2d(0, 0, px[i], py[i], px[b], py[b]) >= 0 &&
+				Predicates.orient2d(px[a], py[a], px[b], py[b], px[i], py[i]) > 0) {
+
+				double turn = Predicates.orient2d(0, 0, px[first], py[first], px[i], py[i]);
+				double distSq = px[i] * px[i] + py[i] * py[i];
 
-		Collections.rotate(l, -l.indexOf(v0));	// Rotates the elements such that v0 is on index 0.
+				if (turn < 0 || (turn == 0 && distSq < px[first] * px[first] + py[first] * py[first]))
+					first = i;
+			}
+		}
 
-		assert (l.get(0).equals(v0));
+		return first;
 	}
 
 	/**
-	 * Computes the initial vertex v0.
-	 * @param shiftedPol Shifted input polygon.
-	 * @param zIsVertex Determines if the viewpoint z is a vertex of the input polygon.
-	 * @return Initial vertex v0.
+	 * Encapsulates vertices, their angular displacements, if the viewpoint is a vertex and n as described in the paper.
+	 * Vertices are stored in parallel primitive arrays, index i refers to v_i of the paper.
 	 */
-	private static PolarPoint2D getInitialVertex(CCWPolygon shiftedPol, boolean zIsVertex) {
-		List<LineSegment> es = shiftedPol.getEdges();
-		List<Point2D> vs = shiftedPol.getVertices();
+	public static class VsRep {
+		// vertices as a read-only list, meant for inspecting the representation (allocates on access)
+		public final List<VertDispl> v;
+		public boolean zIsVertex;
+		int n;
 
-		// If z is vertex then take vertex adjacent to z.
-		if (zIsVertex) {
-			Point2D ret;
+		// how angles are measured and the angle of a full turn
+		final AngleMode mode;
+		final double period;
 
-			/* Find segment whose endpoint a is origin, pick the adjacent
-			   endpoint b. */
-			for (LineSegment curr : es) {
-				if (CommonUtils.epsEquals(curr.a, CommonUtils.origin2D, CommonUtils.Eps))
-					return new PolarPoint2D(curr.b);
-			}
+		// coordinates and angles of the vertices, rotated such that v0 lies on the x axis (AngleMode.RADIANS)
+		final double[] x;
+		final double[] y;
+		final double[] theta;
+		// angular displacements
+		final double[] alpha;
+
+		// indices of v0 and z (-1 unless z is a vertex) in the polygon
+		final int first;
+		final int zIndex;
+
+		VsRep(double[] x, double[] y, double[] theta, boolean zIsVertex, AngleMode mode, int first, int zIndex) {
+			this.zIsVertex = zIsVertex;
+			this.mode = mode;
+			this.first = first;
+			this.zIndex = zIndex;
+			this.period = mode.period;
+			this.x = x;
+			this.y = y;
+			this.theta = theta;
+			n = x.length;
+
+			alpha = computeAngularDisplacements();
+
+			v = new AbstractList<VertDispl>() {
+				@Override
+				public VertDispl get(int i) {
+					return VsRep.this.get(i);
+				}
+
+				@Override
+				public int size() {
+					return n;
+				}
+			};
+		}
+
+		public VertDispl get(int i) {
+			if (mode == AngleMode.PSEUDO)
+				return new VertDispl(new PolarPoint2D(new Point2D.Double(x[i], y[i])), alpha[i]);
 
+			return new VertDispl(new PolarPoint2D(Math.sqrt(x[i] * x[i] + y[i] * y[i]), theta[i]), alpha[i]);
 		}
 
-		// If z is on an edge, return the vertex next to it.
-		for (LineSegment curr : es) {
-			if (curr.pointOnSegment(CommonUtils.origin2D, curr))
-				return new PolarPoint2D(curr.b);
+		public int size() {
+			return n;
+		}
+
+		// index of v_k in the polygon, v = [v0, v1, ..., vk] skips z if it is a vertex
+		int polygonIndex(int k) {
+			int m = zIsVertex ? n + 1 : n;
+			int i = first + k;
+
+			if (zIsVertex && Math.floorMod(zIndex - first, m) <= k)
+				i++;
+
+			return i % m;
+		}
+
+		// orientation of the turn v_i, v_j, v_k
+		Orientation turn(int i, int j, int k) {
+			return CommonUtils.pointTurn(x[i], y[i], x[j], y[j], x[k], y[k]);
 		}
 
-		// used to store all visible (from z) vertices of the polygon
-		List<Point2D> visible = new ArrayList<Point2D>();
+		// angle of a point in the coordinate system of the vertices
+		double angle(double px, double py) {
+			if (mode == AngleMode.PSEUDO)
+				return CommonUtils.pseudoAngle(x[0] * px + y[0] * py, x[0] * py - y[0] * px);
+
+			return Math.atan2(py, px);
+		}
+
+		// x component of the direction of a ray from z through a point with x coordinate px and angle a
+		double dirX(double px, double a) {
+			return (mode == AngleMode.PSEUDO) ? px : Math.cos(a);
+		}
 
-		for (Point2D v : vs) {
-			if (shiftedPol.visibleFromOrigin(v))
-				visible.add(v);
+		// y component of the direction of a ray from z through a point with y coordinate py and angle a
+		double dirY(double py, double a) {
+			return (mode == AngleMode.PSEUDO) ? py : Math.sin(a);
 		}
 
-		assert (!visible.isEmpty());
+		/**
+		 * Computes the angular displacements of the vertices.
+		 * @return Angular displacement of each vertex.
+		 */
+		private double[] computeAngularDisplacements() {
+			double[] ret = new double[n];
+
+			ret[0] = theta[0];
+
+			for (int i = 1; i < n; i++) {
+				double rawAngle = Math.abs(theta[i] - theta[i - 1]);
+
+				assert (rawAngle < period);
+
+				double angle = Math.min(rawAngle, period - rawAngle);
+				int sigma = CommonUtils.pointTurn(0, 0, x[i - 1], y[i - 1], x[i], y[i]).toInt();
+				ret[i] = ret[i - 1] + sigma * angle;
+
+				assert (Math.abs(ret[i] - ret[i - 1]) < period / 2);
+			}
+
+			return ret;
+		}
+	}
 
-		List<PolarPoint2D> visiblePolar = new ArrayList<>();
-		for (Point2D curr : visible)
-			visiblePolar.add(new PolarPoint2D(curr));
+	// Computes the visibility polygons of a range of viewpoints, splits the range while it is large.
+	private static class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final PreparedPolygon pol;
+		final Point2D[] zs;
+		final AngleMode mode;
+		final CCWPolygon[] visPolygons;
+		final int from, to, minRange;
+
+		BatchTask(PreparedPolygon pol, Point2D[] zs, AngleMode mode, CCWPolygon[] visPolygons, int from, int to, int minRange) {
+			this.pol = pol;
+			this.zs = zs;
+			this.mode = mode;
+			this.visPolygons = visPolygons;
+			this.from = from;
+			this.to = to;
+			this.minRange = minRange;
+		}
 
-		PolarPoint2D closestVisibleVertex = visiblePolar.get(0);
+		@Override
+		protected void compute() {
+			if (to - from <= minRange) {
+				for (int i = from; i < to; i++)
+					visPolygons[i] = VisibilityPolygon.computeVisPol(pol, zs[i], mode);
+				return;
+			}
 
-		for (PolarPoint2D curr : visiblePolar) {
-			if (curr.r < closestVisibleVertex.r && (curr.r > 0 || CommonUtils.epsEquals(curr.r, 0, CommonUtils.Eps)))
-				closestVisibleVertex = curr;
+			int mid = (from + to) >>> 1;
+			invokeAll(new BatchTask(pol, zs, mode, visPolygons, from, mid, minRange),
+					  new BatchTask(pol, zs, mode, visPolygons, mid, to, minRange));
 		}
+	}
 
-		return closestVisibleVertex;
+	// Steps of the state machine that replaces the mutual recursion between advance, retard and scan.
+	private enum Step {
+		ADVANCE, RETARD, SCAN, DONE
 	}
 
-	// Encapsulates vertices, their angular displacements, if the viewpoint is a vertex and n as described in the paper.
-	public static class VsRep {
-		public List<VertDispl> v;
-		public boolean zIsVertex;
-		int n;
+	// Arguments that advance, retard and scan used to pass to each other, kept between steps.
+	private static class ScanState {
+		VertDisplStack s;
+		int iprev;
+		Orientation ori;
 
-		public VsRep(List<PolarPoint2D> vs, boolean zIsVertex) {
-			this.zIsVertex = zIsVertex;
-			n = (zIsVertex) ? vs.size() - 1 : vs.size();
+		// end point of the current window, if it has one
+		boolean windowEnd;
+		double wx, wy;
 
-			if (zIsVertex)
-				v = computeAngularDisplacements(vs.subList(1, vs.size()));
-			else
-				v = computeAngularDisplacements(vs);
+		// s_{j+1} as determined by locateSj
+		double sj1x, sj1y, sj1Alpha;
+
+		// receives intersection points (x, y and angular displacement)
+		final double[] p = new double[3];
+
+		ScanState(int n) {
+			s = new VertDisplStack(n + 2);
 		}
 
-		public VertDispl get(int i) {
-			return v.get(i);
+		Step to(Step next, int iprev) {
+			this.iprev = iprev;
+			return next;
 		}
 
-		public int size() {
-			return v.size();
+		Step toScan(int iprev, Orientation ori) {
+			this.windowEnd = false;
+			this.ori = ori;
+			return to(Step.SCAN, iprev);
+		}
+
+		Step toScan(int iprev, double wx, double wy, Orientation ori) {
+			this.windowEnd = true;
+			this.wx = wx;
+			this.wy = wy;
+			this.ori = ori;
+			return to(Step.SCAN, iprev);
 		}
 	}
 }
@@ -0,0 +1,211 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+
+/**
+ * Visibility polygon from a viewpoint z prepared for many visibility and ray queries.
+ *
+ * The visibility polygon is star-shaped with respect to z, hence its vertices are sorted by their angle around z.
+ * They are kept in primitive arrays (relative to z) together with their pseudo-angles (see CommonUtils.pseudoAngle),
+ * a query finds the edge in the direction of the query by binary search over the angles in O(log n) time.
+ * Queries only read the arrays filled by the constructor, so threads can query one instance at the same time.
+ *
+ * Usage example:
+
+		VisibilityQuery query = VisibilityPolygon.computeQuery(pol, z);
+
+		boolean visible = query.isVisible(target);
+		Point2D hit = query.castRay(1, 0);
+ */
+public final class VisibilityQuery {
+
+	// viewpoint
+	private final double zx, zy;
+
+	// vertices of the visibility polygon relative to z in CCW order, z itself is left out
+	private final double[] x, y;
+
+	// pseudo-angles of the vertices relative to the direction of vertex 0, non-decreasing in [0, 4]
+	private final double[] ang;
+
+	// if z is a vertex, then the visibility polygon doesn't surround z, its edges from and to z bound the directions after the last vertex
+	private final boolean zIsVertex;
+
+	/**
+	 * @param zx x coordinate of the viewpoint.
+	 * @param zy y coordinate of the viewpoint.
+	 * @param x x coordinates of the vertices of the visibility polygon relative to z in CCW order.
+	 * @param y y coordinates of the vertices relative to z.
+	 * @param m Number of vertices.
+	 */
+	VisibilityQuery(double zx, double zy, double[] x, double[] y, int m) {
+		this.zx = zx;
+		this.zy = zy;
+
+		// starts the vertices after z if z is one of them
+		int zIndex = -1;
+		for (int i = 0; i < m; i++) {
+			if (x[i] == 0 && y[i] == 0)
+				zIndex = i;
+		}
+
+		zIsVertex = zIndex >= 0;
+
+		int n = zIsVertex ? m - 1 : m;
+		this.x = new double[n];
+		this.y = new double[n];
+
+		for (int k = 0; k < n; k++) {
+			int i = (zIndex + 1 + k) % m;
+			this.x[k] = x[i];
+			this.y[k] = y[i];
+		}
+
+		ang = new double[n];
+
+		for (int i = 1; i < n; i++) {
+			ang[i] = relativeAngle(this.x[i], this.y[i]);
+
+			// an edge spans less than half a turn, hence a larger jump means that the angle is off by a full turn:
+			// too small for vertices on the ray through vertex 0 at the end, too large for vertices slightly
+			// clockwise of it at the beginning (rounding errors of window endpoints)
+			if (ang[i] - ang[i - 1] > 2)
+				ang[i] -= 4;
+			else if (ang[i - 1] - ang[i] > 2)
+				ang[i] += 4;
+
+			// small decreases are rounding errors as well
+			ang[i] = Math.max(ang[i], ang[i - 1]);
+		}
+	}
+
+	// number of vertices of the visibility polygon
+	public int size() {
+		return zIsVertex ? x.length + 1 : x.length;
+	}
+
+	public Point2D getViewpoint() {
+		return new Point2D.Double(zx, zy);
+	}
+
+	/**
+	 * Checks if q is visible from z, i.e. if q lies in the visibility polygon (boundary included), in O(log n) time.
+	 * @param q Point to check.
+	 * @return true iff. the segment from z to q lies in the polygon.
+	 */
+	public boolean isVisible(Point2D q) {
+		return isVisible(q.getX(), q.getY());
+	}
+
+	// same as isVisible(Point2D) for the point (qx, qy)
+	public boolean isVisible(double qx, double qy) {
+		double px = qx - zx;
+		double py = qy - zy;
+
+		if (px == 0 && py == 0)
+			return true;
+
+		int n = x.length;
+
+		if (n == 0)
+			return false;
+
+		double a = relativeAngle(px, py);
+		int i = lastAtMost(a);
+
+		if (zIsVertex && i == n - 1 && a > ang[n - 1])
+			return false;	// outside of the angle at z
+
+		int j = (i + 1) % n;
+
+		// q must not lie beyond the edge in its direction
+		if (zIsVertex && i == n - 1)
+			return onSegmentFromZ(px, py, x[i], y[i]);
+
+		return Predicates.orient2d(x[i], y[i], x[j], y[j], px, py) >= 0;
+	}
+
+	/**
+	 * Shoots a ray from z and returns the first point where it hits the boundary of the polygon
+	 * (i.e. where it leaves the visibility polygon), in O(log n) time.
+	 * @param dx x coordinate of the direction of the ray.
+	 * @param dy y coordinate of the direction of the ray.
+	 * @return First point of the boundary hit by the ray, z itself if the ray immediately leaves the polygon.
+	 */
+	public Point2D castRay(double dx, double dy) {
+		double t = rayParameter(dx, dy);
+		return new Point2D.Double(zx + t * dx, zy + t * dy);
+	}
+
+	/**
+	 * Same as castRay, but returns the distance from z to the first point hit by the ray.
+	 * @param dx x coordinate of the direction of the ray.
+	 * @param dy y coordinate of the direction of the ray.
+	 * @return Distance from z to the boundary in direction (dx, dy).
+	 */
+	public double rayDistance(double dx, double dy) {
+		return rayParameter(dx, dy) * Math.sqrt(dx * dx + dy * dy);
+	}
+
+	// the ray z + t * (dx, dy) hits the boundary first at t
+	private double rayParameter(double dx, double dy) {
+		int n = x.length;
+
+		if (n == 0 || (dx == 0 && dy == 0))
+			return 0;
+
+		double a = relativeAngle(dx, dy);
+		int i = lastAtMost(a);
+
+		if (zIsVertex && i == n - 1 && a > ang[n - 1])
+			return 0;	// outside of the angle at z
+
+		double t = Double.POSITIVE_INFINITY;
+
+		// vertices in exactly the direction of the ray (e.g. both endpoints of a window), the closest one is hit first
+		for (int k = i; k >= 0 && ang[k] == a; k--)
+			t = Math.min(t, (x[k] * dx + y[k] * dy) / (dx * dx + dy * dy));
+
+		if (zIsVertex && i == n - 1)
+			return t;
+
+		int j = (i + 1) % n;
+		double ex = x[j] - x[i];
+		double ey = y[j] - y[i];
+		double denom = dx * ey - dy * ex;
+
+		// intersection of the ray with the line through the edge in the direction of the ray
+		if (denom != 0)
+			t = Math.min(t, (x[i] * ey - y[i] * ex) / denom);
+
+		return t;
+	}
+
+	// index of the last vertex with an angle of at most a (vertex 0 has angle 0)
+	private int lastAtMost(double a) {
+		int lo = 0;
+		int hi = ang.length - 1;
+
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+
+			if (ang[mid] <= a)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+
+		return lo;
+	}
+
+	// pseudo-angle of (px, py) relative to the direction of vertex 0
+	private double relativeAngle(double px, double py) {
+		return CommonUtils.pseudoAngle(x[0] * px + y[0] * py, x[0] * py - y[0] * px);
+	}
+
+	// true iff. p lies on the segment from z (the origin) to v
+	private static boolean onSegmentFromZ(double px, double py, double vx, double vy) {
+		return Predicates.orient2d(0, 0, vx, vy, px, py) == 0 && px * vx + py * vy >= 0 &&
+			   px * px + py * py <= vx * vx + vy * vy;
+	}
+}
@@ -0,0 +1,306 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Combinatorial structure of a visibility polygon and the halfplanes of viewpoints sharing it.
+ * Vertex j of the visibility polygon is either the polygon vertex idx[j] (reflex[j] < 0) or the
+ * endpoint of the window from z through the polygon vertex reflex[j] on edge idx[j].
+ * Instances never change after construction, hence they can be shared by multiple threads (see VisibilityCellCache).
+ */
+final class VisibilityTemplate {
+	final PreparedPolygon pol;
+	final int[] idx;
+	final int[] reflex;
+
+	// halfplanes a * x + b * y + c > 0 containing all viewpoints with this structure
+	final double[] a, b, c;
+	final int halfplanes;
+
+	// distance from the viewpoint of the template to the closest critical line
+	final double clearance;
+	final double z0x, z0y;
+
+	private VisibilityTemplate(PreparedPolygon pol, int[] idx, int[] reflex, double[] a, double[] b, double[] c, int halfplanes,
+			double z0x, double z0y) {
+		this.pol = pol;
+		this.idx = idx;
+		this.reflex = reflex;
+		// the arrays are allocated for the worst case, templates may be kept for a long time
+		this.a = Arrays.copyOf(a, halfplanes);
+		this.b = Arrays.copyOf(b, halfplanes);
+		this.c = Arrays.copyOf(c, halfplanes);
+		this.halfplanes = halfplanes;
+		this.z0x = z0x;
+		this.z0y = z0y;
+
+		double clearance = Double.POSITIVE_INFINITY;
+		for (int h = 0; h < halfplanes; h++)
+			clearance = Math.min(clearance, (a[h] * z0x + b[h] * z0y + c[h]) / Math.sqrt(a[h] * a[h] + b[h] * b[h]));
+
+		this.clearance = clearance;
+	}
+
+	/**
+	 * Matches the vertices of VP with the vertices and edges of pol (both are in CCW order) and collects the critical lines.
+	 * @return Template of VP, null if the structure is degenerate (e.g. z on the boundary or on a critical line).
+	 */
+	static VisibilityTemplate build(PreparedPolygon pol, double zx, double zy, CCWPolygon VP) {
+		double[] x = pol.x, y = pol.y;
+		int n = x.length;
+		List<Point2D> vertices = VP.getVertices();
+		int k = vertices.size();
+
+		int[] idx = new int[k];
+		int[] reflex = new int[k];
+		boolean[] onEdge = new boolean[k];
+
+		// the visibility polygon starts with a polygon vertex (v0 of the algorithm)
+		Point2D p0 = vertices.get(0);
+		int curr = -1;
+		for (int i = 0; i < n && curr < 0; i++) {
+			if (CommonUtils.epsEquals(x[i], y[i], p0.getX(), p0.getY()))
+				curr = i;
+		}
+
+		if (curr < 0)
+			return null;
+
+		idx[0] = curr;
+
+		// the visibility polygon follows the boundary of the polygon, skipping the pockets behind windows
+		for (int j = 1; j < k; j++) {
+			Point2D p = vertices.get(j);
+			boolean found = false;
+
+			for (int steps = 0, i = curr; steps < n && !found; steps++, i = (i + 1) % n) {
+				int i1 = (i + 1) % n;
+
+				if (CommonUtils.epsEquals(x[i1], y[i1], p.getX(), p.getY())) {
+					idx[j] = curr = i1;
+					found = true;
+				} else if (LineSegment.pointOnSegment(p.getX(), p.getY(), x[i], y[i], x[i1], y[i1])) {
+					idx[j] = curr = i;
+					onEdge[j] = true;
+					found = true;
+				}
+			}
+
+			if (!found)
+				return null;
+		}
+
+		Arrays.fill(reflex, -1);
+
+		double[] a = new double[4 * k + 2 * n];
+		double[] b = new double[a.length];
+		double[] c = new double[a.length];
+		int h = 0;
+
+		for (int j = 0; j < k; j++) {
+			int j1 = (j + 1) % k;
+			Point2D p = vertices.get(j), q = vertices.get(j1);
+
+			double cross = (p.getX() - zx) * (q.getY() - zy) - (p.getY() - zy) * (q.getX() - zx);
+			double len = Math.hypot(p.getX() - zx, p.getY() - zy) * Math.hypot(q.getX() - zx, q.getY() - zy);
+
+			if (Math.abs(cross) > CommonUtils.Eps * len)
+				continue;
+
+			// edge of VP on a line through z: a window from a reflex vertex to an edge
+			if (onEdge[j] == onEdge[j1])
+				return null;
+
+			int r = onEdge[j] ? j1 : j;
+			int e = onEdge[j] ? j : j1;
+
+			if (reflex[e] >= 0)
+				return null;
+
+			reflex[e] = idx[r];
+		}
+
+		// each window endpoint belongs to exactly one window
+		for (int j = 0; j < k; j++) {
+			if (onEdge[j] && reflex[j] < 0)
+				return null;
+		}
+
+		for (int j = 0; j < k; j++) {
+			int j1 = (j + 1) % k;
+
+			if (isWindow(onEdge, reflex, idx, j, j1)) {
+				// window from r to edge e, the limits are the vertices of the pocket behind it and the neighbors of r
+				boolean reflexFirst = !onEdge[j];
+				int r = reflexFirst ? idx[j] : idx[j1];
+				int e = reflexFirst ? idx[j1] : idx[j];
+
+				h = addWindowLimits(x, y, zx, zy, r, e, reflexFirst, a, b, c, h);
+				if (h < 0)
+					return null;
+			} else {
+				// boundary piece of VP from vertex j to j1, its edges face z and its endpoints stay in angular order
+				int from = idx[j];
+				int to = onEdge[j1] ? idx[j1] : (idx[j1] - 1 + n) % n;
+
+				for (int i = from; ; i = (i + 1) % n) {
+					h = addHalfplane(x[i], y[i], x[(i + 1) % n], y[(i + 1) % n], a, b, c, h);
+					if (i == to)
+						break;
+				}
+
+				int pj = onEdge[j] ? reflex[j] : idx[j];
+				int pj1 = onEdge[j1] ? reflex[j1] : idx[j1];
+
+				if (pj != pj1)
+					h = addHalfplane(x[pj], y[pj], x[pj1], y[pj1], a, b, c, h);
+			}
+		}
+
+		for (int j = 0; j < k; j++) {
+			if (!onEdge[j])
+				reflex[j] = -1;
+		}
+
+		VisibilityTemplate ret = new VisibilityTemplate(pol, idx, reflex, a, b, c, h, zx, zy);
+
+		// z lies on a critical line
+		if (!(ret.clearance > 0))
+			return null;
+
+		return ret;
+	}
+
+	private static boolean isWindow(boolean[] onEdge, int[] reflex, int[] idx, int j, int j1) {
+		if (onEdge[j] == onEdge[j1])
+			return false;
+
+		return onEdge[j] ? reflex[j] == idx[j1] : reflex[j1] == idx[j];
+	}
+
+	/**
+	 * Adds the halfplanes keeping the direction from z to r between the directions from r to the closest vertices
+	 * in angle on both sides, the vertices being the neighbors of r and the vertices of the pocket behind the window.
+	 * @return New number of halfplanes, -1 if a vertex lies on the window.
+	 */
+	private static int addWindowLimits(double[] x, double[] y, double zx, double zy, int r, int e, boolean reflexFirst,
+			double[] a, double[] b, double[] c, int h) {
+		int n = x.length;
+		double dx = x[r] - zx;
+		double dy = y[r] - zy;
+
+		// pocket between r and the edge e in boundary order, extended by one vertex on both sides
+		int first = reflexFirst ? (r - 1 + n) % n : e;
+		int last = reflexFirst ? (e + 1) % n : (r + 1) % n;
+
+		double ccwAngle = 1, cwAngle = 3;	// at most a quarter turn on both sides
+		double ccwX = -dy, ccwY = dx, cwX = dy, cwY = -dx;
+
+		for (int i = first; ; i = (i + 1) % n) {
+			if (i != r) {
+				double wx = x[i] - x[r];
+				double wy = y[i] - y[r];
+				double angle = CommonUtils.pseudoAngle(dx * wx + dy * wy, dx * wy - dy * wx);
+
+				if (angle == 0)
+					return -1;
+
+				if (angle < ccwAngle) {
+					ccwAngle = angle;
+					ccwX = wx;
+					ccwY = wy;
+				}
+
+				if (angle > cwAngle) {
+					cwAngle = angle;
+					cwX = wx;
+					cwY = wy;
+				}
+			}
+
+			if (i == last)
+				break;
+		}
+
+		// cross(r - z, ccw) > 0 and cross(cw, r - z) > 0, both are linear in z
+		a[h] = -ccwY;
+		b[h] = ccwX;
+		c[h] = x[r] * ccwY - y[r] * ccwX;
+		h++;
+
+		a[h] = cwY;
+		b[h] = -cwX;
+		c[h] = cwX * y[r] - cwY * x[r];
+		h++;
+
+		// r stays a tangent point while z doesn't cross the lines through r and its neighbors
+		for (int w : new int[] { (r - 1 + n) % n, (r + 1) % n }) {
+			if (CommonUtils.crossProduct(x[r], y[r], x[w], y[w], zx, zy) > 0)
+				h = addHalfplane(x[r], y[r], x[w], y[w], a, b, c, h);
+			else
+				h = addHalfplane(x[w], y[w], x[r], y[r], a, b, c, h);
+		}
+
+		return h;
+	}
+
+	// adds the halfplane left of the line from p to q (z must see p and q in CCW order)
+	private static int addHalfplane(double px, double py, double qx, double qy, double[] a, double[] b, double[] c, int h) {
+		if (h == a.length)
+			return h;	// can't happen for simple polygons, as each edge is added at most once
+
+		a[h] = -(qy - py);
+		b[h] = qx - px;
+		c[h] = (qy - py) * px - (qx - px) * py;
+		return h + 1;
+	}
+
+	// number of vertices of the visibility polygon plus number of halfplanes
+	int weight() {
+		return idx.length + halfplanes;
+	}
+
+	boolean isValidFor(double zx, double zy) {
+		double dx = zx - z0x;
+		double dy = zy - z0y;
+
+		if (dx * dx + dy * dy < clearance * clearance)
+			return true;
+
+		for (int h = 0; h < halfplanes; h++) {
+			if (!(a[h] * zx + b[h] * zy + c[h] > 0))
+				return false;
+		}
+
+		return true;
+	}
+
+	// visibility polygon from z with the structure of the template
+	CCWPolygon instantiate(double zx, double zy) {
+		double[] x = pol.x, y = pol.y;
+		int n = x.length;
+		List<Point2D> ret = new ArrayList<>(idx.length);
+
+		for (int j = 0; j < idx.length; j++) {
+			int i = idx[j];
+
+			if (reflex[j] < 0) {
+				ret.add(new Point2D.Double(x[i], y[i]));
+				continue;
+			}
+
+			// intersection of the ray from z through the reflex vertex with edge i
+			int i1 = (i + 1) % n;
+			double dx = x[reflex[j]] - zx, dy = y[reflex[j]] - zy;
+			double fx = x[i1] - x[i], fy = y[i1] - y[i];
+			double s = ((zx - x[i]) * dy - (zy - y[i]) * dx) / (fx * dy - fy * dx);
+
+			ret.add(new Point2D.Double(x[i] + s * fx, y[i] + s * fy));
+		}
+
+		return new CCWPolygon(ret);
+	}
+}
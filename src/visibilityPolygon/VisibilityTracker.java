@@ -0,0 +1,114 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Visibility polygons from a moving viewpoint, e.g. an agent moving through the polygon in small steps.
+ *
+ * The combinatorial structure of the visibility polygon (which vertices are visible and on which edges the
+ * windows end) only changes when z crosses a critical line through two vertices of the polygon. After a full
+ * computation the structure is kept as template together with the critical lines bounding the region of z in
+ * which it stays the same: supporting lines of the visible edges, lines through consecutive visible vertices
+ * and lines through the reflex vertex of each window and the vertices closest to the window in angle.
+ * Each of them is stored as halfplane containing z.
+ *
+ * For a new viewpoint inside all halfplanes only the window endpoints are re-evaluated (intersection of the ray
+ * from z through the reflex vertex with the edge the window ends on). A viewpoint closer to the viewpoint of
+ * the last full computation than any of the critical lines is accepted in O(1) time, otherwise all halfplanes
+ * are checked, and if z left one of them the visibility polygon is recomputed and a new template is built.
+ * The halfplanes are conservative, they may cause a recomputation that wasn't necessary but never keep an outdated structure.
+ *
+ * Instances keep the state of the trajectory, hence they must not be used by multiple threads at the same time.
+ *
+ * Usage example:
+
+		VisibilityTracker tracker = new VisibilityTracker(PreparedPolygon.of(pol));
+
+		for (Point2D z : trajectory) {
+			CCWPolygon VP = tracker.update(z);
+			...
+		}
+ */
+public class VisibilityTracker {
+
+	private final PreparedPolygon pol;
+	private final AngleMode mode;
+
+	// viewpoint of the last full computation
+	private double z0x, z0y;
+	private CCWPolygon lastVP;
+
+	// template of the last full computation, null if its structure can't be reused
+	private VisibilityTemplate template;
+
+	private int updates;
+	private int recomputations;
+
+	/**
+	 * @param pol Simple polygon prepared for queries.
+	 */
+	public VisibilityTracker(PreparedPolygon pol) {
+		this(pol, AngleMode.RADIANS);
+	}
+
+	/**
+	 * @param pol Simple polygon prepared for queries.
+	 * @param mode How angles are measured in full computations.
+	 */
+	public VisibilityTracker(PreparedPolygon pol, AngleMode mode) {
+		this.pol = pol;
+		this.mode = mode;
+	}
+
+	/**
+	 * Moves the viewpoint to z and returns the visibility polygon from z.
+	 * @param z New viewpoint inside (boundary is fine too) of the polygon.
+	 * @return Visibility polygon in CCW order, null if z lies outside of the polygon or the polygon is not simple or not in CCW order.
+	 */
+	public CCWPolygon update(Point2D z) {
+		updates++;
+
+		double zx = z.getX();
+		double zy = z.getY();
+
+		if (lastVP != null && zx == z0x && zy == z0y)
+			return lastVP;
+
+		if (template != null && template.isValidFor(zx, zy) && pol.containsPoint(zx, zy))
+			return template.instantiate(zx, zy);
+
+		recomputations++;
+
+		z0x = zx;
+		z0y = zy;
+		lastVP = VisibilityPolygon.computeVisPol(pol, z, mode);
+		template = (lastVP == null) ? null : VisibilityTemplate.build(pol, zx, zy, lastVP);
+
+		return lastVP;
+	}
+
+	/**
+	 * @param trajectory Viewpoints in the order they are visited.
+	 * @return Visibility polygons from the viewpoints (same order as trajectory), null for viewpoints outside of the polygon.
+	 */
+	public List<CCWPolygon> updateAll(List<Point2D> trajectory) {
+		List<CCWPolygon> ret = new ArrayList<>(trajectory.size());
+
+		for (Point2D z : trajectory)
+			ret.add(update(z));
+
+		return ret;
+	}
+
+	// number of calls of update
+	public int getUpdates() {
+		return updates;
+	}
+
+	// number of updates that recomputed the visibility polygon from scratch
+	public int getRecomputations() {
+		return recomputations;
+	}
+}
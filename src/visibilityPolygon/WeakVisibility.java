@@ -0,0 +1,405 @@
+package visibilityPolygon;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Weak visibility polygon of a segment ab in a simple polygon: the points visible from at least one point of the segment.
+ *
+ * The segment is extended to a chord of the polygon, which splits it into two parts having ab as an edge.
+ * In each part the shortest path trees from a and from b decide visibility (Guibas et al.): a vertex v is visible from ab
+ * iff the shortest path from a to v turns only left and the one from b to v only right (ab is a CCW edge). The part of the
+ * polygon behind a visible reflex vertex r is bounded by the extension of the last edge of the shortest path from a to r
+ * (the pocket after r in CCW order) or from b to r (the pocket before r). Cutting off these pockets leaves the weak
+ * visibility polygon of the part, both parts are glued together along the chord. If the segment is an edge ending at a reflex
+ * vertex, the pocket behind the line of the segment is seen from that endpoint only and replaced by its visibility polygon.
+ *
+ * The shortest path trees are computed by walking the funnels through a triangulation of the part (see Triangulation)
+ * in O(m log m) time for a part of m vertices.
+ *
+ * Based on: L. Guibas, J. Hershberger, D. Leven, M. Sharir, R. Tarjan (1987), Linear-time algorithms for visibility
+ * and shortest path problems inside triangulated simple polygons.
+ */
+final class WeakVisibility {
+
+	private WeakVisibility() {
+	}
+
+	/**
+	 * @param pol Valid polygon.
+	 * @param a First endpoint of the segment.
+	 * @param b Second endpoint of the segment, different from a.
+	 * @return Weak visibility polygon in CCW order, null if the segment doesn't lie in the polygon.
+	 */
+	static CCWPolygon compute(PreparedPolygon pol, Point2D a, Point2D b) {
+		double[] x = pol.x, y = pol.y;
+		int n = x.length;
+		double ax = a.getX(), ay = a.getY(), bx = b.getX(), by = b.getY();
+
+		if (!pol.containsPoint(a) || !pol.containsPoint(b))
+			return null;
+
+		// the segment lies on an edge, only the polygon itself is on its left
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+
+			if (LineSegment.pointOnSegment(ax, ay, x[i], y[i], x[j], y[j]) &&
+				LineSegment.pointOnSegment(bx, by, x[i], y[i], x[j], y[j])) {
+
+				// the segment as an edge in CCW order
+				if ((bx - ax) * (x[j] - x[i]) + (by - ay) * (y[j] - y[i]) < 0)
+					return compute(pol, b, a);
+
+				Part part = new Part(n + 2);
+				part.add(ax, ay);
+				part.add(bx, by);
+				part.addChain(x, y, i, 1, i, 0);
+
+				// the whole boundary from b around to a
+				Part ret = new Part(3 * part.m);
+				part.weakVisibility(0, 1, 0, ret);
+				return ret.toPolygon();
+			}
+		}
+
+		// extends the segment to a chord from A (behind a) to B (beyond b)
+		double[] hitA = new double[3], hitB = new double[3], hitS = new double[3];
+		int eA = chordEnd(pol, ax, ay, ax - bx, ay - by, hitA);
+		int eB = chordEnd(pol, bx, by, bx - ax, by - ay, hitB);
+
+		// the segment must not leave the polygon between a and b
+		int eS = firstHit(x, y, n, pol.edgeX, pol.edgeY, -1, ax, ay, bx - ax, by - ay, hitS);
+		if (eA < 0 || eB < 0 || eS < 0 || (hitS[0] - ax) * (bx - ax) + (hitS[1] - ay) * (by - ay) <
+				(bx - ax) * (bx - ax) + (by - ay) * (by - ay) - CommonUtils.Eps)
+			return null;
+
+		// left part: chord A, a, b, B and the boundary from B around to A; right part: chord B, b, a, A and the rest
+		Part left = new Part(n + 4);
+		left.add(hitA[0], hitA[1]);
+		left.add(ax, ay);
+		left.add(bx, by);
+		left.add(hitB[0], hitB[1]);
+		left.addChain(x, y, eB, hitB[2], eA, hitA[2]);
+
+		Part right = new Part(n + 4);
+		right.add(hitB[0], hitB[1]);
+		right.add(bx, by);
+		right.add(ax, ay);
+		right.add(hitA[0], hitA[1]);
+		right.addChain(x, y, eA, hitA[2], eB, hitB[2]);
+
+		Part ret = new Part(3 * (left.m + right.m));
+
+		// the left part from B to A, then the right part from A to B, the segment is a CCW edge of both
+		left.weakVisibility(left.indexOf(ax, ay), left.indexOf(hitB[0], hitB[1]), left.indexOf(hitA[0], hitA[1]), ret);
+		right.weakVisibility(right.indexOf(bx, by), right.indexOf(hitA[0], hitA[1]), right.indexOf(hitB[0], hitB[1]), ret);
+
+		return ret.toPolygon();
+	}
+
+	/**
+	 * Finds where the ray from p in direction (dx, dy) leaves the polygon, p itself if it lies on the boundary.
+	 * @param hit Receives the point and its parameter along the edge.
+	 * @return Index of the edge, -1 if there is none (rounding errors).
+	 */
+	private static int chordEnd(PreparedPolygon pol, double px, double py, double dx, double dy, double[] hit) {
+		double[] x = pol.x, y = pol.y;
+		int n = x.length;
+
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+
+			if (LineSegment.pointOnSegment(px, py, x[i], y[i], x[j], y[j])) {
+				double len = pol.edgeX[i] * pol.edgeX[i] + pol.edgeY[i] * pol.edgeY[i];
+
+				hit[0] = px;
+				hit[1] = py;
+				hit[2] = ((px - x[i]) * pol.edgeX[i] + (py - y[i]) * pol.edgeY[i]) / len;
+				return i;
+			}
+		}
+
+		return firstHit(x, y, n, pol.edgeX, pol.edgeY, -1, px, py, dx, dy, hit);
+	}
+
+	/**
+	 * Shoots a ray from p in direction (dx, dy) and finds the first edge hit, ignoring the edges incident to vertex skip.
+	 * @param hit Receives the point hit and its parameter along the edge.
+	 * @return Index of the edge hit, -1 if there is none.
+	 */
+	private static int firstHit(double[] x, double[] y, int n, double[] edgeX, double[] edgeY, int skip,
+			double px, double py, double dx, double dy, double[] hit) {
+		double tMin = Double.POSITIVE_INFINITY;
+		int ret = -1;
+
+		for (int i = 0; i < n; i++) {
+			if (skip >= 0 && (i == skip || (i + 1) % n == skip))
+				continue;
+
+			double denom = dx * edgeY[i] - dy * edgeX[i];
+
+			// edges parallel to the ray are hit at their endpoints by the adjacent edges
+			if (denom == 0)
+				continue;
+
+			double fx = x[i] - px, fy = y[i] - py;
+			double t = (fx * edgeY[i] - fy * edgeX[i]) / denom;
+			double u = (fx * dy - fy * dx) / denom;
+
+			if (t > 0 && t < tMin && u >= 0 && u <= 1) {
+				tMin = t;
+				ret = i;
+				hit[0] = x[i] + u * edgeX[i];
+				hit[1] = y[i] + u * edgeY[i];
+				hit[2] = u;
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Simple polygon in CCW order being built, one of the parts cut off by the chord (or the output).
+	 */
+	private static class Part {
+		double[] x, y;
+		int m;
+
+		Part(int capacity) {
+			x = new double[capacity];
+			y = new double[capacity];
+		}
+
+		// appends (px, py) unless it equals the last vertex
+		void add(double px, double py) {
+			if (m > 0 && CommonUtils.epsEquals(x[m - 1], y[m - 1], px, py))
+				return;
+
+			x[m] = px;
+			y[m] = py;
+			m++;
+		}
+
+		/**
+		 * Appends the vertices of the polygon from the end of edge e0 (after the point at parameter u0 on it)
+		 * up to the start of edge e1 (before the point at parameter u1 on it) in CCW order.
+		 */
+		void addChain(double[] px, double[] py, int e0, double u0, int e1, double u1) {
+			int n = px.length;
+			int count = (e1 - e0 + n) % n;
+
+			if (e0 == e1 && u1 < u0)
+				count = n;
+
+			for (int k = 1; k <= count; k++)
+				add(px[(e0 + k) % n], py[(e0 + k) % n]);
+
+			// the last vertex may coincide with the first one (chord ends on vertices)
+			if (m > 1 && CommonUtils.epsEquals(x[m - 1], y[m - 1], x[0], y[0]))
+				m--;
+		}
+
+		int indexOf(double px, double py) {
+			for (int i = 0; i < m; i++) {
+				if (CommonUtils.epsEquals(x[i], y[i], px, py))
+					return i;
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Appends the boundary of the weak visibility polygon of the segment (edge from vertex a to vertex a + 1)
+		 * from vertex from to vertex to in CCW order to out.
+		 */
+		void weakVisibility(int a, int from, int to, Part out) {
+			int b = (a + 1) % m;
+			int[] parentA = new int[m], parentB = new int[m];
+			int[] orderA = new int[m], orderB = new int[m];
+
+			Triangulation triangulation = new Triangulation(x, y, m);
+			int reachedA = triangulation.shortestPathTree(a, parentA, orderA);
+			int reachedB = triangulation.shortestPathTree(b, parentB, orderB);
+
+			boolean[] visible = visible(a, b, parentA, orderA, reachedA, parentB, orderB, reachedB);
+
+			double[] edgeX = new double[m], edgeY = new double[m];
+			for (int i = 0; i < m; i++) {
+				edgeX[i] = x[(i + 1) % m] - x[i];
+				edgeY[i] = y[(i + 1) % m] - y[i];
+			}
+
+			// windows as jumps along the boundary: start and end position (counted from vertex from), then the points replacing the pocket
+			List<double[]> windows = new ArrayList<>();
+			double[] hit = new double[3];
+
+			for (int r = 0; r < m; r++) {
+				int prev = (r + m - 1) % m, next = (r + 1) % m;
+
+				// pockets behind the line of the segment at a reflex endpoint are seen from the endpoint only
+				if (r == a && turn(prev, a, b) < 0) {
+					int e = firstHit(x, y, m, edgeX, edgeY, a, x[a], y[a], x[a] - x[b], y[a] - y[b], hit);
+					if (e >= 0)
+						windows.add(pocket(a, e, hit, position(e, hit[2], from), position(a, 0, from), false));
+				} else if (r == b && turn(a, b, next) < 0) {
+					int e = firstHit(x, y, m, edgeX, edgeY, b, x[b], y[b], x[b] - x[a], y[b] - y[a], hit);
+					if (e >= 0)
+						windows.add(pocket(b, e, hit, position(b, 0, from), position(e, hit[2], from), true));
+				}
+
+				if (!visible[r] || r == a || r == b || Predicates.orient2d(x[prev], y[prev], x[r], y[r], x[next], y[next]) >= 0)
+					continue;
+
+				// pocket after the reflex vertex r, bounded by the extension of the last edge of the shortest path from a
+				int u = parentA[r];
+				if (u >= 0 && Predicates.orient2d(x[u], y[u], x[r], y[r], x[next], y[next]) < 0) {
+					int e = firstHit(x, y, m, edgeX, edgeY, r, x[r], y[r], x[r] - x[u], y[r] - y[u], hit);
+					if (e >= 0)
+						windows.add(new double[] { position(r, 0, from), position(e, hit[2], from), x[r], y[r], hit[0], hit[1] });
+				}
+
+				// pocket before r, bounded by the extension of the last edge of the shortest path from b
+				u = parentB[r];
+				if (u >= 0 && Predicates.orient2d(x[u], y[u], x[r], y[r], x[prev], y[prev]) > 0) {
+					int e = firstHit(x, y, m, edgeX, edgeY, r, x[r], y[r], x[r] - x[u], y[r] - y[u], hit);
+					if (e >= 0)
+						windows.add(new double[] { position(e, hit[2], from), position(r, 0, from), hit[0], hit[1], x[r], y[r] });
+				}
+			}
+
+			windows.sort((w1, w2) -> Double.compare(w1[0], w2[0]));
+
+			int end = (to - from + m) % m;
+			if (end == 0)
+				end = m;
+
+			// walks along the boundary and jumps over the pockets, pockets within skipped ones are ignored
+			double pos = 0;
+			out.add(x[from], y[from]);
+
+			for (double[] w : windows) {
+				if (w[0] < pos || w[1] <= w[0] || w[1] > end)
+					continue;
+
+				for (int k = (int) Math.floor(pos) + 1; k <= w[0]; k++)
+					out.add(x[(from + k) % m], y[(from + k) % m]);
+
+				for (int k = 2; k < w.length; k += 2)
+					out.add(w[k], w[k + 1]);
+				pos = w[1];
+			}
+
+			for (int k = (int) Math.floor(pos) + 1; k <= end; k++)
+				out.add(x[(from + k) % m], y[(from + k) % m]);
+		}
+
+		/**
+		 * Window at the endpoint z of the segment cutting off the pocket between z and the point hit on edge e. The pocket
+		 * is replaced by its part visible from z, computed in the pocket (where z is a convex vertex).
+		 * @param after Whether the pocket follows z in CCW order (z = b) or precedes it (z = a).
+		 */
+		private double[] pocket(int z, int e, double[] hit, double start, double end, boolean after) {
+			List<Point2D> vertices = new ArrayList<>();
+			Point2D pz = new Point2D.Double(x[z], y[z]), ph = new Point2D.Double(hit[0], hit[1]);
+
+			if (after) {
+				vertices.add(pz);
+				for (int k = (z + 1) % m; k != (e + 1) % m; k = (k + 1) % m)
+					vertices.add(new Point2D.Double(x[k], y[k]));
+				if (!CommonUtils.epsEquals(x[e], y[e], hit[0], hit[1]))
+					vertices.add(ph);
+			} else {
+				vertices.add(ph);
+				for (int k = (e + 1) % m; k != z; k = (k + 1) % m) {
+					if (vertices.size() > 1 || !CommonUtils.epsEquals(x[k], y[k], hit[0], hit[1]))
+						vertices.add(new Point2D.Double(x[k], y[k]));
+				}
+				vertices.add(pz);
+			}
+
+			CCWPolygon VP = (vertices.size() < 3) ? null : VisibilityPolygon.computeVisPol(new CCWPolygon(vertices), pz);
+			List<Point2D> visible = (VP == null) ? null : VP.getVertices();
+
+			int iz = -1;
+			for (int k = 0; visible != null && k < visible.size() && iz < 0; k++) {
+				if (CommonUtils.epsEquals(visible.get(k), pz))
+					iz = k;
+			}
+
+			// rounding errors, the pocket is cut off by the window only
+			if (iz < 0)
+				return after ? new double[] { start, end, x[z], y[z], hit[0], hit[1] } : new double[] { start, end, hit[0], hit[1], x[z], y[z] };
+
+			// the visibility polygon starting at z, respectively ending at z
+			int k = visible.size();
+			double[] ret = new double[2 + 2 * k];
+			ret[0] = start;
+			ret[1] = end;
+			for (int i = 0; i < k; i++) {
+				Point2D p = visible.get((iz + (after ? 0 : 1) + i) % k);
+				ret[2 + 2 * i] = p.getX();
+				ret[3 + 2 * i] = p.getY();
+			}
+
+			return ret;
+		}
+
+		// position of the point at parameter u on edge e along the boundary starting at vertex from
+		private double position(int e, double u, int from) {
+			return (e - from + m) % m + u;
+		}
+
+		/**
+		 * v is visible from the segment iff the shortest path from a turns only left and the one from b only right.
+		 * Vertices not reached by the shortest path trees (rounding errors) are not visible.
+		 */
+		private boolean[] visible(int a, int b, int[] parentA, int[] orderA, int reachedA, int[] parentB, int[] orderB, int reachedB) {
+			boolean[] leftA = new boolean[m], rightB = new boolean[m], ret = new boolean[m];
+
+			// parents are reached before their children
+			for (int k = 0; k < reachedA; k++) {
+				int v = orderA[k], u = parentA[v];
+				leftA[v] = (u < 0) ? v == a : leftA[u] && (u == a || turn(parentA[u], u, v) >= 0);
+			}
+
+			for (int k = 0; k < reachedB; k++) {
+				int v = orderB[k], u = parentB[v];
+				rightB[v] = (u < 0) ? v == b : rightB[u] && (u == b || turn(parentB[u], u, v) <= 0);
+			}
+
+			for (int v = 0; v < m; v++)
+				ret[v] = leftA[v] && rightB[v];
+
+			return ret;
+		}
+
+		/**
+		 * Sign of the turn from p over u to v, 0 if v lies on the line through p and u up to rounding errors
+		 * (the endpoints of the segment are computed points, hence vertices collinear with it aren't exactly so).
+		 */
+		private int turn(int p, int u, int v) {
+			double orient = Predicates.orient2d(x[p], y[p], x[u], y[u], x[v], y[v]);
+
+			if (Math.abs(orient) <= CommonUtils.Eps * Math.hypot(x[u] - x[p], y[u] - y[p]))
+				return 0;
+
+			return (orient > 0) ? 1 : -1;
+		}
+
+		// the polygon without collinear vertices
+		CCWPolygon toPolygon() {
+			int k = 0;
+			for (int i = 0; i < m; i++)
+				k = VisibilityPolygon.appendVertex(x, y, k, x[i], y[i]);
+
+			k = VisibilityPolygon.closeVertices(x, y, k);
+
+			List<Point2D> ret = new ArrayList<>(k);
+			for (int i = 0; i < k; i++)
+				ret.add(new Point2D.Double(x[i], y[i]));
+
+			return new CCWPolygon(ret);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package visibilityPolygon;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Map with least recently used eviction bounded by the total weight of its values, backing VisibilityCache and VisibilityCellCache.
+ *
+ * The keys are split into segments by their hash, each segment is an access ordered LinkedHashMap guarded by a lock of its own
+ * (lock striping). The total weight is shared by all segments: after a value is added, the least recently used entries of its segment
+ * are evicted first, then those of the following segments, until the total weight is within the capacity again. So any value up to
+ * the whole capacity can be cached, values heavier than that are left out. While threads add values concurrently the total weight
+ * may exceed the capacity until their evictions are done.
+ * Values have to be immutable (or at least never changed once added), they are read outside of the locks.
+ */
+final class WeightedLruCache<K, V> {
+
+	private static final int segmentCount = 16;
+
+	private final List<LinkedHashMap<K, V>> segments = new ArrayList<>(segmentCount);
+	private final long capacity;
+	private final ToLongFunction<? super V> weigher;
+
+	private final AtomicLong weight = new AtomicLong();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param capacity Maximum total weight of the values, positive.
+	 * @param weigher Weight of a value, non-negative and the same on every call.
+	 */
+	WeightedLruCache(long capacity, ToLongFunction<? super V> weigher) {
+		this.capacity = capacity;
+		this.weigher = weigher;
+
+		for (int i = 0; i < segmentCount; i++)
+			segments.add(new LinkedHashMap<>(16, 0.75f, true));
+	}
+
+	// value of the key (which becomes the most recently used one), null if there is none
+	V get(K key) {
+		LinkedHashMap<K, V> segment = segmentOf(key);
+
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	/**
+	 * Replaces the value of the key by remapping.apply(old value), old value being null if there is none.
+	 * The remapping runs inside the lock of the segment, it should be cheap and must not use the cache.
+	 * @return Value of the key after the call, the old one if the new value is heavier than the capacity.
+	 */
+	V compute(K key, UnaryOperator<V> remapping) {
+		int index = segmentIndex(key);
+		LinkedHashMap<K, V> segment = segments.get(index);
+		V ret;
+
+		synchronized (segment) {
+			V old = segment.get(key);
+			ret = remapping.apply(old);
+
+			if (ret == old)
+				return ret;
+
+			long w = weigher.applyAsLong(ret);
+			if (w > capacity)
+				return old;
+
+			segment.put(key, ret);
+			weight.addAndGet(w - ((old == null) ? 0 : weigher.applyAsLong(old)));
+		}
+
+		// the segment of the key first, the added value itself is kept
+		for (int i = 0; i < segmentCount && weight.get() > capacity; i++)
+			evict(segments.get((index + i) & (segmentCount - 1)), key);
+
+		return ret;
+	}
+
+	// number of keys
+	int size() {
+		int ret = 0;
+		for (LinkedHashMap<K, V> segment : segments) {
+			synchronized (segment) {
+				ret += segment.size();
+			}
+		}
+
+		return ret;
+	}
+
+	// sum of f over all values
+	long sum(ToLongFunction<? super V> f) {
+		long ret = 0;
+		for (LinkedHashMap<K, V> segment : segments) {
+			synchronized (segment) {
+				for (V value : segment.values())
+					ret += f.applyAsLong(value);
+			}
+		}
+
+		return ret;
+	}
+
+	// total weight of the values
+	long getWeight() {
+		return weight.get();
+	}
+
+	// number of entries evicted to stay within the capacity
+	long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	// removes all entries, the eviction count is kept
+	void clear() {
+		for (LinkedHashMap<K, V> segment : segments) {
+			synchronized (segment) {
+				long w = 0;
+				for (V value : segment.values())
+					w += weigher.applyAsLong(value);
+
+				segment.clear();
+				weight.addAndGet(-w);
+			}
+		}
+	}
+
+	// evicts least recently used entries of the segment, except the one of the key, while the total weight exceeds the capacity
+	private void evict(LinkedHashMap<K, V> segment, K keep) {
+		synchronized (segment) {
+			for (Iterator<Map.Entry<K, V>> it = segment.entrySet().iterator(); weight.get() > capacity && it.hasNext(); ) {
+				Map.Entry<K, V> e = it.next();
+				if (e.getKey().equals(keep))
+					continue;
+
+				weight.addAndGet(-weigher.applyAsLong(e.getValue()));
+				it.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	private LinkedHashMap<K, V> segmentOf(K key) {
+		return segments.get(segmentIndex(key));
+	}
+
+	private static int segmentIndex(Object key) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (segmentCount - 1);
+	}
+}